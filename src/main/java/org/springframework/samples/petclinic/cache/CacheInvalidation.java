@@ -0,0 +1,30 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.cache;
+
+/**
+ * A row of the <code>cache_invalidation</code> table: a cache entry, or all the entries of a cache, evicted by a write
+ * committed on a node.
+ *
+ * @param id        the id of the row, in insertion order
+ * @param nodeId    the id of the node that committed the write
+ * @param cacheName the name of the cache
+ * @param key       the key of the evicted entry, or <code>null</code> if all the entries were evicted
+ */
+public record CacheInvalidation(long id, String nodeId, String cacheName, Integer key) {
+
+}
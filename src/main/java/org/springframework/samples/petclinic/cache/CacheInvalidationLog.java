@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.cache;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The <code>cache_invalidation</code> table, logging the cache entries evicted by the writes of each node.
+ * <p>
+ * The entries are appended through the {@link #cache(String) caches} of the log, which record their evictions instead
+ * of holding values. They are called by the writes of the service layer within their transaction, so that an entry is
+ * logged if and only if the write is committed. The entries are keyed by the id of an entity, or by nothing when all
+ * the entries of a cache are evicted; any other key is logged as the eviction of all the entries of its cache.
+ */
+public class CacheInvalidationLog {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The id of this node, which identifies the entries it appends.
+     */
+    public String getNodeId() {
+        return this.nodeId;
+    }
+
+    /**
+     * Appends the eviction of the given entry, or of all the entries of the cache if the key is <code>null</code>.
+     */
+    public void append(String cacheName, Integer key) {
+        this.jdbcTemplate.update(
+            "INSERT INTO cache_invalidation (node_id, cache_name, cache_key, created_at) VALUES (?, ?, ?, ?)",
+            this.nodeId, cacheName, key, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Finds the entries appended after the given instant, in insertion order.
+     */
+    public List<CacheInvalidation> findSince(Instant since) {
+        return this.jdbcTemplate.query(
+            "SELECT id, node_id, cache_name, cache_key FROM cache_invalidation WHERE created_at > ? ORDER BY id",
+            (rs, rowNum) -> new CacheInvalidation(rs.getLong("id"), rs.getString("node_id"),
+                rs.getString("cache_name"), rs.getObject("cache_key", Integer.class)),
+            Timestamp.from(since));
+    }
+
+    /**
+     * Deletes the entries appended before the given instant, and returns their number.
+     */
+    public int deleteBefore(Instant before) {
+        return this.jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?", Timestamp.from(before));
+    }
+
+    /**
+     * A cache holding nothing, whose evictions are appended to this log.
+     */
+    public Cache cache(String name) {
+        return new LoggingCache(name);
+    }
+
+    private class LoggingCache implements Cache {
+
+        private final String name;
+
+        LoggingCache(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return CacheInvalidationLog.this;
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return null;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return null;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            try {
+                return valueLoader.call();
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+        }
+
+        @Override
+        public void evict(Object key) {
+            append(this.name, key instanceof Integer id ? id : null);
+        }
+
+        @Override
+        public void clear() {
+            append(this.name, null);
+        }
+
+    }
+
+}
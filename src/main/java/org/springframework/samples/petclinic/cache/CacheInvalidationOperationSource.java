@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.cache;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.interceptor.CacheEvictOperation;
+import org.springframework.cache.interceptor.CacheOperation;
+import org.springframework.cache.interceptor.CacheOperationSource;
+
+/**
+ * The {@link org.springframework.cache.annotation.CacheEvict @CacheEvict} operations of the annotated methods that run
+ * after the invocation, i.e. the evictions of the entries made stale by a write, which are to be
+ * {@link CacheInvalidationLog logged} in its transaction. The other operations only concern the caches of this node.
+ */
+public class CacheInvalidationOperationSource implements CacheOperationSource {
+
+    private final CacheOperationSource annotations = new AnnotationCacheOperationSource();
+
+    @Override
+    public boolean isCandidateClass(Class<?> targetClass) {
+        return this.annotations.isCandidateClass(targetClass);
+    }
+
+    @Override
+    public boolean hasCacheOperations(Method method, Class<?> targetClass) {
+        return getCacheOperations(method, targetClass) != null;
+    }
+
+    @Override
+    public Collection<CacheOperation> getCacheOperations(Method method, Class<?> targetClass) {
+        Collection<CacheOperation> operations = this.annotations.getCacheOperations(method, targetClass);
+        if (operations == null) {
+            return null;
+        }
+        List<CacheOperation> evictions = operations.stream()
+            .filter(operation -> operation instanceof CacheEvictOperation eviction && !eviction.isBeforeInvocation())
+            .toList();
+        return evictions.isEmpty() ? null : evictions;
+    }
+
+}
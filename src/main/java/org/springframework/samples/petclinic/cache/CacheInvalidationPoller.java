@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Polls the {@link CacheInvalidationLog} for the entries appended by the other nodes, and evicts them from the caches
+ * of this node, within about the poll interval of their commit.
+ * <p>
+ * The entries are read by the time they were appended rather than by id: a transaction may commit after another one
+ * that appended later entries, so each poll reads again the entries appended within the look-back period before the
+ * previous one, which should exceed the duration of the longest write and the clock skew between the nodes. Each entry
+ * is applied once. A remote write also evicts the Hibernate second-level cache, if any, which holds the reference data
+ * too.
+ */
+public class CacheInvalidationPoller {
+
+    private final CacheInvalidationLog log;
+
+    private final CacheManager cacheManager;
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    private final Duration lookBack;
+
+    private final Duration retention;
+
+    private Instant lastPoll;
+
+    private Set<Long> applied = Set.of();
+
+    public CacheInvalidationPoller(CacheInvalidationLog log, CacheManager cacheManager,
+                                   ObjectProvider<EntityManagerFactory> entityManagerFactory, Duration lookBack,
+                                   Duration retention) {
+        this.log = log;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.lookBack = lookBack;
+        this.retention = retention;
+        this.lastPoll = Instant.now();
+    }
+
+    /**
+     * Evicts the entries appended by the other nodes since the previous poll.
+     */
+    @Scheduled(fixedDelayString = "${petclinic.cache.invalidation.poll-interval:PT1S}")
+    public synchronized void poll() {
+        Instant now = Instant.now();
+        List<CacheInvalidation> invalidations = this.log.findSince(this.lastPoll.minus(this.lookBack));
+        this.lastPoll = now;
+        Set<Long> polled = new HashSet<>();
+        boolean remote = false;
+        for (CacheInvalidation invalidation : invalidations) {
+            polled.add(invalidation.id());
+            if (!this.applied.contains(invalidation.id()) && !invalidation.nodeId().equals(this.log.getNodeId())) {
+                evict(invalidation);
+                remote = true;
+            }
+        }
+        this.applied = polled;
+        if (remote) {
+            EntityManagerFactory emf = this.entityManagerFactory.getIfAvailable();
+            if (emf != null) {
+                emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+            }
+        }
+    }
+
+    /**
+     * Deletes the entries older than the retention period, which every node has polled.
+     */
+    @Scheduled(fixedDelayString = "${petclinic.cache.invalidation.retention:PT1H}",
+        initialDelayString = "${petclinic.cache.invalidation.retention:PT1H}")
+    public void prune() {
+        this.log.deleteBefore(Instant.now().minus(this.retention));
+    }
+
+    private void evict(CacheInvalidation invalidation) {
+        Cache cache = this.cacheManager.getCache(invalidation.cacheName());
+        if (cache == null) {
+            // a cache of another version of the application
+            return;
+        }
+        if (invalidation.key() == null) {
+            cache.invalidate();
+        } else {
+            cache.evictIfPresent(invalidation.key());
+        }
+    }
+
+}
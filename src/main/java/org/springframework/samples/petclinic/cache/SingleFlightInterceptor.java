@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.cache;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces the concurrent calls of a method with the same arguments: the first call runs the method, and the calls
+ * made until it returns wait for its result instead of running the method again. This spares the database the
+ * bursts of identical queries that follow the expiry of a popular cache entry, or a cold start.
+ * <p>
+ * The callers share the returned object, so the interceptor only applies to methods whose result may be shared, such
+ * as cached ones. A call made within a transaction is not coalesced, as it may read the uncommitted writes of its
+ * transaction. The calls are counted by the <code>petclinic.single.flight.calls</code> metric, tagged with the
+ * method and an <code>outcome</code>: <code>loaded</code> for the calls running the method, <code>coalesced</code>
+ * for the others.
+ */
+public class SingleFlightInterceptor implements MethodInterceptor {
+
+    private final ConcurrentMap<SimpleKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    public SingleFlightInterceptor(Supplier<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+        Object[] elements = new Object[arguments.length + 1];
+        elements[0] = method;
+        System.arraycopy(arguments, 0, elements, 1, arguments.length);
+        SimpleKey key = new SimpleKey(elements);
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> leader = this.inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            count(method, "coalesced");
+            return join(leader);
+        }
+        count(method, "loaded");
+        try {
+            Object result = invocation.proceed();
+            call.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.inFlight.remove(key, call);
+        }
+    }
+
+    private void count(Method method, String outcome) {
+        this.meterRegistry.get().counter("petclinic.single.flight.calls",
+            "method", method.getDeclaringClass().getSimpleName() + "." + method.getName(), "outcome", outcome)
+            .increment();
+    }
+
+    private static Object join(CompletableFuture<Object> leader) throws Throwable {
+        try {
+            return leader.get();
+        } catch (ExecutionException ex) {
+            throw ex.getCause();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a coalesced call");
+        }
+    }
+
+}
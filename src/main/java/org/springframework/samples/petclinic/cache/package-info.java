@@ -0,0 +1,22 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Support of the in-process caches: their coherence across several nodes sharing one database, each node logging the
+ * cache entries evicted by its writes to the <code>cache_invalidation</code> table and evicting those logged by the
+ * others; and the coalescing of the concurrent loads of a missing entry.
+ */
+package org.springframework.samples.petclinic.cache;
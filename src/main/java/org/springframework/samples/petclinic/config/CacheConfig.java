@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.BeanFactoryCacheOperationSourceAdvisor;
+import org.springframework.cache.interceptor.CacheInterceptor;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.cache.CacheInvalidationLog;
+import org.springframework.samples.petclinic.cache.CacheInvalidationOperationSource;
+import org.springframework.samples.petclinic.cache.CacheInvalidationPoller;
+import org.springframework.samples.petclinic.cache.SingleFlightInterceptor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Java config of the caches of the {@link org.springframework.samples.petclinic.service.ClinicService ClinicService}
+ * reads of the reference data: vets, specialties and pet types, listed and by id; and of the owner aggregates, as
+ * immutable {@link org.springframework.samples.petclinic.model.projection.OwnerView OwnerView} snapshots by id. The
+ * <code>*Json</code> caches hold the serialized bodies of the list endpoints of the reference data, which are
+ * evicted by the same writes as the reads they are built from.
+ * <p>
+ * The caches are bounded Caffeine caches recording their statistics, which are published as the
+ * <code>cache.gets</code>, <code>cache.puts</code> and <code>cache.evictions</code> metrics of the actuator. They are
+ * transaction aware: within a transaction, entries are put and evicted after a successful commit only, so that they
+ * never hold data that was rolled back. The caching advice runs outside of the transactional one, so that a cache
+ * hit does not open a transaction. In between, a {@link SingleFlightInterceptor} coalesces the concurrent calls of
+ * the cached methods that miss the cache with the same arguments into one.
+ * <p>
+ * Several nodes may share the database: the evictions of each write are also appended to the
+ * {@link CacheInvalidationLog} by a second caching advice, which runs within the transaction, and a
+ * {@link CacheInvalidationPoller} evicts those of the other nodes from the caches of this one.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+@EnableTransactionManagement(proxyTargetClass = true, order = CacheConfig.TRANSACTION_ORDER)
+@EnableScheduling
+public class CacheConfig {
+
+    static final int TRANSACTION_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    public static final String VETS = "vets";
+
+    public static final String VET = "vet";
+
+    public static final String SPECIALTIES = "specialties";
+
+    public static final String SPECIALTY = "specialty";
+
+    public static final String PET_TYPES = "petTypes";
+
+    public static final String PET_TYPE = "petType";
+
+    public static final String OWNER = "owner";
+
+    public static final String VETS_JSON = "vetsJson";
+
+    public static final String SPECIALTIES_JSON = "specialtiesJson";
+
+    public static final String PET_TYPES_JSON = "petTypesJson";
+
+    @Bean
+    CacheManager cacheManager(
+        @Value("${petclinic.cache.spec:maximumSize=1000,expireAfterWrite=10m,recordStats}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(VETS, VET, SPECIALTIES, SPECIALTY, PET_TYPES,
+            PET_TYPE, OWNER, VETS_JSON, SPECIALTIES_JSON, PET_TYPES_JSON);
+        cacheManager.setCacheSpecification(spec);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static DefaultPointcutAdvisor singleFlightAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+            AnnotationMatchingPointcut.forMethodAnnotation(Cacheable.class),
+            new SingleFlightInterceptor(meterRegistry::getObject));
+        // within the caching advice, so that cache hits are not coalesced, and outside of the transaction
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+
+    @Bean
+    CacheInvalidationLog cacheInvalidationLog(JdbcTemplate jdbcTemplate) {
+        return new CacheInvalidationLog(jdbcTemplate);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static CacheInterceptor cacheInvalidationInterceptor(ObjectProvider<CacheInvalidationLog> log) {
+        CacheInterceptor interceptor = new CacheInterceptor();
+        interceptor.setCacheOperationSource(new CacheInvalidationOperationSource());
+        interceptor.setCacheResolver(context -> context.getOperation().getCacheNames().stream()
+            .map(name -> log.getObject().cache(name))
+            .toList());
+        return interceptor;
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static BeanFactoryCacheOperationSourceAdvisor cacheInvalidationAdvisor(
+        CacheInterceptor cacheInvalidationInterceptor) {
+        BeanFactoryCacheOperationSourceAdvisor advisor = new BeanFactoryCacheOperationSourceAdvisor();
+        advisor.setCacheOperationSource(cacheInvalidationInterceptor.getCacheOperationSource());
+        advisor.setAdvice(cacheInvalidationInterceptor);
+        // within the transaction, which starts at TRANSACTION_ORDER
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "petclinic.cache.invalidation.enabled", matchIfMissing = true)
+    CacheInvalidationPoller cacheInvalidationPoller(
+        CacheInvalidationLog log, CacheManager cacheManager, ObjectProvider<EntityManagerFactory> entityManagerFactory,
+        @Value("${petclinic.cache.invalidation.look-back:PT10S}") Duration lookBack,
+        @Value("${petclinic.cache.invalidation.retention:PT1H}") Duration retention) {
+        return new CacheInvalidationPoller(log, cacheManager, entityManagerFactory, lookBack, retention);
+    }
+
+}
@@ -1,8 +1,11 @@
 package org.springframework.samples.petclinic.mapper;
 
+import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
 import org.springframework.samples.petclinic.rest.dto.OwnerDto;
 import org.springframework.samples.petclinic.rest.dto.OwnerFieldsDto;
 
@@ -17,13 +20,30 @@ public interface OwnerMapper {
 
     OwnerDto toOwnerDto(Owner owner);
 
+    /**
+     * Map an owner read with the {@link org.springframework.samples.petclinic.model.FetchProfile#SUMMARY SUMMARY}
+     * profile, leaving out its pets which are not loaded.
+     */
+    @Named("summary")
+    @Mapping(target = "pets", ignore = true)
+    OwnerDto toOwnerSummaryDto(Owner owner);
+
+    OwnerDto toOwnerDto(OwnerView owner);
+
+    @Mapping(target = "version", ignore = true)
     Owner toOwner(OwnerDto ownerDto);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "pets", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Owner toOwner(OwnerFieldsDto ownerDto);
 
     List<OwnerDto> toOwnerDtoCollection(Collection<Owner> ownerCollection);
 
+    @IterableMapping(qualifiedByName = "summary")
+    List<OwnerDto> toOwnerSummaryDtos(Collection<Owner> owners);
+
+    List<OwnerDto> toOwnerViewDtos(List<OwnerView> owners);
+
     Collection<Owner> toOwners(Collection<OwnerDto> ownerDtos);
 }
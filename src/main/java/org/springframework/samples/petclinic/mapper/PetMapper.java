@@ -1,14 +1,18 @@
 package org.springframework.samples.petclinic.mapper;
 
+import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.rest.dto.PetDto;
 import org.springframework.samples.petclinic.rest.dto.PetFieldsDto;
 import org.springframework.samples.petclinic.rest.dto.PetTypeDto;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Map Pet & PetDto using mapstruct
@@ -19,20 +23,41 @@ public interface PetMapper {
     @Mapping(source = "owner.id", target = "ownerId")
     PetDto toPetDto(Pet pet);
 
+    /**
+     * Map a pet read with the {@link org.springframework.samples.petclinic.model.FetchProfile#SUMMARY SUMMARY}
+     * profile, leaving out its visits which are not loaded.
+     */
+    @Named("summary")
+    @Mapping(source = "owner.id", target = "ownerId")
+    @Mapping(target = "visits", ignore = true)
+    PetDto toPetSummaryDto(Pet pet);
+
+    @Mapping(source = "typeId", target = "type.id")
+    @Mapping(source = "typeName", target = "type.name")
+    PetDto toPetDto(PetView pet);
+
     Collection<PetDto> toPetsDto(Collection<Pet> pets);
 
+    @IterableMapping(qualifiedByName = "summary")
+    List<PetDto> toPetSummaryDtos(Collection<Pet> pets);
+
+    List<PetDto> toPetViewDtos(List<PetView> pets);
+
     Collection<Pet> toPets(Collection<PetDto> pets);
 
     @Mapping(source = "ownerId", target = "owner.id")
+    @Mapping(target = "version", ignore = true)
     Pet toPet(PetDto petDto);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "owner", ignore = true)
     @Mapping(target = "visits", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Pet toPet(PetFieldsDto petFieldsDto);
 
     PetTypeDto toPetTypeDto(PetType petType);
 
+    @Mapping(target = "version", ignore = true)
     PetType toPetType(PetTypeDto petTypeDto);
 
     Collection<PetTypeDto> toPetTypeDtos(Collection<PetType> petTypes);
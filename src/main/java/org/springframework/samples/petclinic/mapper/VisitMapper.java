@@ -3,10 +3,12 @@ package org.springframework.samples.petclinic.mapper;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.rest.dto.VisitDto;
 import org.springframework.samples.petclinic.rest.dto.VisitFieldsDto;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Map Visit & VisitDto using mapstruct
@@ -14,10 +16,12 @@ import java.util.Collection;
 @Mapper(uses = PetMapper.class)
 public interface VisitMapper {
     @Mapping(source = "petId", target = "pet.id")
+    @Mapping(target = "version", ignore = true)
     Visit toVisit(VisitDto visitDto);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "pet", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Visit toVisit(VisitFieldsDto visitFieldsDto);
 
     @Mapping(source = "pet.id", target = "petId")
@@ -25,4 +29,8 @@ public interface VisitMapper {
 
     Collection<VisitDto> toVisitsDto(Collection<Visit> visits);
 
+    VisitDto toVisitDto(VisitView visit);
+
+    List<VisitDto> toVisitViewDtos(List<VisitView> visits);
+
 }
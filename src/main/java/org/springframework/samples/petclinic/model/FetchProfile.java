@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+/**
+ * How much of the object graph of an {@link Owner}, a {@link Pet} or a {@link Vet} a read loads. The collections of
+ * these entities are mapped lazily, and are only loaded by the reads asking for them, within the transaction.
+ *
+ * @see Owner#PETS_GRAPH
+ * @see Pet#DETAILS_GRAPH
+ * @see Vet#SPECIALTIES_GRAPH
+ */
+public enum FetchProfile {
+
+    /**
+     * The entity with its single valued associations, such as the type and the owner of a pet, but without its
+     * collections: the pets of an owner, the visits of a pet and the specialties of a vet are not loaded and must
+     * not be accessed. Suited to reads that only check existence or change scalar fields.
+     */
+    SUMMARY,
+
+    /**
+     * The entity with the whole tree exposed by the REST API: the pets of an owner with their type and visits, the
+     * type, owner and visits of a pet, the specialties of a vet.
+     */
+    FULL
+
+}
@@ -29,7 +29,7 @@ import jakarta.validation.constraints.NotEmpty;
  * @author Juergen Hoeller
  */
 @MappedSuperclass
-public class NamedEntity extends BaseEntity {
+public class NamedEntity extends VersionedEntity {
 
     @Column(name = "name")
     @NotEmpty
@@ -34,7 +34,17 @@ import java.util.*;
  */
 @Entity
 @Table(name = "owners")
+@NamedEntityGraph(name = Owner.PETS_GRAPH,
+    attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pets"),
+    subgraphs = @NamedSubgraph(name = "pets", attributeNodes = {
+        @NamedAttributeNode("type"), @NamedAttributeNode("visits")}))
 public class Owner extends Person {
+
+    /**
+     * Fetch plan of an owner with its pets, their type and their visits, loaded by a single statement.
+     */
+    public static final String PETS_GRAPH = "Owner.pets";
+
     @Column(name = "address")
     @NotEmpty
     private String address;
@@ -49,7 +59,7 @@ public class Owner extends Person {
     @Pattern(regexp = "^[0-9]{10}$", message = "Phone number must be exactly 10 digits")
     private String telephone;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner", fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
     private Set<Pet> pets;
 
     public String getAddress() {
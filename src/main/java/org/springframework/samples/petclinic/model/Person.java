@@ -26,7 +26,7 @@ import jakarta.validation.constraints.NotEmpty;
  * @author Ken Krebs
  */
 @MappedSuperclass
-public class Person extends BaseEntity {
+public class Person extends VersionedEntity {
 
     @Column(name = "first_name")
     @NotEmpty
@@ -29,8 +29,24 @@ import java.util.*;
  */
 @Entity
 @Table(name = "pets")
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = Pet.DETAILS_GRAPH, attributeNodes = {
+        @NamedAttributeNode("type"), @NamedAttributeNode("owner"), @NamedAttributeNode("visits")}),
+    @NamedEntityGraph(name = Pet.SUMMARY_GRAPH, attributeNodes = {
+        @NamedAttributeNode("type"), @NamedAttributeNode("owner")})})
 public class Pet extends NamedEntity {
 
+    /**
+     * Fetch plan of a pet with its type, its owner and its visits, loaded by a single statement. The pets of the
+     * owner are not part of it.
+     */
+    public static final String DETAILS_GRAPH = "Pet.details";
+
+    /**
+     * Fetch plan of a pet with its type and its owner, without its visits.
+     */
+    public static final String SUMMARY_GRAPH = "Pet.summary";
+
     @Column(name = "birth_date", columnDefinition = "DATE")
     private LocalDate birthDate;
 
@@ -42,7 +58,7 @@ public class Pet extends NamedEntity {
     @JoinColumn(name = "owner_id")
     private Owner owner;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "pet", fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "pet")
     private Set<Visit> visits;
 
     public LocalDate getBirthDate() {
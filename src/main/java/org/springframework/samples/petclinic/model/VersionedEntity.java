@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Version;
+
+/**
+ * Domain object adds an optimistic locking version to <code>BaseEntity</code>. Every update of the row increments it,
+ * so that the version identifies one state of the entity and serves as the basis of the HTTP entity tags.
+ * <p>
+ * The version is a primitive so that an entity built from an id alone, as a reference to an existing row, is not
+ * mistaken for a transient one.
+ */
+@MappedSuperclass
+public class VersionedEntity extends BaseEntity {
+
+    @Version
+    @Column(name = "version")
+    protected int version;
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+}
@@ -19,6 +19,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.*;
 import jakarta.xml.bind.annotation.XmlElement;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.*;
 
 /**
@@ -31,9 +33,18 @@ import java.util.*;
  */
 @Entity
 @Table(name = "vets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vets")
+@NamedEntityGraph(name = Vet.SPECIALTIES_GRAPH, attributeNodes = @NamedAttributeNode("specialties"))
 public class Vet extends Person {
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Fetch plan of a vet with its specialties, loaded by a single statement.
+     */
+    public static final String SPECIALTIES_GRAPH = "Vet.specialties";
+
+    @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet_specialties")
     @JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"),
         inverseJoinColumns = @JoinColumn(name = "specialty_id"))
     private Set<Specialty> specialties;
@@ -57,8 +68,26 @@ public class Vet extends Person {
         return Collections.unmodifiableList(sortedSpecs);
     }
 
+    /**
+     * Replaces the specialties of this vet. The current set is updated in place rather than swapped, and specialties
+     * are matched by id, as they may have been loaded apart from this vet, so that the persistence provider only
+     * writes the links which were actually added or removed.
+     */
     public void setSpecialties(List<Specialty> specialties) {
-        this.specialties = new HashSet<>(specialties);
+        Set<Specialty> specialtiesInternal = getSpecialtiesInternal();
+        Set<Integer> ids = new HashSet<>();
+        for (Specialty specialty : specialties) {
+            ids.add(specialty.getId());
+        }
+        specialtiesInternal.removeIf(specialty -> specialty.isNew() || !ids.contains(specialty.getId()));
+        for (Specialty specialty : specialtiesInternal) {
+            ids.remove(specialty.getId());
+        }
+        for (Specialty specialty : specialties) {
+            if (specialty.isNew() || ids.remove(specialty.getId())) {
+                specialtiesInternal.add(specialty);
+            }
+        }
     }
 
     @JsonIgnore
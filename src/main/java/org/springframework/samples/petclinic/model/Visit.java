@@ -26,7 +26,17 @@ import java.time.LocalDate;
  */
 @Entity
 @Table(name = "visits")
-public class Visit extends BaseEntity {
+@NamedEntityGraph(name = Visit.PET_GRAPH,
+    attributeNodes = @NamedAttributeNode(value = "pet", subgraph = "pet"),
+    subgraphs = @NamedSubgraph(name = "pet", attributeNodes = {
+        @NamedAttributeNode("type"), @NamedAttributeNode("owner")}))
+public class Visit extends VersionedEntity {
+
+    /**
+     * Fetch plan of a visit with its pet, the type and the owner of this pet, loaded by a single statement. The
+     * other visits of the pet are not part of it.
+     */
+    public static final String PET_GRAPH = "Visit.pet";
 
     /**
      * Holds value of property date.
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model.projection;
+
+import java.util.List;
+
+import org.springframework.samples.petclinic.model.Owner;
+
+/**
+ * Read-only view of an {@link Owner} with its pets, sorted by name like {@link Owner#getPets()}.
+ *
+ * @param id        the id of the owner
+ * @param version   the version of the owner, which does not change with its pets
+ * @param firstName the first name of the owner
+ * @param lastName  the last name of the owner
+ * @param address   the address of the owner
+ * @param city      the city of the owner
+ * @param telephone the telephone of the owner
+ * @param pets      the pets of the owner
+ */
+public record OwnerView(Integer id, int version, String firstName, String lastName, String address, String city,
+                        String telephone, List<PetView> pets) {
+
+    /**
+     * Copies the pets into an unmodifiable list, so that a view can be shared, e.g. cached, as an immutable snapshot.
+     */
+    public OwnerView {
+        pets = List.copyOf(pets);
+    }
+
+    /**
+     * View of an owner without its pets, as selected by a JPQL constructor expression.
+     */
+    public OwnerView(Integer id, int version, String firstName, String lastName, String address, String city,
+                     String telephone) {
+        this(id, version, firstName, lastName, address, city, telephone, List.of());
+    }
+
+    /**
+     * Copy of this view with the given pets.
+     */
+    public OwnerView withPets(List<PetView> pets) {
+        return new OwnerView(this.id, this.version, this.firstName, this.lastName, this.address, this.city,
+            this.telephone, pets);
+    }
+
+    /**
+     * View of the given owner with its pets and their visits, for the repositories reading entities.
+     */
+    public static OwnerView of(Owner owner) {
+        return new OwnerView(owner.getId(), owner.getVersion(), owner.getFirstName(), owner.getLastName(),
+            owner.getAddress(), owner.getCity(), owner.getTelephone(), owner.getPets().stream().map(PetView::of).toList());
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model.projection;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.samples.petclinic.model.Pet;
+
+/**
+ * Read-only view of a {@link Pet} with its visits, most recent first like {@link Pet#getVisits()}.
+ *
+ * @param id        the id of the pet
+ * @param version   the version of the pet, which does not change with its visits
+ * @param name      the name of the pet
+ * @param birthDate the birth date of the pet
+ * @param typeId    the id of the type of the pet
+ * @param typeName  the name of the type of the pet
+ * @param ownerId   the id of the owner of the pet
+ * @param visits    the visits of the pet
+ */
+public record PetView(Integer id, int version, String name, LocalDate birthDate, Integer typeId, String typeName,
+                      Integer ownerId, List<VisitView> visits) {
+
+    /**
+     * Copies the visits into an unmodifiable list, like the pets of an {@link OwnerView}.
+     */
+    public PetView {
+        visits = List.copyOf(visits);
+    }
+
+    /**
+     * View of a pet without its visits, as selected by a JPQL constructor expression.
+     */
+    public PetView(Integer id, int version, String name, LocalDate birthDate, Integer typeId, String typeName,
+                   Integer ownerId) {
+        this(id, version, name, birthDate, typeId, typeName, ownerId, List.of());
+    }
+
+    /**
+     * Copy of this view with the given visits.
+     */
+    public PetView withVisits(List<VisitView> visits) {
+        return new PetView(this.id, this.version, this.name, this.birthDate, this.typeId, this.typeName, this.ownerId,
+            visits);
+    }
+
+    /**
+     * View of the given pet and its visits, for the repositories reading entities.
+     */
+    public static PetView of(Pet pet) {
+        return new PetView(pet.getId(), pet.getVersion(), pet.getName(), pet.getBirthDate(),
+            pet.getType() == null ? null : pet.getType().getId(),
+            pet.getType() == null ? null : pet.getType().getName(),
+            pet.getOwner() == null ? null : pet.getOwner().getId(),
+            pet.getVisits().stream().map(VisitView::of).toList());
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model.projection;
+
+import java.time.LocalDate;
+
+import org.springframework.samples.petclinic.model.Visit;
+
+/**
+ * Read-only view of a {@link Visit}.
+ *
+ * @param id          the id of the visit
+ * @param version     the version of the visit
+ * @param petId       the id of the visited pet
+ * @param date        the date of the visit
+ * @param description the description of the visit
+ */
+public record VisitView(Integer id, int version, Integer petId, LocalDate date, String description) {
+
+    /**
+     * View of the given visit, for the repositories reading entities.
+     */
+    public static VisitView of(Visit visit) {
+        return new VisitView(visit.getId(), visit.getVersion(), visit.getPet() == null ? null : visit.getPet().getId(),
+            visit.getDate(), visit.getDescription());
+    }
+
+}
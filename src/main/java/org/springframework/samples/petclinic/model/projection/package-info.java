@@ -0,0 +1,5 @@
+/**
+ * Read-only views of the business classes, selected column by column for the list and get endpoints instead of
+ * being loaded as managed entities. The views are immutable, down to their lists.
+ */
+package org.springframework.samples.petclinic.model.projection;
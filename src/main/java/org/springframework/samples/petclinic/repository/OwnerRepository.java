@@ -16,10 +16,14 @@
 package org.springframework.samples.petclinic.repository;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
 
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant with Spring Data naming
@@ -44,7 +48,7 @@ public interface OwnerRepository {
     Collection<Owner> findByLastName(String lastName) throws DataAccessException;
 
     /**
-     * Retrieve an <code>Owner</code> from the data store by id.
+     * Retrieve an <code>Owner</code> from the data store by id, with the {@link FetchProfile#FULL FULL} profile.
      *
      * @param id the id to search for
      * @return the <code>Owner</code> if found
@@ -52,6 +56,17 @@ public interface OwnerRepository {
      */
     Owner findById(int id) throws DataAccessException;
 
+    /**
+     * Retrieve an <code>Owner</code> from the data store by id, loading its <code>Pet</code>s and their
+     * <code>Visit</code>s only with the {@link FetchProfile#FULL FULL} profile.
+     *
+     * @param id      the id to search for
+     * @param profile the part of the object graph to load
+     * @return the <code>Owner</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     */
+    Owner findById(int id, FetchProfile profile) throws DataAccessException;
+
 
     /**
      * Save an <code>Owner</code> to the data store, either inserting or updating it.
@@ -60,6 +75,16 @@ public interface OwnerRepository {
      * @see BaseEntity#isNew
      */
     void save(Owner owner) throws DataAccessException;
+
+    /**
+     * Update the fields of an existing <code>Owner</code> by a single statement, on the condition that its version
+     * in the data store is still the version of the given owner, which is then incremented. Its pets are
+     * left untouched.
+     *
+     * @param owner the <code>Owner</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(Owner owner) throws DataAccessException;
     
     /**
      * Retrieve <code>Owner</code>s from the data store, returning all owners 
@@ -68,7 +93,66 @@ public interface OwnerRepository {
      * found)
      */
 	Collection<Owner> findAll() throws DataAccessException;
+
+    /**
+     * Retrieve a page of <code>Owner</code>s from the data store, sorted by last name then id. The page starts right
+     * after the given (last name, id) pair, which is the sort key of the last owner of the previous page.
+     *
+     * @param lastName      if not <code>null</code>, only owners whose last name <i>starts</i> with it are returned
+     * @param afterLastName the last name of the last owner of the previous page, or <code>null</code> for the first page
+     * @param afterId       the id of the last owner of the previous page, or <code>null</code> for the first page
+     * @param limit         the maximum number of owners to return
+     * @param profile       the part of the object graph to load, the pets and visits only with the
+     *                      {@link FetchProfile#FULL FULL} profile
+     * @return a <code>List</code> of at most <code>limit</code> <code>Owner</code>s
+     */
+    List<Owner> findPage(String lastName, String afterLastName, Integer afterId, int limit, FetchProfile profile)
+        throws DataAccessException;
+
+    /**
+     * Retrieve all <code>Owner</code>s from the data store along with their pets and visits, reading them
+     * from a database cursor as the returned <code>Stream</code> is consumed instead of loading them all upfront.
+     * <p>
+     * The <code>Stream</code> holds database resources: it must be consumed within a transaction and closed
+     * by the caller, typically with a try-with-resources statement.
+     *
+     * @return a <code>Stream</code> of <code>Owner</code>s ordered by id
+     */
+    Stream<Owner> streamAll() throws DataAccessException;
 	
+    /**
+     * Retrieve the views of all <code>Owner</code>s from the data store, reading only the columns of the views
+     * instead of managed entities.
+     *
+     * @param profile the part of the views to read, the pets and visits only with the {@link FetchProfile#FULL FULL}
+     *                profile
+     * @return a <code>List</code> of <code>OwnerView</code>s ordered by id
+     */
+    List<OwnerView> findAllViews(FetchProfile profile) throws DataAccessException;
+
+    /**
+     * Retrieve the views of the <code>Owner</code>s whose last name <i>starts</i> with the given name, reading only
+     * the columns of the views instead of managed entities.
+     *
+     * @param lastName Value to search for
+     * @param profile  the part of the views to read, the pets and visits only with the
+     *                 {@link FetchProfile#FULL FULL} profile
+     * @return a <code>List</code> of <code>OwnerView</code>s ordered by id
+     */
+    List<OwnerView> findViewsByLastName(String lastName, FetchProfile profile) throws DataAccessException;
+
+    /**
+     * Retrieve the view of an <code>Owner</code> from the data store by id, reading only the columns of the view
+     * instead of managed entities.
+     *
+     * @param id      the id to search for
+     * @param profile the part of the view to read, the pets and visits only with the {@link FetchProfile#FULL FULL}
+     *                profile
+     * @return the <code>OwnerView</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     */
+    OwnerView findViewById(int id, FetchProfile profile) throws DataAccessException;
+
     /**
      * Delete an <code>Owner</code> to the data store by <code>Owner</code>.
      *
@@ -17,11 +17,14 @@ package org.springframework.samples.petclinic.repository;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.projection.PetView;
 
 /**
  * Repository class for <code>Pet</code> domain objects All method names are compliant with Spring Data naming
@@ -43,7 +46,7 @@ public interface PetRepository {
     List<PetType> findPetTypes() throws DataAccessException;
 
     /**
-     * Retrieve a <code>Pet</code> from the data store by id.
+     * Retrieve a <code>Pet</code> from the data store by id, with the {@link FetchProfile#FULL FULL} profile.
      *
      * @param id the id to search for
      * @return the <code>Pet</code> if found
@@ -51,6 +54,17 @@ public interface PetRepository {
      */
     Pet findById(int id) throws DataAccessException;
 
+    /**
+     * Retrieve a <code>Pet</code> from the data store by id, with its type and owner, loading its
+     * <code>Visit</code>s only with the {@link FetchProfile#FULL FULL} profile.
+     *
+     * @param id      the id to search for
+     * @param profile the part of the object graph to load
+     * @return the <code>Pet</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     */
+    Pet findById(int id, FetchProfile profile) throws DataAccessException;
+
     /**
      * Save a <code>Pet</code> to the data store, either inserting or updating it.
      *
@@ -58,6 +72,16 @@ public interface PetRepository {
      * @see BaseEntity#isNew
      */
     void save(Pet pet) throws DataAccessException;
+
+    /**
+     * Update the fields of an existing <code>Pet</code> by a single statement, on the condition that its version
+     * in the data store is still the version of the given pet, which is then incremented. If the pet
+     * holds an owner, it must belong to that owner. Its visits are left untouched.
+     *
+     * @param pet the <code>Pet</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(Pet pet) throws DataAccessException;
     
     /**
      * Retrieve <code>Pet</code>s from the data store, returning all owners 
@@ -67,6 +91,50 @@ public interface PetRepository {
      */
 	Collection<Pet> findAll() throws DataAccessException;
 
+    /**
+     * Retrieve a page of <code>Pet</code>s from the data store, sorted by name then id. The page starts right
+     * after the given (name, id) pair, which is the sort key of the last pet of the previous page.
+     *
+     * @param afterName the name of the last pet of the previous page, or <code>null</code> for the first page
+     * @param afterId   the id of the last pet of the previous page, or <code>null</code> for the first page
+     * @param limit     the maximum number of pets to return
+     * @param profile   the part of the object graph to load, the visits only with the
+     *                  {@link FetchProfile#FULL FULL} profile
+     * @return a <code>List</code> of at most <code>limit</code> <code>Pet</code>s
+     */
+    List<Pet> findPage(String afterName, Integer afterId, int limit, FetchProfile profile) throws DataAccessException;
+
+    /**
+     * Retrieve all <code>Pet</code>s from the data store along with their type, owner and visits, reading them
+     * from a database cursor as the returned <code>Stream</code> is consumed instead of loading them all upfront.
+     * <p>
+     * The <code>Stream</code> holds database resources: it must be consumed within a transaction and closed
+     * by the caller, typically with a try-with-resources statement.
+     *
+     * @return a <code>Stream</code> of <code>Pet</code>s ordered by id
+     */
+    Stream<Pet> streamAll() throws DataAccessException;
+
+    /**
+     * Retrieve the views of all <code>Pet</code>s from the data store, reading only the columns of the views instead
+     * of managed entities.
+     *
+     * @param profile the part of the views to read, the visits only with the {@link FetchProfile#FULL FULL} profile
+     * @return a <code>List</code> of <code>PetView</code>s ordered by id
+     */
+    List<PetView> findAllViews(FetchProfile profile) throws DataAccessException;
+
+    /**
+     * Retrieve the view of a <code>Pet</code> from the data store by id, reading only the columns of the view instead
+     * of managed entities.
+     *
+     * @param id      the id to search for
+     * @param profile the part of the view to read, the visits only with the {@link FetchProfile#FULL FULL} profile
+     * @return the <code>PetView</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     */
+    PetView findViewById(int id, FetchProfile profile) throws DataAccessException;
+
     /**
      * Delete an <code>Pet</code> to the data store by <code>Pet</code>.
      *
@@ -36,6 +36,15 @@ public interface PetTypeRepository {
 
 	void save(PetType petType) throws DataAccessException;
 
+    /**
+     * Update the fields of an existing <code>PetType</code> by a single statement, on the condition that its version
+     * in the data store is still the version of the given petType, which is then incremented.
+     *
+     * @param petType the <code>PetType</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(PetType petType) throws DataAccessException;
+
 	void delete(PetType petType) throws DataAccessException;
 
 }
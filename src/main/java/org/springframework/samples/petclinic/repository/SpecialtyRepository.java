@@ -38,6 +38,15 @@ public interface SpecialtyRepository {
 
 	void save(Specialty specialty) throws DataAccessException;
 
+    /**
+     * Update the fields of an existing <code>Specialty</code> by a single statement, on the condition that its version
+     * in the data store is still the version of the given specialty, which is then incremented.
+     *
+     * @param specialty the <code>Specialty</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(Specialty specialty) throws DataAccessException;
+
 	void delete(Specialty specialty) throws DataAccessException;
 
 }
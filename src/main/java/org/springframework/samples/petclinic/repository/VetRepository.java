@@ -18,6 +18,7 @@ package org.springframework.samples.petclinic.repository;
 import java.util.Collection;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Vet;
 
 /**
@@ -41,7 +42,27 @@ public interface VetRepository {
     
 	Vet findById(int id) throws DataAccessException;
 
+    /**
+     * Retrieve a <code>Vet</code> from the data store by id, loading its specialties only with the
+     * {@link FetchProfile#FULL FULL} profile.
+     *
+     * @param id      the id to search for
+     * @param profile the part of the object graph to load
+     * @return the <code>Vet</code> if found
+     */
+	Vet findById(int id, FetchProfile profile) throws DataAccessException;
+
 	void save(Vet vet) throws DataAccessException;
+
+    /**
+     * Update the fields and the specialties of an existing <code>Vet</code>, on the condition that its version in
+     * the data store is still the version of the given vet, which is then set to the new version. As the
+     * specialties are stored in a link table, this takes more than one statement.
+     *
+     * @param vet the <code>Vet</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(Vet vet) throws DataAccessException;
 	
 	void delete(Vet vet) throws DataAccessException;
 
@@ -15,12 +15,15 @@
  */
 package org.springframework.samples.petclinic.repository;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.BaseEntity;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 
 /**
  * Repository class for <code>Visit</code> domain objects All method names are compliant with Spring Data naming
@@ -42,12 +45,62 @@ public interface VisitRepository {
      */
     void save(Visit visit) throws DataAccessException;
 
+    /**
+     * Update the fields of an existing <code>Visit</code> by a single statement, on the condition that its version
+     * in the data store is still the version of the given visit, which is then incremented. Its pet is
+     * left unchanged.
+     *
+     * @param visit the <code>Visit</code> to update, holding the version it was read with
+     * @return whether it was updated, <code>false</code> if it does not exist or has another version
+     */
+    boolean update(Visit visit) throws DataAccessException;
+
     List<Visit> findByPetId(Integer petId);
     
 	Visit findById(int id) throws DataAccessException;
 	
 	Collection<Visit> findAll() throws DataAccessException;
 
+    /**
+     * Retrieve a page of <code>Visit</code>s from the data store, sorted by date then id. The page starts right
+     * after the given (date, id) pair, which is the sort key of the last visit of the previous page.
+     *
+     * @param afterDate the date of the last visit of the previous page, or <code>null</code> for the first page
+     * @param afterId   the id of the last visit of the previous page, or <code>null</code> for the first page
+     * @param limit     the maximum number of visits to return
+     * @return a <code>List</code> of at most <code>limit</code> <code>Visit</code>s
+     */
+    List<Visit> findPage(LocalDate afterDate, Integer afterId, int limit) throws DataAccessException;
+
+    /**
+     * Retrieve all <code>Visit</code>s from the data store along with their pet, reading them from a database
+     * cursor as the returned <code>Stream</code> is consumed instead of loading them all upfront.
+     * <p>
+     * The <code>Stream</code> holds database resources: it must be consumed within a transaction and closed
+     * by the caller, typically with a try-with-resources statement.
+     *
+     * @return a <code>Stream</code> of <code>Visit</code>s ordered by id
+     */
+    Stream<Visit> streamAll() throws DataAccessException;
+
+    /**
+     * Retrieve the views of all <code>Visit</code>s from the data store, reading only the columns of the views
+     * instead of managed entities.
+     *
+     * @return a <code>List</code> of <code>VisitView</code>s ordered by id
+     */
+    List<VisitView> findAllViews() throws DataAccessException;
+
+    /**
+     * Retrieve the view of a <code>Visit</code> from the data store by id, reading only the columns of the view
+     * instead of a managed entity.
+     *
+     * @param id the id to search for
+     * @return the <code>VisitView</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     */
+    VisitView findViewById(int id) throws DataAccessException;
+
 	void delete(Visit visit) throws DataAccessException;
 
 }
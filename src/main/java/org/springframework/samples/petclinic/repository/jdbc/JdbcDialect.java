@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * SQL variations between the databases supported by the JDBC repositories. Statements are generated with named
+ * parameters named after their column, to be run by a {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate}.
+ */
+public enum JdbcDialect {
+
+    /**
+     * H2, using its <code>MERGE ... KEY</code> statement.
+     */
+    H2 {
+        @Override
+        public String upsert(String table, List<String> keyColumns, List<String> columns) {
+            return "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY (" + String.join(", ", keyColumns) +
+                ") VALUES (" + parameters(columns) + ")";
+        }
+    },
+
+    /**
+     * HSQLDB, using the standard <code>MERGE</code> statement.
+     */
+    HSQLDB {
+        @Override
+        public String upsert(String table, List<String> keyColumns, List<String> columns) {
+            List<String> updatedColumns = updatedColumns(keyColumns, columns);
+            return "MERGE INTO " + table + " USING (VALUES (" + parameters(columns) + ")) AS source (" +
+                String.join(", ", columns) + ") ON " +
+                keyColumns.stream().map(column -> table + "." + column + " = source." + column)
+                    .collect(Collectors.joining(" AND ")) +
+                (updatedColumns.isEmpty() ? "" : " WHEN MATCHED THEN UPDATE SET " +
+                    updatedColumns.stream().map(column -> table + "." + column + " = source." + column)
+                        .collect(Collectors.joining(", "))) +
+                " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES (" +
+                columns.stream().map(column -> "source." + column).collect(Collectors.joining(", ")) + ")";
+        }
+    },
+
+    /**
+     * PostgreSQL, using <code>INSERT ... ON CONFLICT</code>.
+     */
+    POSTGRESQL {
+        @Override
+        public String upsert(String table, List<String> keyColumns, List<String> columns) {
+            List<String> updatedColumns = updatedColumns(keyColumns, columns);
+            return insert(table, columns) + " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO " +
+                (updatedColumns.isEmpty() ? "NOTHING" : "UPDATE SET " +
+                    updatedColumns.stream().map(column -> column + " = EXCLUDED." + column)
+                        .collect(Collectors.joining(", ")));
+        }
+    },
+
+    /**
+     * MySQL and MariaDB, using <code>INSERT ... ON DUPLICATE KEY UPDATE</code>.
+     */
+    MYSQL {
+        @Override
+        public String upsert(String table, List<String> keyColumns, List<String> columns) {
+            List<String> updatedColumns = updatedColumns(keyColumns, columns);
+            if (updatedColumns.isEmpty()) {
+                updatedColumns = keyColumns;
+            }
+            return insert(table, columns) + " ON DUPLICATE KEY UPDATE " +
+                updatedColumns.stream().map(column -> column + " = VALUES(" + column + ")")
+                    .collect(Collectors.joining(", "));
+        }
+    };
+
+    /**
+     * Build a single statement inserting a row, or updating the row having the same key if there is one, instead of
+     * querying the row first to choose between an insert and an update.
+     *
+     * @param table      the table name
+     * @param keyColumns the columns of the primary key or of a unique constraint identifying the row
+     * @param columns    all the written columns, including the key columns, each bound to the parameter of the same name
+     * @return the upsert statement
+     */
+    public abstract String upsert(String table, List<String> keyColumns, List<String> columns);
+
+    /**
+     * Resolve the dialect of the database behind the given data source.
+     *
+     * @throws IllegalStateException if the database cannot be reached or is not supported
+     */
+    public static JdbcDialect of(DataSource dataSource) {
+        String productName;
+        try {
+            productName = JdbcUtils.commonDatabaseName(
+                JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+        } catch (MetaDataAccessException ex) {
+            throw new IllegalStateException("Cannot determine the database product", ex);
+        }
+        if (productName == null) {
+            throw new IllegalStateException("Cannot determine the database product");
+        }
+        return switch (productName) {
+            case "H2" -> H2;
+            case "HSQL Database Engine" -> HSQLDB;
+            case "PostgreSQL" -> POSTGRESQL;
+            case "MySQL", "MariaDB" -> MYSQL;
+            default -> throw new IllegalStateException("Unsupported database: " + productName);
+        };
+    }
+
+    private static String insert(String table, List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + parameters(columns) + ")";
+    }
+
+    private static String parameters(List<String> columns) {
+        return columns.stream().map(column -> ":" + column).collect(Collectors.joining(", "));
+    }
+
+    private static List<String> updatedColumns(List<String> keyColumns, List<String> columns) {
+        return columns.stream().filter(column -> !keyColumns.contains(column)).toList();
+    }
+
+}
@@ -14,29 +14,35 @@
  * limitations under the License.
  */
 package org.springframework.samples.petclinic.repository.jdbc;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
 import org.springframework.samples.petclinic.repository.OwnerRepository;
-import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.util.EntityIndex;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * A simple JDBC-based implementation of the {@link OwnerRepository} interface.
@@ -57,16 +63,22 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
 
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
+    private NamedParameterJdbcTemplate streamingJdbcTemplate;
+
     private SimpleJdbcInsert insertOwner;
 
-    public JdbcOwnerRepositoryImpl(DataSource dataSource) {
+    private final int streamFetchSize;
+
+    public JdbcOwnerRepositoryImpl(DataSource dataSource,
+                                   @Value("${petclinic.repository.stream-fetch-size:500}") int streamFetchSize) {
 
         this.insertOwner = new SimpleJdbcInsert(dataSource)
             .withTableName("owners")
             .usingGeneratedKeyColumns("id");
 
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
-
+        this.streamingJdbcTemplate = JdbcStreamSupport.streamingTemplate(dataSource, streamFetchSize);
+        this.streamFetchSize = streamFetchSize;
     }
 
 
@@ -80,11 +92,13 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
         Map<String, Object> params = new HashMap<>();
         params.put("lastName", lastName + "%");
         List<Owner> owners = this.namedParameterJdbcTemplate.query(
-            "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE last_name like :lastName",
+            "SELECT id, first_name, last_name, address, city, telephone, version FROM owners " +
+                "WHERE last_name like :lastName",
             params,
-            BeanPropertyRowMapper.newInstance(Owner.class)
+            new JdbcOwnerRowMapper()
         );
-        loadOwnersPetsAndVisits(owners);
+        loadOwnersPetsAndVisits(owners,
+            " WHERE pets.owner_id IN (SELECT id FROM owners WHERE last_name like :lastName)", params);
         return owners;
     }
 
@@ -94,35 +108,72 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
      */
     @Override
     public Owner findById(int id) throws DataAccessException {
+        return findById(id, FetchProfile.FULL);
+    }
+
+    /**
+     * Loads the {@link Owner} with the given id, and only with the {@link FetchProfile#FULL FULL} profile its
+     * {@link Pet Pets} and {@link Visit Visits}.
+     */
+    @Override
+    public Owner findById(int id, FetchProfile profile) throws DataAccessException {
         Owner owner;
         try {
             Map<String, Object> params = new HashMap<>();
             params.put("id", id);
             owner = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE id= :id",
+                "SELECT id, first_name, last_name, address, city, telephone, version FROM owners WHERE id= :id",
                 params,
-                BeanPropertyRowMapper.newInstance(Owner.class)
+                new JdbcOwnerRowMapper()
             );
         } catch (EmptyResultDataAccessException ex) {
             throw new ObjectRetrievalFailureException(Owner.class, id);
         }
-        loadPetsAndVisits(owner);
+        if (profile == FetchProfile.FULL) {
+            loadPetsAndVisits(owner);
+        }
         return owner;
     }
 
-    public void loadPetsAndVisits(final Owner owner) {
+    /**
+     * Loads a page of {@link Owner Owners} through a seek on <code>(last_name, id)</code> rather than an offset, so
+     * that deep pages cost as much as the first one; with the {@link FetchProfile#FULL FULL} profile, also loads
+     * their {@link Pet Pets} and {@link Visit Visits}.
+     */
+    @Override
+    public List<Owner> findPage(String lastName, String afterLastName, Integer afterId, int limit,
+                                FetchProfile profile) throws DataAccessException {
         Map<String, Object> params = new HashMap<>();
-        params.put("id", owner.getId());
-        final List<JdbcPet> pets = this.namedParameterJdbcTemplate.query(
-            "SELECT pets.id as pets_id, name, birth_date, type_id, owner_id, visits.id as visit_id, visit_date, description, visits.pet_id as visits_pet_id FROM pets LEFT OUTER JOIN visits ON pets.id = visits.pet_id WHERE owner_id=:id ORDER BY pets.id",
+        List<String> conditions = new ArrayList<>();
+        if (lastName != null) {
+            conditions.add("last_name like :lastName");
+            params.put("lastName", lastName + "%");
+        }
+        if (afterId != null) {
+            conditions.add("last_name >= :afterLastName AND (last_name > :afterLastName OR id > :afterId)");
+            params.put("afterLastName", afterLastName);
+            params.put("afterId", afterId);
+        }
+        params.put("limit", limit);
+        List<Owner> owners = this.namedParameterJdbcTemplate.query(
+            "SELECT id, first_name, last_name, address, city, telephone, version FROM owners" +
+                (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                " ORDER BY last_name, id LIMIT :limit",
             params,
-            new JdbcPetVisitExtractor()
+            new JdbcOwnerRowMapper()
         );
-        Collection<PetType> petTypes = getPetTypes();
-        for (JdbcPet pet : pets) {
-            pet.setType(EntityUtils.getById(petTypes, PetType.class, pet.getTypeId()));
-            owner.addPet(pet);
+        if (profile == FetchProfile.FULL) {
+            Map<String, Object> petsParams = new HashMap<>();
+            petsParams.put("ownerIds", owners.stream().map(Owner::getId).toList());
+            loadOwnersPetsAndVisits(owners, " WHERE pets.owner_id IN (:ownerIds)", petsParams);
         }
+        return owners;
+    }
+
+    public void loadPetsAndVisits(final Owner owner) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", owner.getId());
+        loadOwnersPetsAndVisits(List.of(owner), " WHERE pets.owner_id=:id", params);
     }
 
     @Override
@@ -131,64 +182,137 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
         if (owner.isNew()) {
             Number newKey = this.insertOwner.executeAndReturnKey(parameterSource);
             owner.setId(newKey.intValue());
-        } else {
-            this.namedParameterJdbcTemplate.update(
-                "UPDATE owners SET first_name=:firstName, last_name=:lastName, address=:address, " +
-                    "city=:city, telephone=:telephone WHERE id=:id",
-                parameterSource);
+        } else if (!update(owner)) {
+            throw new ObjectOptimisticLockingFailureException(Owner.class, owner.getId());
         }
     }
 
+    @Override
+    public boolean update(Owner owner) throws DataAccessException {
+        return JdbcVersioning.update(this.namedParameterJdbcTemplate,
+            "UPDATE owners SET first_name=:firstName, last_name=:lastName, address=:address, " +
+                "city=:city, telephone=:telephone, version=version+1 WHERE id=:id AND version=:version",
+            new BeanPropertySqlParameterSource(owner), owner);
+    }
+
     public Collection<PetType> getPetTypes() throws DataAccessException {
         return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM types ORDER BY name", new HashMap<String, Object>(),
-            BeanPropertyRowMapper.newInstance(PetType.class));
+            "SELECT id, name, version FROM types ORDER BY name", new HashMap<String, Object>(),
+            new JdbcPetTypeRowMapper());
     }
 
     /**
      * Loads the {@link Pet} and {@link Visit} data for the supplied {@link List} of {@link Owner Owners}.
+     * <p>
+     * Pets and visits of all the owners are fetched by one outer join query and the pet types by another one,
+     * whatever the number of owners. They are then attached to their owner through an {@link EntityIndex}.
      *
-     * @param owners the list of owners for whom the pet and visit data should be loaded
+     * @param owners      the list of owners for whom the pet and visit data should be loaded
+     * @param petsFilter  the WHERE clause selecting the pets of these owners, or an empty string for all pets
+     * @param params      the parameters referenced by <code>petsFilter</code>
      * @see #loadPetsAndVisits(Owner)
      */
-    private void loadOwnersPetsAndVisits(List<Owner> owners) {
-        for (Owner owner : owners) {
-            loadPetsAndVisits(owner);
+    private void loadOwnersPetsAndVisits(List<Owner> owners, String petsFilter, Map<String, Object> params) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        final List<JdbcPet> pets = this.namedParameterJdbcTemplate.query(
+            "SELECT pets.id as pets_id, pets.version as pets_version, name, birth_date, type_id, owner_id, visits.id as visit_id, visits.version as visit_version, visit_date, description, visits.pet_id as visits_pet_id FROM pets LEFT OUTER JOIN visits ON pets.id = visits.pet_id" + petsFilter + " ORDER BY pets.id",
+            params,
+            new JdbcPetVisitExtractor()
+        );
+        if (pets.isEmpty()) {
+            return;
+        }
+        EntityIndex<Owner> ownersById = EntityIndex.of(Owner.class, owners);
+        EntityIndex<PetType> petTypesById = EntityIndex.of(PetType.class, getPetTypes());
+        for (JdbcPet pet : pets) {
+            Owner owner = ownersById.get(pet.getOwnerId());
+            if (owner != null) {
+                PetType petType = petTypesById.getById(pet.getTypeId());
+                pet.setType(petType);
+                owner.addPet(pet);
+            }
         }
     }
 
 	@Override
 	public Collection<Owner> findAll() throws DataAccessException {
 		List<Owner> owners = this.namedParameterJdbcTemplate.query(
-	            "SELECT id, first_name, last_name, address, city, telephone FROM owners",
+	            "SELECT id, first_name, last_name, address, city, telephone, version FROM owners",
 	            new HashMap<String, Object>(),
-	            BeanPropertyRowMapper.newInstance(Owner.class));
-		for (Owner owner : owners) {
-            loadPetsAndVisits(owner);
-        }
+	            new JdbcOwnerRowMapper());
+		loadOwnersPetsAndVisits(owners, "", new HashMap<String, Object>());
 	    return owners;
 	}
 
+	/**
+	 * The JDBC owners are plain objects already read column by column, so the views are mapped from them. With the
+	 * {@link FetchProfile#SUMMARY SUMMARY} profile only the <code>owners</code> table is read.
+	 */
+	@Override
+	public List<OwnerView> findAllViews(FetchProfile profile) throws DataAccessException {
+		return toViews(profile == FetchProfile.FULL ? findAll() : findSummaries("", new HashMap<>()));
+	}
+
+	@Override
+	public List<OwnerView> findViewsByLastName(String lastName, FetchProfile profile) throws DataAccessException {
+		if (profile == FetchProfile.FULL) {
+			return toViews(findByLastName(lastName));
+		}
+		Map<String, Object> params = new HashMap<>();
+		params.put("lastName", lastName + "%");
+		return toViews(findSummaries(" WHERE last_name like :lastName", params));
+	}
+
+	@Override
+	public OwnerView findViewById(int id, FetchProfile profile) throws DataAccessException {
+		return OwnerView.of(findById(id, profile));
+	}
+
+	private List<Owner> findSummaries(String where, Map<String, Object> params) {
+		return this.namedParameterJdbcTemplate.query(
+			"SELECT id, first_name, last_name, address, city, telephone, version FROM owners" + where,
+			params,
+			new JdbcOwnerRowMapper());
+	}
+
+	private static List<OwnerView> toViews(Collection<Owner> owners) {
+		return owners.stream().map(OwnerView::of).sorted(Comparator.comparing(OwnerView::id)).toList();
+	}
+
+	/**
+	 * Streams the {@link Owner Owners} from a cursor over the <code>owners</code> table. The {@link Pet Pets} and
+	 * {@link Visit Visits} are loaded by one query per chunk of owners, a chunk being as large as the fetch size,
+	 * so that only one chunk of owners is held in memory at a time.
+	 */
+	@Override
+	public Stream<Owner> streamAll() throws DataAccessException {
+		Stream<Owner> owners = this.streamingJdbcTemplate.queryForStream(
+			"SELECT id, first_name, last_name, address, city, telephone, version FROM owners ORDER BY id",
+			new HashMap<String, Object>(),
+			new JdbcOwnerRowMapper());
+		return JdbcStreamSupport.chunked(owners, this.streamFetchSize).flatMap(chunk -> {
+			Map<String, Object> params = new HashMap<>();
+			params.put("ownerIds", chunk.stream().map(Owner::getId).toList());
+			loadOwnersPetsAndVisits(chunk, " WHERE pets.owner_id IN (:ownerIds)", params);
+			return chunk.stream();
+		});
+	}
+
+	/**
+	 * Deletes the {@link Owner} along with its {@link Pet Pets} and their {@link Visit Visits}, issuing one
+	 * statement per table whatever the number of pets and visits.
+	 */
 	@Override
 	@Transactional
 	public void delete(Owner owner) throws DataAccessException {
 		Map<String, Object> ownerParams = new HashMap<>();
 		ownerParams.put("id", owner.getId());
-        List<Pet> pets = owner.getPets();
-        // cascade delete pets
-        for (Pet pet : pets){
-        	Map<String, Object> petParams = new HashMap<>();
-        	petParams.put("id", pet.getId());
-        	// cascade delete visits
-        	List<Visit> visits = pet.getVisits();
-            for (Visit visit : visits){
-            	Map<String, Object> visitParams = new HashMap<>();
-            	visitParams.put("id", visit.getId());
-            	this.namedParameterJdbcTemplate.update("DELETE FROM visits WHERE id=:id", visitParams);
-            }
-            this.namedParameterJdbcTemplate.update("DELETE FROM pets WHERE id=:id", petParams);
-        }
-        this.namedParameterJdbcTemplate.update("DELETE FROM owners WHERE id=:id", ownerParams);
+		this.namedParameterJdbcTemplate.update(
+			"DELETE FROM visits WHERE pet_id IN (SELECT id FROM pets WHERE owner_id=:id)", ownerParams);
+		this.namedParameterJdbcTemplate.update("DELETE FROM pets WHERE owner_id=:id", ownerParams);
+		this.namedParameterJdbcTemplate.update("DELETE FROM owners WHERE id=:id", ownerParams);
 	}
 
 
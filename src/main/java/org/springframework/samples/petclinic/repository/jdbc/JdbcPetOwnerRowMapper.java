@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.PetType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link RowMapper} implementation mapping a <code>pets JOIN types JOIN owners</code> row to a {@link JdbcPet}
+ * holding its {@link PetType} and a shallow {@link Owner}, i.e. an owner whose pets are not loaded.
+ */
+class JdbcPetOwnerRowMapper extends JdbcPetRowMapper {
+
+    @Override
+    public JdbcPet mapRow(ResultSet rs, int rownum) throws SQLException {
+        JdbcPet pet = super.mapRow(rs, rownum);
+        PetType petType = new PetType();
+        petType.setId(pet.getTypeId());
+        petType.setName(rs.getString("type_name"));
+        petType.setVersion(rs.getInt("type_version"));
+        pet.setType(petType);
+        Owner owner = new Owner();
+        owner.setId(pet.getOwnerId());
+        owner.setFirstName(rs.getString("first_name"));
+        owner.setLastName(rs.getString("last_name"));
+        owner.setAddress(rs.getString("address"));
+        owner.setCity(rs.getString("city"));
+        owner.setTelephone(rs.getString("telephone"));
+        owner.setVersion(rs.getInt("owner_version"));
+        pet.setOwner(owner);
+        return pet;
+    }
+}
@@ -17,28 +17,30 @@ package org.springframework.samples.petclinic.repository.jdbc;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Visit;
-import org.springframework.samples.petclinic.repository.OwnerRepository;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.repository.PetRepository;
-import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.util.EntityIndex;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -55,44 +57,79 @@ import org.springframework.stereotype.Repository;
 @Profile("jdbc")
 public class JdbcPetRepositoryImpl implements PetRepository {
 
+    private static final String SELECT_PETS_WITH_TYPE_AND_OWNER_SQL =
+        "SELECT pets.id as pets_id, pets.version as pets_version, pets.name as name, birth_date, type_id, owner_id, " +
+            "types.name as type_name, types.version as type_version, owners.first_name, owners.last_name, " +
+            "owners.address, owners.city, owners.telephone, owners.version as owner_version " +
+            "FROM pets JOIN types ON pets.type_id = types.id JOIN owners ON pets.owner_id = owners.id";
+
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
+    private NamedParameterJdbcTemplate streamingJdbcTemplate;
+
     private SimpleJdbcInsert insertPet;
 
-    private OwnerRepository ownerRepository;
+    private final int streamFetchSize;
 
     public JdbcPetRepositoryImpl(DataSource dataSource,
-    		OwnerRepository ownerRepository) {
+                                 @Value("${petclinic.repository.stream-fetch-size:500}") int streamFetchSize) {
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.streamingJdbcTemplate = JdbcStreamSupport.streamingTemplate(dataSource, streamFetchSize);
+        this.streamFetchSize = streamFetchSize;
 
         this.insertPet = new SimpleJdbcInsert(dataSource)
             .withTableName("pets")
             .usingGeneratedKeyColumns("id");
-
-        this.ownerRepository = ownerRepository;
     }
 
     @Override
     public List<PetType> findPetTypes() throws DataAccessException {
         Map<String, Object> params = new HashMap<>();
         return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM types ORDER BY name",
+            "SELECT id, name, version FROM types ORDER BY name",
             params,
-            BeanPropertyRowMapper.newInstance(PetType.class));
+            new JdbcPetTypeRowMapper());
     }
 
+    /**
+     * Loads the {@link Pet} with the supplied <code>id</code>, its {@link PetType}, its {@link Visit Visits} and a
+     * shallow {@link Owner} (without the owner's other pets) through a single join query.
+     */
     @Override
     public Pet findById(int id) throws DataAccessException {
-        Integer ownerId;
-        try {
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", id);
-            ownerId = this.namedParameterJdbcTemplate.queryForObject("SELECT owner_id FROM pets WHERE id=:id", params, Integer.class);
-        } catch (EmptyResultDataAccessException ex) {
+        return findById(id, FetchProfile.FULL);
+    }
+
+    /**
+     * Loads the {@link Pet} with the given id with its type and owner, and only with the
+     * {@link FetchProfile#FULL FULL} profile its visits.
+     */
+    @Override
+    public Pet findById(int id, FetchProfile profile) throws DataAccessException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        List<JdbcPet> pets;
+        if (profile == FetchProfile.SUMMARY) {
+            pets = this.namedParameterJdbcTemplate.query(
+                SELECT_PETS_WITH_TYPE_AND_OWNER_SQL + " WHERE pets.id=:id",
+                params,
+                new JdbcPetOwnerRowMapper());
+        } else {
+            pets = this.namedParameterJdbcTemplate.query(
+                "SELECT pets.id as pets_id, pets.version as pets_version, pets.name as name, birth_date, type_id, " +
+                    "owner_id, types.name as type_name, types.version as type_version, owners.first_name, " +
+                    "owners.last_name, owners.address, owners.city, owners.telephone, " +
+                    "owners.version as owner_version, visits.id as visit_id, visits.version as visit_version, " +
+                    "visit_date, description, visits.pet_id as visits_pet_id " +
+                    "FROM pets JOIN types ON pets.type_id = types.id JOIN owners ON pets.owner_id = owners.id " +
+                    "LEFT OUTER JOIN visits ON pets.id = visits.pet_id WHERE pets.id=:id",
+                params,
+                new JdbcPetVisitExtractor(new JdbcPetOwnerRowMapper()));
+        }
+        if (pets.isEmpty()) {
             throw new ObjectRetrievalFailureException(Pet.class, id);
         }
-        Owner owner = this.ownerRepository.findById(ownerId);
-        return EntityUtils.getById(owner.getPets(), Pet.class, id);
+        return pets.get(0);
     }
 
     @Override
@@ -102,11 +139,31 @@ public class JdbcPetRepositoryImpl implements PetRepository {
                 createPetParameterSource(pet));
             pet.setId(newKey.intValue());
         } else {
-            this.namedParameterJdbcTemplate.update(
+            JdbcVersioning.updateOrFail(this.namedParameterJdbcTemplate,
                 "UPDATE pets SET name=:name, birth_date=:birth_date, type_id=:type_id, " +
-                    "owner_id=:owner_id WHERE id=:id",
-                createPetParameterSource(pet));
+                    "owner_id=:owner_id, version=version+1 WHERE id=:id AND version=:version",
+                createPetParameterSource(pet), pet);
+        }
+    }
+
+    /**
+     * Updates the name, birth date and type of the pet, checking that it belongs to its owner only if it holds one.
+     */
+    @Override
+    public boolean update(Pet pet) throws DataAccessException {
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource()
+            .addValue("id", pet.getId())
+            .addValue("version", pet.getVersion())
+            .addValue("name", pet.getName())
+            .addValue("birth_date", pet.getBirthDate())
+            .addValue("type_id", pet.getType().getId());
+        String sql = "UPDATE pets SET name=:name, birth_date=:birth_date, type_id=:type_id, version=version+1 " +
+            "WHERE id=:id AND version=:version";
+        if (pet.getOwner() != null) {
+            sql += " AND owner_id=:owner_id";
+            parameterSource.addValue("owner_id", pet.getOwner().getId());
         }
+        return JdbcVersioning.update(this.namedParameterJdbcTemplate, sql, parameterSource, pet);
     }
 
     /**
@@ -115,6 +172,7 @@ public class JdbcPetRepositoryImpl implements PetRepository {
     private MapSqlParameterSource createPetParameterSource(Pet pet) {
         return new MapSqlParameterSource()
             .addValue("id", pet.getId())
+            .addValue("version", pet.getVersion())
             .addValue("name", pet.getName())
             .addValue("birth_date", pet.getBirthDate())
             .addValue("type_id", pet.getType().getId())
@@ -127,36 +185,101 @@ public class JdbcPetRepositoryImpl implements PetRepository {
 		Collection<Pet> pets = new ArrayList<>();
 		Collection<JdbcPet> jdbcPets;
 		jdbcPets = this.namedParameterJdbcTemplate
-				.query("SELECT pets.id as pets_id, name, birth_date, type_id, owner_id FROM pets",
+				.query("SELECT pets.id as pets_id, pets.version as pets_version, name, birth_date, type_id, owner_id FROM pets",
 				params,
 				new JdbcPetRowMapper());
-		Collection<PetType> petTypes = this.namedParameterJdbcTemplate.query("SELECT id, name FROM types ORDER BY name",
-				new HashMap<String,
-				Object>(), BeanPropertyRowMapper.newInstance(PetType.class));
-		Collection<Owner> owners = this.namedParameterJdbcTemplate.query(
-				"SELECT id, first_name, last_name, address, city, telephone FROM owners ORDER BY last_name",
+		EntityIndex<PetType> petTypes = EntityIndex.of(PetType.class, this.namedParameterJdbcTemplate.query(
+				"SELECT id, name, version FROM types ORDER BY name",
+				new HashMap<String, Object>(),
+				new JdbcPetTypeRowMapper()));
+		EntityIndex<Owner> owners = EntityIndex.of(Owner.class, this.namedParameterJdbcTemplate.query(
+				"SELECT id, first_name, last_name, address, city, telephone, version FROM owners ORDER BY last_name",
 				new HashMap<String, Object>(),
-				BeanPropertyRowMapper.newInstance(Owner.class));
+				new JdbcOwnerRowMapper()));
 		for (JdbcPet jdbcPet : jdbcPets) {
-			jdbcPet.setType(EntityUtils.getById(petTypes, PetType.class, jdbcPet.getTypeId()));
-			jdbcPet.setOwner(EntityUtils.getById(owners, Owner.class, jdbcPet.getOwnerId()));
+			jdbcPet.setType(petTypes.getById(jdbcPet.getTypeId()));
+			jdbcPet.setOwner(owners.getById(jdbcPet.getOwnerId()));
 			// TODO add visits
 			pets.add(jdbcPet);
 		}
 		return pets;
 	}
 
+	/**
+	 * The JDBC pets are plain objects already read column by column, so the views are mapped from them. Their
+	 * visits are not read by {@link #findAll()}, whatever the profile.
+	 */
+	@Override
+	public List<PetView> findAllViews(FetchProfile profile) throws DataAccessException {
+		return findAll().stream().map(PetView::of).sorted(Comparator.comparing(PetView::id)).toList();
+	}
+
+	@Override
+	public PetView findViewById(int id, FetchProfile profile) throws DataAccessException {
+		return PetView.of(findById(id, profile));
+	}
+
+	/**
+	 * Loads a page of {@link Pet Pets} along with their {@link PetType}, a shallow {@link Owner} and, with the
+	 * {@link FetchProfile#FULL FULL} profile, their {@link Visit Visits}, through a seek on <code>(name, id)</code>
+	 * rather than an offset.
+	 */
+	@Override
+	public List<Pet> findPage(String afterName, Integer afterId, int limit, FetchProfile profile)
+		throws DataAccessException {
+		Map<String, Object> params = new HashMap<>();
+		params.put("afterName", afterName);
+		params.put("afterId", afterId);
+		params.put("limit", limit);
+		List<JdbcPet> pets = this.namedParameterJdbcTemplate.query(
+			SELECT_PETS_WITH_TYPE_AND_OWNER_SQL +
+				(afterId == null ? "" : " WHERE pets.name >= :afterName AND (pets.name > :afterName OR pets.id > :afterId)") +
+				" ORDER BY pets.name, pets.id LIMIT :limit",
+			params,
+			new JdbcPetOwnerRowMapper());
+		if (profile == FetchProfile.FULL && !pets.isEmpty()) {
+			loadVisits(pets);
+		}
+		return new ArrayList<>(pets);
+	}
+
+	/**
+	 * Streams the {@link Pet Pets} along with their {@link PetType} and a shallow {@link Owner} from a cursor over
+	 * a join query. The {@link Visit Visits} are loaded by one query per chunk of pets, a chunk being as large as
+	 * the fetch size, so that only one chunk of pets is held in memory at a time.
+	 */
+	@Override
+	public Stream<Pet> streamAll() throws DataAccessException {
+		Stream<JdbcPet> pets = this.streamingJdbcTemplate.queryForStream(
+			SELECT_PETS_WITH_TYPE_AND_OWNER_SQL + " ORDER BY pets.id",
+			new HashMap<String, Object>(),
+			new JdbcPetOwnerRowMapper());
+		return JdbcStreamSupport.chunked(pets, this.streamFetchSize).flatMap(chunk -> {
+			loadVisits(chunk);
+			return chunk.stream();
+		});
+	}
+
+	private void loadVisits(List<JdbcPet> pets) {
+		EntityIndex<JdbcPet> petsById = EntityIndex.of(JdbcPet.class, pets);
+		Map<String, Object> params = new HashMap<>();
+		params.put("petIds", pets.stream().map(JdbcPet::getId).toList());
+		JdbcVisitRowMapper visitRowMapper = new JdbcVisitRowMapper();
+		this.namedParameterJdbcTemplate.query(
+			"SELECT id as visit_id, version as visit_version, visit_date, description, pet_id FROM visits " +
+				"WHERE pet_id IN (:petIds) ORDER BY id",
+			params,
+			rs -> {
+				petsById.getById(rs.getInt("pet_id")).addVisit(visitRowMapper.mapRow(rs, rs.getRow()));
+			});
+	}
+
 	@Override
 	public void delete(Pet pet) throws DataAccessException {
 		Map<String, Object> petParams = new HashMap<>();
 		petParams.put("id", pet.getId());
-		List<Visit> visits = pet.getVisits();
 		// cascade delete visits
-		for (Visit visit : visits) {
-			Map<String, Object> visitParams = new HashMap<>();
-			visitParams.put("id", visit.getId());
-			this.namedParameterJdbcTemplate.update("DELETE FROM visits WHERE id=:id", visitParams);
-		}
+		this.namedParameterJdbcTemplate.update("DELETE FROM visits WHERE pet_id=:id", petParams);
 		this.namedParameterJdbcTemplate.update("DELETE FROM pets WHERE id=:id", petParams);
 	}
 
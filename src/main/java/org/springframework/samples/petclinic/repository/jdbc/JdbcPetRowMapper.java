@@ -32,6 +32,7 @@ public class JdbcPetRowMapper implements RowMapper<JdbcPet> {
         JdbcPet pet = new JdbcPet();
         pet.setId(rs.getInt("pets_id"));
         pet.setName(rs.getString("name"));
+        pet.setVersion(rs.getInt("pets_version"));
         pet.setBirthDate(rs.getObject("birth_date", LocalDate.class));
         pet.setTypeId(rs.getInt("type_id"));
         pet.setOwnerId(rs.getInt("owner_id"));
@@ -18,7 +18,6 @@ package org.springframework.samples.petclinic.repository.jdbc;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -27,10 +26,10 @@ import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitializat
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
@@ -66,9 +65,9 @@ public class JdbcPetTypeRepositoryImpl implements PetTypeRepository {
             Map<String, Object> params = new HashMap<>();
             params.put("id", id);
             petType = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, name FROM types WHERE id= :id",
+                "SELECT id, name, version FROM types WHERE id= :id",
                 params,
-                BeanPropertyRowMapper.newInstance(PetType.class));
+                new JdbcPetTypeRowMapper());
         } catch (EmptyResultDataAccessException ex) {
             throw new ObjectRetrievalFailureException(PetType.class, id);
         }
@@ -82,9 +81,9 @@ public class JdbcPetTypeRepositoryImpl implements PetTypeRepository {
             Map<String, Object> params = new HashMap<>();
             params.put("name", name);
             petType = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, name FROM types WHERE name= :name",
+                "SELECT id, name, version FROM types WHERE name= :name",
                 params,
-                BeanPropertyRowMapper.newInstance(PetType.class));
+                new JdbcPetTypeRowMapper());
         } catch (EmptyResultDataAccessException ex) {
             throw new ObjectRetrievalFailureException(PetType.class, name);
         }
@@ -95,9 +94,9 @@ public class JdbcPetTypeRepositoryImpl implements PetTypeRepository {
 	public Collection<PetType> findAll() throws DataAccessException {
 		Map<String, Object> params = new HashMap<>();
         return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM types",
+            "SELECT id, name, version FROM types",
             params,
-            BeanPropertyRowMapper.newInstance(PetType.class));
+            new JdbcPetTypeRowMapper());
 	}
 
 	@Override
@@ -106,39 +105,30 @@ public class JdbcPetTypeRepositoryImpl implements PetTypeRepository {
 		if (petType.isNew()) {
             Number newKey = this.insertPetType.executeAndReturnKey(parameterSource);
             petType.setId(newKey.intValue());
-        } else {
-            this.namedParameterJdbcTemplate.update("UPDATE types SET name=:name WHERE id=:id",
-                parameterSource);
+        } else if (!update(petType)) {
+            throw new ObjectOptimisticLockingFailureException(PetType.class, petType.getId());
         }
 	}
 
+	@Override
+	public boolean update(PetType petType) throws DataAccessException {
+		return JdbcVersioning.update(this.namedParameterJdbcTemplate,
+			"UPDATE types SET name=:name, version=version+1 WHERE id=:id AND version=:version",
+			new BeanPropertySqlParameterSource(petType), petType);
+	}
+
+	/**
+	 * Deletes the {@link PetType} along with the {@link Pet Pets} of that type and their {@link Visit Visits},
+	 * issuing one statement per table whatever the number of pets and visits.
+	 */
 	@Override
 	public void delete(PetType petType) throws DataAccessException {
 		Map<String, Object> pettypeParams = new HashMap<>();
 		pettypeParams.put("id", petType.getId());
-		List<Pet> pets;
-		pets = this.namedParameterJdbcTemplate.
-    			query("SELECT pets.id, name, birth_date, type_id, owner_id FROM pets WHERE type_id=:id",
-    			pettypeParams,
-    			BeanPropertyRowMapper.newInstance(Pet.class));
-		// cascade delete pets
-		for (Pet pet : pets){
-			Map<String, Object> petParams = new HashMap<>();
-			petParams.put("id", pet.getId());
-			List<Visit> visits;
-			visits = this.namedParameterJdbcTemplate.query(
-		            "SELECT id, pet_id, visit_date, description FROM visits WHERE pet_id = :id",
-		            petParams,
-		            BeanPropertyRowMapper.newInstance(Visit.class));
-	        // cascade delete visits
-	        for (Visit visit : visits){
-	        	Map<String, Object> visitParams = new HashMap<>();
-	        	visitParams.put("id", visit.getId());
-	        	this.namedParameterJdbcTemplate.update("DELETE FROM visits WHERE id=:id", visitParams);
-	        }
-	        this.namedParameterJdbcTemplate.update("DELETE FROM pets WHERE id=:id", petParams);
-        }
-        this.namedParameterJdbcTemplate.update("DELETE FROM types WHERE id=:id", pettypeParams);
+		this.namedParameterJdbcTemplate.update(
+			"DELETE FROM visits WHERE pet_id IN (SELECT id FROM pets WHERE type_id=:id)", pettypeParams);
+		this.namedParameterJdbcTemplate.update("DELETE FROM pets WHERE type_id=:id", pettypeParams);
+		this.namedParameterJdbcTemplate.update("DELETE FROM types WHERE id=:id", pettypeParams);
 	}
 
 }
@@ -24,10 +24,10 @@ import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitializat
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.repository.SpecialtyRepository;
@@ -61,9 +61,9 @@ public class JdbcSpecialtyRepositoryImpl implements SpecialtyRepository {
             Map<String, Object> params = new HashMap<>();
             params.put("id", id);
             specialty = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, name FROM specialties WHERE id= :id",
+                "SELECT id, name, version FROM specialties WHERE id= :id",
                 params,
-                BeanPropertyRowMapper.newInstance(Specialty.class));
+                new JdbcSpecialtyRowMapper());
         } catch (EmptyResultDataAccessException ex) {
             throw new ObjectRetrievalFailureException(Specialty.class, id);
         }
@@ -74,13 +74,13 @@ public class JdbcSpecialtyRepositoryImpl implements SpecialtyRepository {
     public List<Specialty> findSpecialtiesByNameIn(Set<String> names) {
         List<Specialty> specialties;
         try{
-            String sql = "SELECT id, name FROM specialties WHERE specialties.name IN (:names)";
+            String sql = "SELECT id, name, version FROM specialties WHERE specialties.name IN (:names)";
             Map<String, Object> params = new HashMap<>();
             params.put("names", names);
             specialties = this.namedParameterJdbcTemplate.query(
                 sql,
                 params,
-                new BeanPropertyRowMapper<>(Specialty.class));
+                new JdbcSpecialtyRowMapper());
         } catch (EmptyResultDataAccessException ex){
             throw new ObjectRetrievalFailureException(Specialty.class, names);
         }
@@ -92,9 +92,9 @@ public class JdbcSpecialtyRepositoryImpl implements SpecialtyRepository {
 	public Collection<Specialty> findAll() throws DataAccessException {
 		Map<String, Object> params = new HashMap<>();
         return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM specialties",
+            "SELECT id, name, version FROM specialties",
             params,
-            BeanPropertyRowMapper.newInstance(Specialty.class));
+            new JdbcSpecialtyRowMapper());
 	}
 
 	@Override
@@ -103,13 +103,19 @@ public class JdbcSpecialtyRepositoryImpl implements SpecialtyRepository {
 		if (specialty.isNew()) {
             Number newKey = this.insertSpecialty.executeAndReturnKey(parameterSource);
             specialty.setId(newKey.intValue());
-        } else {
-            this.namedParameterJdbcTemplate.update("UPDATE specialties SET name=:name WHERE id=:id",
-                parameterSource);
+        } else if (!update(specialty)) {
+            throw new ObjectOptimisticLockingFailureException(Specialty.class, specialty.getId());
         }
 
 	}
 
+	@Override
+	public boolean update(Specialty specialty) throws DataAccessException {
+		return JdbcVersioning.update(this.namedParameterJdbcTemplate,
+			"UPDATE specialties SET name=:name, version=version+1 WHERE id=:id AND version=:version",
+			new BeanPropertySqlParameterSource(specialty), specialty);
+	}
+
 	@Override
 	public void delete(Specialty specialty) throws DataAccessException {
 		Map<String, Object> params = new HashMap<>();
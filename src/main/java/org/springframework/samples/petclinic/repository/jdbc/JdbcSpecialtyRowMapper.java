@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.samples.petclinic.model.Specialty;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link RowMapper} implementation mapping data from a {@link ResultSet} to the corresponding properties
+ * of the {@link Specialty} class.
+ * <p>
+ * Columns are read by index, so the query must select <code>id, name, version</code> in that order.
+ */
+class JdbcSpecialtyRowMapper implements RowMapper<Specialty> {
+
+    @Override
+    public Specialty mapRow(ResultSet rs, int rownum) throws SQLException {
+        Specialty specialty = new Specialty();
+        specialty.setId(rs.getInt(1));
+        specialty.setName(rs.getString(2));
+        specialty.setVersion(rs.getInt(3));
+        return specialty;
+    }
+}
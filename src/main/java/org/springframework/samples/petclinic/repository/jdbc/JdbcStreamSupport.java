@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Helpers for the <code>streamAll()</code> implementations of the JDBC repositories, which read their root
+ * entities from a database cursor and load the associations of these entities one chunk at a time.
+ */
+final class JdbcStreamSupport {
+
+    private JdbcStreamSupport() {
+    }
+
+    /**
+     * Create a template whose statements fetch <code>fetchSize</code> rows per round trip, so that drivers
+     * buffering whole result sets by default (such as PostgreSQL within a transaction) use a cursor instead.
+     * MySQL Connector/J only does so with <code>useCursorFetch</code>, see <code>application-mysql.properties</code>.
+     */
+    static NamedParameterJdbcTemplate streamingTemplate(DataSource dataSource, int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Group the elements of the given stream into consecutive lists of at most <code>chunkSize</code> elements.
+     * Elements are pulled from the source only as chunks are consumed, and closing the returned stream closes
+     * the source.
+     */
+    static <T> Stream<List<T>> chunked(Stream<T> source, int chunkSize) {
+        Iterator<T> iterator = source.iterator();
+        Spliterator<List<T>> chunks = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+
+            @Override
+            public boolean tryAdvance(Consumer<? super List<T>> action) {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                List<T> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                }
+                action.accept(chunk);
+                return true;
+            }
+        };
+        return StreamSupport.stream(chunks, false).onClose(source::close);
+    }
+
+}
@@ -1,18 +1,21 @@
 package org.springframework.samples.petclinic.repository.jdbc;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.samples.petclinic.model.Role;
 import org.springframework.samples.petclinic.model.User;
 import org.springframework.samples.petclinic.repository.UserRepository;
@@ -24,45 +27,52 @@ import org.springframework.stereotype.Repository;
 public class JdbcUserRepositoryImpl implements UserRepository {
 
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
-    private SimpleJdbcInsert insertUser;
+    private String upsertUser;
 
     public JdbcUserRepositoryImpl(DataSource dataSource) {
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
-        this.insertUser = new SimpleJdbcInsert(dataSource).withTableName("users");
+        this.upsertUser = JdbcDialect.of(dataSource)
+            .upsert("users", List.of("username"), List.of("username", "password", "enabled"));
     }
 
+    /**
+     * Inserts or updates the {@link User} through a single upsert statement of the database dialect, then
+     * synchronizes its roles.
+     */
     @Override
     public void save(User user) throws DataAccessException {
-
-        BeanPropertySqlParameterSource parameterSource = new BeanPropertySqlParameterSource(user);
-
-        try {
-            getByUsername(user.getUsername());
-            this.namedParameterJdbcTemplate.update("UPDATE users SET password=:password, enabled=:enabled WHERE username=:username", parameterSource);
-        } catch (EmptyResultDataAccessException e) {
-            this.insertUser.execute(parameterSource);
-        } finally {
-            updateUserRoles(user);
-        }
-    }
-
-    private User getByUsername(String username) {
-
-        Map<String, Object> params = new HashMap<>();
-        params.put("username", username);
-        return this.namedParameterJdbcTemplate.queryForObject("SELECT * FROM users WHERE username=:username",
-            params, BeanPropertyRowMapper.newInstance(User.class));
+        this.namedParameterJdbcTemplate.update(this.upsertUser, new BeanPropertySqlParameterSource(user));
+        updateUserRoles(user);
     }
 
+    /**
+     * Synchronizes the roles rows of the given {@link User} with its roles: only the roles which were added or
+     * removed since the last save are written, removals by one statement and additions by one batch.
+     */
     private void updateUserRoles(User user) {
         Map<String, Object> params = new HashMap<>();
         params.put("username", user.getUsername());
-        this.namedParameterJdbcTemplate.update("DELETE FROM roles WHERE username=:username", params);
+        Set<String> storedRoles = new HashSet<>(this.namedParameterJdbcTemplate.queryForList(
+            "SELECT role FROM roles WHERE username=:username", params, String.class));
+        Set<String> roles = new LinkedHashSet<>();
         for (Role role : user.getRoles()) {
-            params.put("role", role.getName());
             if (role.getName() != null) {
-                this.namedParameterJdbcTemplate.update("INSERT INTO roles(username, role) VALUES (:username, :role)", params);
+                roles.add(role.getName());
             }
         }
+        Set<String> removedRoles = new HashSet<>(storedRoles);
+        removedRoles.removeAll(roles);
+        if (!removedRoles.isEmpty()) {
+            params.put("roles", removedRoles);
+            this.namedParameterJdbcTemplate.update("DELETE FROM roles WHERE username=:username AND role IN (:roles)", params);
+        }
+        roles.removeAll(storedRoles);
+        if (!roles.isEmpty()) {
+            SqlParameterSource[] batch = roles.stream()
+                .map(role -> new MapSqlParameterSource().addValue("username", user.getUsername()).addValue("role", role))
+                .toArray(SqlParameterSource[]::new);
+            this.namedParameterJdbcTemplate.batchUpdate("INSERT INTO roles(username, role) VALUES (:username, :role)", batch);
+        }
     }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.samples.petclinic.model.VersionedEntity;
+
+/**
+ * Mirrors in the JDBC repositories the optimistic locking JPA applies to the <code>@Version</code> of the
+ * {@link VersionedEntity versioned entities}.
+ */
+final class JdbcVersioning {
+
+    private JdbcVersioning() {
+    }
+
+    /**
+     * Execute an <code>UPDATE</code> which increments the <code>version</code> column of the row of the given
+     * entity, on the condition that it is still equal to <code>:version</code>, then increment the version of
+     * the entity itself.
+     *
+     * @return whether the row was updated, <code>false</code> if it was updated or deleted since the entity was read
+     */
+    static boolean update(NamedParameterJdbcTemplate jdbcTemplate, String sql, SqlParameterSource parameterSource,
+                          VersionedEntity entity) {
+        if (jdbcTemplate.update(sql, parameterSource) == 0) {
+            return false;
+        }
+        entity.setVersion(entity.getVersion() + 1);
+        return true;
+    }
+
+    /**
+     * Like {@link #update}, failing if the row was not updated.
+     *
+     * @throws ObjectOptimisticLockingFailureException if the row was updated or deleted since the entity was read
+     */
+    static void updateOrFail(NamedParameterJdbcTemplate jdbcTemplate, String sql, SqlParameterSource parameterSource,
+                             VersionedEntity entity) {
+        if (!update(jdbcTemplate, sql, parameterSource, entity)) {
+            throw new ObjectOptimisticLockingFailureException(entity.getClass(), entity.getId());
+        }
+    }
+
+}
@@ -15,30 +15,31 @@
  */
 package org.springframework.samples.petclinic.repository.jdbc;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.repository.VetRepository;
-import org.springframework.samples.petclinic.util.EntityUtils;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -58,6 +59,13 @@ import org.springframework.stereotype.Repository;
 @Profile("jdbc")
 public class JdbcVetRepositoryImpl implements VetRepository {
 
+    private static final String VETS_WITH_SPECIALTIES_SQL =
+        "SELECT vets.id as vet_id, vets.version as vet_version, first_name, last_name, " +
+            "specialties.id as specialty_id, specialties.name as specialty_name, " +
+            "specialties.version as specialty_version " +
+            "FROM vets LEFT JOIN vet_specialties ON vets.id = vet_specialties.vet_id " +
+            "LEFT JOIN specialties ON vet_specialties.specialty_id = specialties.id";
+
     private JdbcTemplate jdbcTemplate;
 	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 	private SimpleJdbcInsert insertVet;
@@ -70,71 +78,52 @@ public class JdbcVetRepositoryImpl implements VetRepository {
 
     /**
      * Refresh the cache of Vets that the ClinicService is holding.
+     * <p>
+     * Vets and their specialties are read by a single join query, whatever the number of vets.
      */
     @Override
     public Collection<Vet> findAll() throws DataAccessException {
-        List<Vet> vets = new ArrayList<>();
-        // Retrieve the list of all vets.
-        vets.addAll(this.jdbcTemplate.query(
-            "SELECT id, first_name, last_name FROM vets ORDER BY last_name,first_name",
-            BeanPropertyRowMapper.newInstance(Vet.class)));
-
-        // Retrieve the list of all possible specialties.
-        final List<Specialty> specialties = this.jdbcTemplate.query(
-            "SELECT id, name FROM specialties",
-            BeanPropertyRowMapper.newInstance(Specialty.class));
-
-        // Build each vet's list of specialties.
-        for (Vet vet : vets) {
-            final List<Integer> vetSpecialtiesIds = this.jdbcTemplate.query(
-                "SELECT specialty_id FROM vet_specialties WHERE vet_id=?",
-                new BeanPropertyRowMapper<Integer>() {
-                    @Override
-                    public Integer mapRow(ResultSet rs, int row) throws SQLException {
-                        return rs.getInt(1);
-                    }
-                },
-                vet.getId());
-            for (int specialtyId : vetSpecialtiesIds) {
-                Specialty specialty = EntityUtils.getById(specialties, Specialty.class, specialtyId);
-                vet.addSpecialty(specialty);
-            }
-        }
-        return vets;
+        return this.jdbcTemplate.query(
+            VETS_WITH_SPECIALTIES_SQL + " ORDER BY vets.last_name, vets.first_name, vets.id",
+            new JdbcVetSpecialtyExtractor());
     }
 
 	@Override
 	public Vet findById(int id) throws DataAccessException {
-		Vet vet;
-		try {
-			Map<String, Object> vetParams = new HashMap<>();
-			vetParams.put("id", id);
-			vet = this.namedParameterJdbcTemplate.queryForObject(
-					"SELECT id, first_name, last_name FROM vets WHERE id= :id",
-					vetParams,
-					BeanPropertyRowMapper.newInstance(Vet.class));
-
-			final List<Specialty> specialties = this.namedParameterJdbcTemplate.query(
-					"SELECT id, name FROM specialties", vetParams, BeanPropertyRowMapper.newInstance(Specialty.class));
+		return findById(id, FetchProfile.FULL);
+	}
 
-			final List<Integer> vetSpecialtiesIds = this.namedParameterJdbcTemplate.query(
-					"SELECT specialty_id FROM vet_specialties WHERE vet_id=:id",
+	/**
+	 * Loads the {@link Vet} with the given id, and only with the {@link FetchProfile#FULL FULL} profile its
+	 * specialties.
+	 */
+	@Override
+	public Vet findById(int id, FetchProfile profile) throws DataAccessException {
+		Map<String, Object> vetParams = new HashMap<>();
+		vetParams.put("id", id);
+		List<Vet> vets;
+		if (profile == FetchProfile.SUMMARY) {
+			vets = this.namedParameterJdbcTemplate.query(
+					"SELECT id, version, first_name, last_name FROM vets WHERE id= :id",
 					vetParams,
-					new BeanPropertyRowMapper<Integer>() {
-						@Override
-						public Integer mapRow(ResultSet rs, int row) throws SQLException {
-							return rs.getInt(1);
-						}
+					(rs, rowNum) -> {
+						Vet vet = new Vet();
+						vet.setId(rs.getInt("id"));
+						vet.setFirstName(rs.getString("first_name"));
+						vet.setLastName(rs.getString("last_name"));
+						vet.setVersion(rs.getInt("version"));
+						return vet;
 					});
-			for (int specialtyId : vetSpecialtiesIds) {
-				Specialty specialty = EntityUtils.getById(specialties, Specialty.class, specialtyId);
-				vet.addSpecialty(specialty);
-			}
-
-		} catch (EmptyResultDataAccessException ex) {
+		} else {
+			vets = this.namedParameterJdbcTemplate.query(
+					VETS_WITH_SPECIALTIES_SQL + " WHERE vets.id= :id",
+					vetParams,
+					new JdbcVetSpecialtyExtractor());
+		}
+		if (vets.isEmpty()) {
 			throw new ObjectRetrievalFailureException(Vet.class, id);
 		}
-		return vet;
+		return vets.get(0);
 	}
 
 	@Override
@@ -143,12 +132,26 @@ public class JdbcVetRepositoryImpl implements VetRepository {
 		if (vet.isNew()) {
 			Number newKey = this.insertVet.executeAndReturnKey(parameterSource);
 			vet.setId(newKey.intValue());
-			updateVetSpecialties(vet);
-		} else {
-			this.namedParameterJdbcTemplate
-					.update("UPDATE vets SET first_name=:firstName, last_name=:lastName WHERE id=:id", parameterSource);
-			updateVetSpecialties(vet);
+			updateVetSpecialties(vet, true);
+		} else if (!update(vet)) {
+			throw new ObjectOptimisticLockingFailureException(Vet.class, vet.getId());
+		}
+	}
+
+	/**
+	 * Updates the row of the vet by a single statement checking its version, then its specialty links only if
+	 * that statement updated it.
+	 */
+	@Override
+	public boolean update(Vet vet) throws DataAccessException {
+		if (!JdbcVersioning.update(this.namedParameterJdbcTemplate,
+				"UPDATE vets SET first_name=:firstName, last_name=:lastName, version=version+1 " +
+					"WHERE id=:id AND version=:version",
+				new BeanPropertySqlParameterSource(vet), vet)) {
+			return false;
 		}
+		updateVetSpecialties(vet, false);
+		return true;
 	}
 
 	@Override
@@ -159,16 +162,36 @@ public class JdbcVetRepositoryImpl implements VetRepository {
 		this.namedParameterJdbcTemplate.update("DELETE FROM vets WHERE id=:id", params);
 	}
 
-	private void updateVetSpecialties(Vet vet) throws DataAccessException {
+	/**
+	 * Synchronizes the vet_specialties rows of the given {@link Vet} with its specialties: only the links
+	 * which were added or removed since the last save are written, removals by one statement and additions
+	 * by one batch.
+	 */
+	private void updateVetSpecialties(Vet vet, boolean isNew) throws DataAccessException {
 		Map<String, Object> params = new HashMap<>();
 		params.put("id", vet.getId());
-		this.namedParameterJdbcTemplate.update("DELETE FROM vet_specialties WHERE vet_id=:id", params);
+		Set<Integer> storedIds = isNew ? new HashSet<>() : new HashSet<>(this.namedParameterJdbcTemplate.queryForList(
+				"SELECT specialty_id FROM vet_specialties WHERE vet_id=:id", params, Integer.class));
+		Set<Integer> specialtyIds = new LinkedHashSet<>();
 		for (Specialty spec : vet.getSpecialties()) {
-			params.put("spec_id", spec.getId());
-			if(spec.getId() != null) {
-				this.namedParameterJdbcTemplate.update("INSERT INTO vet_specialties VALUES (:id, :spec_id)", params);
+			if (spec.getId() != null) {
+				specialtyIds.add(spec.getId());
 			}
 		}
+		Set<Integer> removedIds = new HashSet<>(storedIds);
+		removedIds.removeAll(specialtyIds);
+		if (!removedIds.isEmpty()) {
+			params.put("spec_ids", removedIds);
+			this.namedParameterJdbcTemplate.update(
+					"DELETE FROM vet_specialties WHERE vet_id=:id AND specialty_id IN (:spec_ids)", params);
+		}
+		specialtyIds.removeAll(storedIds);
+		if (!specialtyIds.isEmpty()) {
+			SqlParameterSource[] batch = specialtyIds.stream()
+					.map(specId -> new MapSqlParameterSource().addValue("id", vet.getId()).addValue("spec_id", specId))
+					.toArray(SqlParameterSource[]::new);
+			this.namedParameterJdbcTemplate.batchUpdate("INSERT INTO vet_specialties VALUES (:id, :spec_id)", batch);
+		}
 	}
 
 }
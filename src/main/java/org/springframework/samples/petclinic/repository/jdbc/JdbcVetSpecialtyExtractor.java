@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.util.EntityIndex;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ResultSetExtractor} implementation assembling {@link Vet Vets} and their {@link Specialty Specialties}
+ * from a single <code>vets LEFT JOIN vet_specialties LEFT JOIN specialties</code> result set.
+ * <p>
+ * Rows are consumed as they are streamed; each vet and each specialty is created once, the specialty instances
+ * being shared between the vets having them. Vets are returned in the order of the result set.
+ */
+public class JdbcVetSpecialtyExtractor implements ResultSetExtractor<List<Vet>> {
+
+    @Override
+    public List<Vet> extractData(ResultSet rs) throws SQLException {
+        List<Vet> vets = new ArrayList<>();
+        EntityIndex<Vet> vetsById = new EntityIndex<>(Vet.class);
+        EntityIndex<Specialty> specialties = new EntityIndex<>(Specialty.class);
+        while (rs.next()) {
+            int vetId = rs.getInt("vet_id");
+            Vet vet = vetsById.get(vetId);
+            if (vet == null) {
+                vet = new Vet();
+                vet.setId(vetId);
+                vet.setFirstName(rs.getString("first_name"));
+                vet.setLastName(rs.getString("last_name"));
+                vet.setVersion(rs.getInt("vet_version"));
+                vetsById.put(vet);
+                vets.add(vet);
+            }
+            int specialtyId = rs.getInt("specialty_id");
+            if (!rs.wasNull()) {
+                Specialty specialty = specialties.get(specialtyId);
+                if (specialty == null) {
+                    specialty = new Specialty();
+                    specialty.setId(specialtyId);
+                    specialty.setName(rs.getString("specialty_name"));
+                    specialty.setVersion(rs.getInt("specialty_version"));
+                    specialties.put(specialty);
+                }
+                vet.addSpecialty(specialty);
+            }
+        }
+        return vets;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.util.EntityIndex;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link RowMapper} implementation mapping a flat <code>visits JOIN pets JOIN types JOIN owners</code> row
+ * to a {@link Visit} along with its {@link JdbcPet}, {@link PetType} and {@link Owner}.
+ * <p>
+ * Pets, pet types and owners already met in a previous row are reused, so that the visits of a result set
+ * share the same instances. As it is stateful, a new mapper must be used for each query. When the rows are
+ * streamed, only pet types may be reused so that the mapper does not retain every pet and owner read.
+ */
+class JdbcVisitPetOwnerRowMapper implements RowMapper<Visit> {
+
+    static final String SELECT_VISITS_SQL =
+        "SELECT visits.id as visit_id, visits.version as visit_version, visit_date, description, pets.id as pets_id, " +
+            "pets.version as pets_version, pets.name as name, birth_date, type_id, owner_id, types.name as type_name, " +
+            "types.version as type_version, owners.first_name, owners.last_name, owners.address, owners.city, " +
+            "owners.telephone, owners.version as owner_version " +
+            "FROM visits JOIN pets ON visits.pet_id = pets.id " +
+            "JOIN types ON pets.type_id = types.id " +
+            "JOIN owners ON pets.owner_id = owners.id";
+
+    private final JdbcVisitRowMapper visitRowMapper = new JdbcVisitRowMapper();
+
+    private final JdbcPetRowMapper petRowMapper = new JdbcPetRowMapper();
+
+    private final EntityIndex<JdbcPet> pets = new EntityIndex<>(JdbcPet.class);
+
+    private final EntityIndex<PetType> petTypes = new EntityIndex<>(PetType.class);
+
+    private final EntityIndex<Owner> owners = new EntityIndex<>(Owner.class);
+
+    private final boolean reusePetsAndOwners;
+
+    JdbcVisitPetOwnerRowMapper() {
+        this(true);
+    }
+
+    /**
+     * @param reusePetsAndOwners whether pets and owners already met are reused, pet types always being reused
+     */
+    JdbcVisitPetOwnerRowMapper(boolean reusePetsAndOwners) {
+        this.reusePetsAndOwners = reusePetsAndOwners;
+    }
+
+    @Override
+    public Visit mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Visit visit = this.visitRowMapper.mapRow(rs, rowNum);
+        JdbcPet pet = this.pets.get(rs.getInt("pets_id"));
+        if (pet == null) {
+            pet = this.petRowMapper.mapRow(rs, rowNum);
+            pet.setType(mapPetType(rs, pet.getTypeId()));
+            pet.setOwner(mapOwner(rs, pet.getOwnerId()));
+            if (this.reusePetsAndOwners) {
+                this.pets.put(pet);
+            }
+        }
+        visit.setPet(pet);
+        return visit;
+    }
+
+    private PetType mapPetType(ResultSet rs, int typeId) throws SQLException {
+        PetType petType = this.petTypes.get(typeId);
+        if (petType == null) {
+            petType = new PetType();
+            petType.setId(typeId);
+            petType.setName(rs.getString("type_name"));
+            petType.setVersion(rs.getInt("type_version"));
+            this.petTypes.put(petType);
+        }
+        return petType;
+    }
+
+    private Owner mapOwner(ResultSet rs, int ownerId) throws SQLException {
+        Owner owner = this.owners.get(ownerId);
+        if (owner == null) {
+            owner = new Owner();
+            owner.setId(ownerId);
+            owner.setFirstName(rs.getString("first_name"));
+            owner.setLastName(rs.getString("last_name"));
+            owner.setAddress(rs.getString("address"));
+            owner.setCity(rs.getString("city"));
+            owner.setTelephone(rs.getString("telephone"));
+            owner.setVersion(rs.getInt("owner_version"));
+            if (this.reusePetsAndOwners) {
+                this.owners.put(owner);
+            }
+        }
+        return owner;
+    }
+}
@@ -15,29 +15,27 @@
  */
 package org.springframework.samples.petclinic.repository.jdbc;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.orm.ObjectRetrievalFailureException;
-import org.springframework.samples.petclinic.model.Owner;
-import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 import org.springframework.stereotype.Repository;
 
@@ -60,9 +58,12 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
 
     protected SimpleJdbcInsert insertVisit;
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private NamedParameterJdbcTemplate streamingJdbcTemplate;
 
-    public JdbcVisitRepositoryImpl(DataSource dataSource) {
+    public JdbcVisitRepositoryImpl(DataSource dataSource,
+                                   @Value("${petclinic.repository.stream-fetch-size:500}") int streamFetchSize) {
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.streamingJdbcTemplate = JdbcStreamSupport.streamingTemplate(dataSource, streamFetchSize);
 
         this.insertVisit = new SimpleJdbcInsert(dataSource)
             .withTableName("visits")
@@ -76,6 +77,7 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
     protected MapSqlParameterSource createVisitParameterSource(Visit visit) {
         return new MapSqlParameterSource()
             .addValue("id", visit.getId())
+            .addValue("version", visit.getVersion())
             .addValue("visit_date", visit.getDate())
             .addValue("description", visit.getDescription())
             .addValue("pet_id", visit.getPet().getId());
@@ -86,12 +88,12 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
         Map<String, Object> params = new HashMap<>();
         params.put("id", petId);
         JdbcPet pet = this.namedParameterJdbcTemplate.queryForObject(
-            "SELECT id as pets_id, name, birth_date, type_id, owner_id FROM pets WHERE id=:id",
+            "SELECT id as pets_id, version as pets_version, name, birth_date, type_id, owner_id FROM pets WHERE id=:id",
             params,
             new JdbcPetRowMapper());
 
         List<Visit> visits = this.namedParameterJdbcTemplate.query(
-            "SELECT id as visit_id, visit_date, description FROM visits WHERE pet_id=:id",
+            "SELECT id as visit_id, version as visit_version, visit_date, description FROM visits WHERE pet_id=:id",
             params, new JdbcVisitRowMapper());
 
         for (Visit visit : visits) {
@@ -108,21 +110,67 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
             Map<String, Object> params = new HashMap<>();
             params.put("id", id);
             visit = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id as visit_id, visits.pet_id as pets_id, visit_date, description FROM visits WHERE id= :id",
+                JdbcVisitPetOwnerRowMapper.SELECT_VISITS_SQL + " WHERE visits.id= :id",
                 params,
-                new JdbcVisitRowMapperExt());
+                new JdbcVisitPetOwnerRowMapper());
         } catch (EmptyResultDataAccessException ex) {
             throw new ObjectRetrievalFailureException(Visit.class, id);
         }
         return visit;
     }
 
+    /**
+     * Loads all the {@link Visit Visits} along with their pet, pet type and owner through a single join query.
+     */
     @Override
     public Collection<Visit> findAll() throws DataAccessException {
         Map<String, Object> params = new HashMap<>();
         return this.namedParameterJdbcTemplate.query(
-            "SELECT visits.id as visit_id, pets.id as pets_id, visit_date, description FROM visits LEFT JOIN pets ON visits.pet_id = pets.id",
-            params, new JdbcVisitRowMapperExt());
+            JdbcVisitPetOwnerRowMapper.SELECT_VISITS_SQL,
+            params, new JdbcVisitPetOwnerRowMapper());
+    }
+
+    /**
+     * The JDBC visits are plain objects already read column by column, so the views are mapped from them.
+     */
+    @Override
+    public List<VisitView> findAllViews() throws DataAccessException {
+        return findAll().stream().map(VisitView::of).sorted(Comparator.comparing(VisitView::id)).toList();
+    }
+
+    @Override
+    public VisitView findViewById(int id) throws DataAccessException {
+        return VisitView.of(findById(id));
+    }
+
+    /**
+     * Loads a page of {@link Visit Visits} along with their pet, pet type and owner, through a seek on
+     * <code>(visit_date, id)</code> rather than an offset.
+     */
+    @Override
+    public List<Visit> findPage(LocalDate afterDate, Integer afterId, int limit) throws DataAccessException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterDate", afterDate);
+        params.put("afterId", afterId);
+        params.put("limit", limit);
+        return this.namedParameterJdbcTemplate.query(
+            JdbcVisitPetOwnerRowMapper.SELECT_VISITS_SQL +
+                (afterId == null ? "" : " WHERE visits.visit_date >= :afterDate AND (visits.visit_date > :afterDate OR visits.id > :afterId)") +
+                " ORDER BY visits.visit_date, visits.id LIMIT :limit",
+            params, new JdbcVisitPetOwnerRowMapper());
+    }
+
+    /**
+     * Streams the {@link Visit Visits} along with their pet, pet type and owner from a cursor over a join query.
+     * Unlike {@link #findAll()}, pets and owners are not shared between the visits, so that the memory used
+     * does not grow with the number of rows read.
+     */
+    @Override
+    public Stream<Visit> streamAll() throws DataAccessException {
+        return this.streamingJdbcTemplate.queryForStream(
+            JdbcVisitPetOwnerRowMapper.SELECT_VISITS_SQL + " ORDER BY visits.id",
+            new HashMap<String, Object>(),
+            new JdbcVisitPetOwnerRowMapper(false));
     }
 
     @Override
@@ -131,12 +179,26 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
             Number newKey = this.insertVisit.executeAndReturnKey(createVisitParameterSource(visit));
             visit.setId(newKey.intValue());
         } else {
-            this.namedParameterJdbcTemplate.update(
-                "UPDATE visits SET visit_date=:visit_date, description=:description, pet_id=:pet_id WHERE id=:id ",
-                createVisitParameterSource(visit));
+            JdbcVersioning.updateOrFail(this.namedParameterJdbcTemplate,
+                "UPDATE visits SET visit_date=:visit_date, description=:description, pet_id=:pet_id, " +
+                    "version=version+1 WHERE id=:id AND version=:version",
+                createVisitParameterSource(visit), visit);
         }
     }
 
+    @Override
+    public boolean update(Visit visit) throws DataAccessException {
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource()
+            .addValue("id", visit.getId())
+            .addValue("version", visit.getVersion())
+            .addValue("visit_date", visit.getDate())
+            .addValue("description", visit.getDescription());
+        return JdbcVersioning.update(this.namedParameterJdbcTemplate,
+            "UPDATE visits SET visit_date=:visit_date, description=:description, version=version+1 " +
+                "WHERE id=:id AND version=:version",
+            parameterSource, visit);
+    }
+
     @Override
     public void delete(Visit visit) throws DataAccessException {
         Map<String, Object> params = new HashMap<>();
@@ -144,36 +206,4 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
         this.namedParameterJdbcTemplate.update("DELETE FROM visits WHERE id=:id", params);
     }
 
-    protected class JdbcVisitRowMapperExt implements RowMapper<Visit> {
-
-        @Override
-        public Visit mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Visit visit = new Visit();
-            visit.setId(rs.getInt("visit_id"));
-            Date visitDate = rs.getDate("visit_date");
-            visit.setDate(new java.sql.Date(visitDate.getTime()).toLocalDate());
-            visit.setDescription(rs.getString("description"));
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", rs.getInt("pets_id"));
-            JdbcPet pet = JdbcVisitRepositoryImpl.this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT pets.id as pets_id, name, birth_date, type_id, owner_id FROM pets WHERE pets.id=:id",
-                params,
-                new JdbcPetRowMapper());
-            params.put("type_id", pet.getTypeId());
-            PetType petType = JdbcVisitRepositoryImpl.this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, name FROM types WHERE id= :type_id",
-                params,
-                BeanPropertyRowMapper.newInstance(PetType.class));
-            pet.setType(petType);
-            params.put("owner_id", pet.getOwnerId());
-            Owner owner = JdbcVisitRepositoryImpl.this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE id= :owner_id",
-                params,
-                BeanPropertyRowMapper.newInstance(Owner.class));
-            pet.setOwner(owner);
-            visit.setPet(pet);
-            return visit;
-        }
-    }
-
 }
@@ -33,6 +33,7 @@ class JdbcVisitRowMapper implements RowMapper<Visit> {
     public Visit mapRow(ResultSet rs, int row) throws SQLException {
         Visit visit = new Visit();
         visit.setId(rs.getInt("visit_id"));
+        visit.setVersion(rs.getInt("visit_version"));
         visit.setDate(rs.getObject("visit_date", LocalDate.class));
         visit.setDescription(rs.getString("description"));
         return visit;
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.samples.petclinic.model.FetchProfile;
+
+/**
+ * Helpers applying the named entity graphs of the model as JPA fetch graphs, so that a read loads the associations
+ * of its graph with joins of the same statement and leaves the other associations unloaded. The graphs implement
+ * the {@link FetchProfile#FULL FULL} profile, the lazy mappings the {@link FetchProfile#SUMMARY SUMMARY} one.
+ */
+public final class JpaFetchGraphs {
+
+    private JpaFetchGraphs() {
+    }
+
+    /**
+     * Hints of {@link EntityManager#find(Class, Object, Map)} loading an entity along the given graph.
+     */
+    public static Map<String, Object> hints(EntityManager em, String graphName) {
+        return Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(graphName));
+    }
+
+    /**
+     * Hints of {@link EntityManager#find(Class, Object, Map)} loading an entity along the given graph with the
+     * {@link FetchProfile#FULL FULL} profile, and without its lazy associations with the
+     * {@link FetchProfile#SUMMARY SUMMARY} profile.
+     */
+    public static Map<String, Object> hints(EntityManager em, FetchProfile profile, String graphName) {
+        return profile == FetchProfile.FULL ? hints(em, graphName) : Map.of();
+    }
+
+    /**
+     * Find an entity by id along the given graph with the {@link FetchProfile#FULL FULL} profile, and without its
+     * lazy associations with the {@link FetchProfile#SUMMARY SUMMARY} profile. An entity read from the second-level
+     * cache ignores the graph, so the associations of the graph are then initialized one by one, from the cache
+     * when they are cached too.
+     *
+     * @return the entity, or {@code null} if none has this id
+     */
+    public static <T> T find(EntityManager em, Class<T> type, int id, FetchProfile profile, String graphName) {
+        T entity = em.find(type, id, hints(em, profile, graphName));
+        if (entity != null && profile == FetchProfile.FULL) {
+            EntityPersister persister = em.unwrap(SessionImplementor.class).getEntityPersister(null, entity);
+            for (AttributeNode<?> attributeNode : em.getEntityGraph(graphName).getAttributeNodes()) {
+                Hibernate.initialize(persister.getPropertyValue(entity, attributeNode.getAttributeName()));
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Load the results of the given query along the given graph.
+     */
+    public static <T> TypedQuery<T> fetch(EntityManager em, TypedQuery<T> query, String graphName) {
+        return query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(graphName));
+    }
+
+    /**
+     * Load the results of the given query along the given graph with the {@link FetchProfile#FULL FULL} profile,
+     * and without their lazy associations with the {@link FetchProfile#SUMMARY SUMMARY} profile.
+     */
+    public static <T> TypedQuery<T> fetch(EntityManager em, TypedQuery<T> query, FetchProfile profile, String graphName) {
+        return profile == FetchProfile.FULL ? fetch(em, query, graphName) : query;
+    }
+
+    /**
+     * Load a page of entities along a graph joining collections. The limit of such a query could only be applied
+     * in memory, after reading every row, so the page is read in two statements instead: the given query selects
+     * the ids of the page with its limit, then the entities having these ids are loaded along the graph.
+     *
+     * @param idQuery   the ordered and limited query of the ids of the page
+     * @param type      the entity class, whose simple name is its entity name
+     * @param graphName the name of the graph
+     * @return the entities of the page, in the order of their ids
+     */
+    public static <T extends BaseEntity> List<T> fetchPage(EntityManager em, TypedQuery<Integer> idQuery,
+                                                           Class<T> type, String graphName) {
+        return fetchPage(em, idQuery, type, FetchProfile.FULL, graphName);
+    }
+
+    /**
+     * Load a page of entities along the given graph with the {@link FetchProfile#FULL FULL} profile, see
+     * {@link #fetchPage(EntityManager, TypedQuery, Class, String)}, and without their lazy associations with the
+     * {@link FetchProfile#SUMMARY SUMMARY} profile.
+     */
+    public static <T extends BaseEntity> List<T> fetchPage(EntityManager em, TypedQuery<Integer> idQuery,
+                                                           Class<T> type, FetchProfile profile, String graphName) {
+        List<Integer> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        TypedQuery<T> query = em.createQuery(
+            "SELECT entity FROM " + type.getSimpleName() + " entity WHERE entity.id IN :ids", type);
+        return fetch(em, query, profile, graphName)
+            .setParameter("ids", ids)
+            .getResultList()
+            .stream()
+            .sorted(Comparator.comparingInt(entity -> ids.indexOf(entity.getId())))
+            .toList();
+    }
+
+}
@@ -15,15 +15,22 @@
  */
 package org.springframework.samples.petclinic.repository.jpa;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
 import org.springframework.samples.petclinic.repository.OwnerRepository;
 import org.springframework.stereotype.Repository;
 
@@ -43,6 +50,9 @@ public class JpaOwnerRepositoryImpl implements OwnerRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Value("${petclinic.repository.stream-fetch-size:500}")
+    private int streamFetchSize;
+
 
     /**
      * Important: in the current version of this method, we load Owners with all their Pets and Visits while
@@ -51,22 +61,24 @@ public class JpaOwnerRepositoryImpl implements OwnerRepository {
      * - creating a Ligtweight class (example here: https://community.jboss.org/wiki/LightweightClass)
      * - Turning on lazy-loading and using open session in view pattern
      */
-    @SuppressWarnings("unchecked")
     public Collection<Owner> findByLastName(String lastName) {
-        // using 'join fetch' because a single query should load both owners and pets
-        // using 'left join fetch' because it might happen that an owner does not have pets yet
-        Query query = this.em.createQuery("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName");
+        // using the Owner.PETS_GRAPH fetch graph because a single query should load owners, pets and visits
+        TypedQuery<Owner> query = this.em.createQuery("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName", Owner.class);
         query.setParameter("lastName", lastName + "%");
-        return query.getResultList();
+        return JpaFetchGraphs.fetch(this.em, query, Owner.PETS_GRAPH).getResultList();
     }
 
     @Override
     public Owner findById(int id) {
-        // using 'join fetch' because a single query should load both owners and pets
-        // using 'left join fetch' because it might happen that an owner does not have pets yet
-        Query query = this.em.createQuery("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id");
+        return findById(id, FetchProfile.FULL);
+    }
+
+    @Override
+    public Owner findById(int id, FetchProfile profile) {
+        // with the FULL profile, using the Owner.PETS_GRAPH fetch graph because a single query should load owners, pets and visits
+        TypedQuery<Owner> query = this.em.createQuery("SELECT owner FROM Owner owner WHERE owner.id =:id", Owner.class);
         query.setParameter("id", id);
-        return (Owner) query.getSingleResult();
+        return JpaFetchGraphs.fetch(this.em, query, profile, Owner.PETS_GRAPH).getSingleResult();
     }
 
 
@@ -80,16 +92,75 @@ public class JpaOwnerRepositoryImpl implements OwnerRepository {
 
     }
 
-	@SuppressWarnings("unchecked")
+    @Override
+    public boolean update(Owner owner) throws DataAccessException {
+        return JpaUpdates.update(this.em, owner);
+    }
+
 	@Override
 	public Collection<Owner> findAll() throws DataAccessException {
-		Query query = this.em.createQuery("SELECT owner FROM Owner owner");
-        return query.getResultList();
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT owner FROM Owner owner", Owner.class), Owner.PETS_GRAPH)
+			.getResultList();
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<OwnerView> findAllViews(FetchProfile profile) {
+		return JpaProjections.findOwners(this.em, null, Map.of(), profile);
+	}
+
+	@Override
+	public List<OwnerView> findViewsByLastName(String lastName, FetchProfile profile) {
+		return JpaProjections.findOwners(this.em, "owner.lastName LIKE :lastName", Map.of("lastName", lastName + "%"),
+			profile);
+	}
+
+	@Override
+	public OwnerView findViewById(int id, FetchProfile profile) {
+		return JpaProjections.single(JpaProjections.findOwners(this.em, "owner.id = :id", Map.of("id", id), profile));
 	}
 
 	@Override
 	public void delete(Owner owner) throws DataAccessException {
-		this.em.remove(this.em.contains(owner) ? owner : this.em.merge(owner));
+		JpaUpdates.delete(this.em, owner);
+	}
+
+	/**
+	 * Loads a page of owners through a seek on <code>(lastName, id)</code> rather than an offset. The ids of the page
+	 * are selected first so that the limit applies in the database, see {@link JpaFetchGraphs#fetchPage}.
+	 */
+	@Override
+	public List<Owner> findPage(String lastName, String afterLastName, Integer afterId, int limit,
+								FetchProfile profile) {
+		List<String> conditions = new ArrayList<>();
+		if (lastName != null) {
+			conditions.add("owner.lastName LIKE :lastName");
+		}
+		if (afterId != null) {
+			conditions.add("owner.lastName >= :afterLastName AND (owner.lastName > :afterLastName OR owner.id > :afterId)");
+		}
+		TypedQuery<Integer> query = this.em.createQuery("SELECT owner.id FROM Owner owner" +
+			(conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+			" ORDER BY owner.lastName, owner.id", Integer.class);
+		if (lastName != null) {
+			query.setParameter("lastName", lastName + "%");
+		}
+		if (afterId != null) {
+			query.setParameter("afterLastName", afterLastName);
+			query.setParameter("afterId", afterId);
+		}
+		return JpaFetchGraphs.fetchPage(this.em, query.setMaxResults(limit), Owner.class, profile, Owner.PETS_GRAPH);
+	}
+
+	/**
+	 * Streams the {@link Owner Owners} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Owner> streamAll() throws DataAccessException {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT owner FROM Owner owner ORDER BY owner.id", Owner.class), Owner.PETS_GRAPH), this.streamFetchSize);
 	}
 
 }
@@ -17,14 +17,21 @@ package org.springframework.samples.petclinic.repository.jpa;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.repository.PetRepository;
 import org.springframework.stereotype.Repository;
 
@@ -44,15 +51,25 @@ public class JpaPetRepositoryImpl implements PetRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Value("${petclinic.repository.stream-fetch-size:500}")
+    private int streamFetchSize;
+
     @Override
     @SuppressWarnings("unchecked")
     public List<PetType> findPetTypes() {
-        return this.em.createQuery("SELECT ptype FROM PetType ptype ORDER BY ptype.name").getResultList();
+        return this.em.createQuery("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .getResultList();
     }
 
     @Override
     public Pet findById(int id) {
-        return this.em.find(Pet.class, id);
+        return findById(id, FetchProfile.FULL);
+    }
+
+    @Override
+    public Pet findById(int id, FetchProfile profile) {
+        return this.em.find(Pet.class, id, JpaFetchGraphs.hints(this.em, profile, Pet.DETAILS_GRAPH));
     }
 
     @Override
@@ -64,21 +81,61 @@ public class JpaPetRepositoryImpl implements PetRepository {
         }
     }
 
-	@SuppressWarnings("unchecked")
+    @Override
+    public boolean update(Pet pet) throws DataAccessException {
+        return JpaUpdates.update(this.em, pet);
+    }
+
 	@Override
 	public Collection<Pet> findAll() throws DataAccessException {
-		return this.em.createQuery("SELECT pet FROM Pet pet").getResultList();
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT pet FROM Pet pet", Pet.class), Pet.DETAILS_GRAPH)
+			.getResultList();
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<PetView> findAllViews(FetchProfile profile) {
+		return JpaProjections.findPets(this.em, null, Map.of(), profile);
+	}
+
+	@Override
+	public PetView findViewById(int id, FetchProfile profile) {
+		return JpaProjections.single(JpaProjections.findPets(this.em, "pet.id = :id", Map.of("id", id), profile));
 	}
 
 	@Override
 	public void delete(Pet pet) throws DataAccessException {
-		//this.em.remove(this.em.contains(pet) ? pet : this.em.merge(pet));
-		String petId = pet.getId().toString();
-		this.em.createQuery("DELETE FROM Visit visit WHERE pet.id=" + petId).executeUpdate();
-		this.em.createQuery("DELETE FROM Pet pet WHERE id=" + petId).executeUpdate();
-		if (em.contains(pet)) {
-			em.remove(pet);
+		JpaUpdates.delete(this.em, pet);
+	}
+
+	/**
+	 * Loads a page of pets through a seek on <code>(name, id)</code> rather than an offset. The ids of the page are
+	 * selected first so that the limit applies in the database, see {@link JpaFetchGraphs#fetchPage}.
+	 */
+	@Override
+	public List<Pet> findPage(String afterName, Integer afterId, int limit, FetchProfile profile) {
+		TypedQuery<Integer> query;
+		if (afterId == null) {
+			query = this.em.createQuery("SELECT pet.id FROM Pet pet ORDER BY pet.name, pet.id", Integer.class);
+		} else {
+			query = this.em.createQuery("SELECT pet.id FROM Pet pet WHERE pet.name >= :afterName AND (pet.name > :afterName OR pet.id > :afterId) " +
+					"ORDER BY pet.name, pet.id", Integer.class)
+				.setParameter("afterName", afterName)
+				.setParameter("afterId", afterId);
 		}
+		return JpaFetchGraphs.fetchPage(this.em, query.setMaxResults(limit), Pet.class,
+			profile == FetchProfile.FULL ? Pet.DETAILS_GRAPH : Pet.SUMMARY_GRAPH);
+	}
+
+	/**
+	 * Streams the {@link Pet Pets} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Pet> streamAll() throws DataAccessException {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT pet FROM Pet pet ORDER BY pet.id", Pet.class), Pet.DETAILS_GRAPH), this.streamFetchSize);
 	}
 
 }
@@ -17,16 +17,14 @@
 package org.springframework.samples.petclinic.repository.jpa;
 
 import java.util.Collection;
-import java.util.List;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
-import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
-import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.repository.PetTypeRepository;
 import org.springframework.stereotype.Repository;
 
@@ -58,7 +56,9 @@ public class JpaPetTypeRepositoryImpl implements PetTypeRepository {
     @SuppressWarnings("unchecked")
 	@Override
 	public Collection<PetType> findAll() throws DataAccessException {
-		return this.em.createQuery("SELECT ptype FROM PetType ptype").getResultList();
+		return this.em.createQuery("SELECT ptype FROM PetType ptype")
+			.setHint(HibernateHints.HINT_CACHEABLE, true)
+			.getResultList();
 	}
 
 	@Override
@@ -71,21 +71,14 @@ public class JpaPetTypeRepositoryImpl implements PetTypeRepository {
 
 	}
 
-	@SuppressWarnings("unchecked")
+	@Override
+	public boolean update(PetType petType) throws DataAccessException {
+		return JpaUpdates.update(this.em, petType);
+	}
+
 	@Override
 	public void delete(PetType petType) throws DataAccessException {
-		this.em.remove(this.em.contains(petType) ? petType : this.em.merge(petType));
-		Integer petTypeId = petType.getId();
-
-		List<Pet> pets = this.em.createQuery("SELECT pet FROM Pet pet WHERE type.id=" + petTypeId).getResultList();
-		for (Pet pet : pets){
-			List<Visit> visits = pet.getVisits();
-			for (Visit visit : visits){
-				this.em.createQuery("DELETE FROM Visit visit WHERE id=" + visit.getId()).executeUpdate();
-			}
-			this.em.createQuery("DELETE FROM Pet pet WHERE id=" + pet.getId()).executeUpdate();
-		}
-		this.em.createQuery("DELETE FROM PetType pettype WHERE id=" + petTypeId).executeUpdate();
+		JpaUpdates.delete(this.em, petType);
 	}
 
 }
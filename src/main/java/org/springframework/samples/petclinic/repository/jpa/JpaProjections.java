@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
+
+/**
+ * Helpers reading the {@link org.springframework.samples.petclinic.model.projection views} of owners, pets and
+ * visits with JPQL constructor expressions: only the columns of the views are selected and no entity enters the
+ * persistence context. Collections are selected by flat queries, one per level of the view, sharing the same
+ * condition, and then grouped in memory, so that no row of a parent is repeated for each of its children.
+ * <p>
+ * A condition is a JPQL predicate reused by the queries of the lower levels, so it may only use the aliases of
+ * its own level and of the levels above: <code>owner</code> for owner views, <code>owner</code> and
+ * <code>pet</code> for pet views, and <code>visit</code> as well for visit views.
+ */
+public final class JpaProjections {
+
+    private static final Comparator<PetView> PET_ORDER =
+        Comparator.comparing(PetView::name, String.CASE_INSENSITIVE_ORDER);
+
+    private static final Comparator<VisitView> VISIT_ORDER =
+        Comparator.comparing(VisitView::date, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private JpaProjections() {
+    }
+
+    /**
+     * Select the views of the owners matching the given condition, ordered by id. Their pets and visits are only
+     * selected with the {@link FetchProfile#FULL FULL} profile.
+     *
+     * @param condition  the JPQL condition, or <code>null</code> for all owners
+     * @param parameters the parameters of the condition
+     */
+    public static List<OwnerView> findOwners(EntityManager em, String condition, Map<String, Object> parameters,
+                                             FetchProfile profile) {
+        List<OwnerView> owners = query(em, "SELECT new " + OwnerView.class.getName() +
+            "(owner.id, owner.version, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone)" +
+            " FROM Owner owner", condition, "owner.id", OwnerView.class, parameters).getResultList();
+        if (owners.isEmpty() || profile == FetchProfile.SUMMARY) {
+            return owners;
+        }
+        Map<Integer, List<PetView>> petsByOwner = findPets(em, condition, parameters, profile).stream()
+            .filter(pet -> pet.ownerId() != null)
+            .collect(Collectors.groupingBy(PetView::ownerId));
+        return owners.stream()
+            .map(owner -> owner.withPets(sorted(petsByOwner.get(owner.id()), PET_ORDER)))
+            .toList();
+    }
+
+    /**
+     * Select the views of the pets matching the given condition, ordered by id. Their visits are only selected with
+     * the {@link FetchProfile#FULL FULL} profile.
+     *
+     * @param condition  the JPQL condition, or <code>null</code> for all pets
+     * @param parameters the parameters of the condition
+     */
+    public static List<PetView> findPets(EntityManager em, String condition, Map<String, Object> parameters,
+                                         FetchProfile profile) {
+        List<PetView> pets = query(em, "SELECT new " + PetView.class.getName() +
+            "(pet.id, pet.version, pet.name, pet.birthDate, type.id, type.name, owner.id)" +
+            " FROM Pet pet LEFT JOIN pet.type type LEFT JOIN pet.owner owner", condition, "pet.id",
+            PetView.class, parameters).getResultList();
+        if (pets.isEmpty() || profile == FetchProfile.SUMMARY) {
+            return pets;
+        }
+        Map<Integer, List<VisitView>> visitsByPet = findVisits(em, condition, parameters).stream()
+            .collect(Collectors.groupingBy(VisitView::petId));
+        return pets.stream()
+            .map(pet -> pet.withVisits(sorted(visitsByPet.get(pet.id()), VISIT_ORDER)))
+            .toList();
+    }
+
+    /**
+     * Select the views of the visits matching the given condition, ordered by id.
+     *
+     * @param condition  the JPQL condition, or <code>null</code> for all visits
+     * @param parameters the parameters of the condition
+     */
+    public static List<VisitView> findVisits(EntityManager em, String condition, Map<String, Object> parameters) {
+        return query(em, "SELECT new " + VisitView.class.getName() +
+            "(visit.id, visit.version, pet.id, visit.date, visit.description)" +
+            " FROM Visit visit JOIN visit.pet pet LEFT JOIN pet.owner owner", condition, "visit.id",
+            VisitView.class, parameters).getResultList();
+    }
+
+    /**
+     * Return the single view of the given list, selected by id.
+     *
+     * @throws org.springframework.dao.EmptyResultDataAccessException if there is none
+     */
+    public static <T> T single(List<T> views) {
+        return DataAccessUtils.requiredSingleResult(views);
+    }
+
+    private static <T> TypedQuery<T> query(EntityManager em, String select, String condition, String order,
+                                           Class<T> type, Map<String, Object> parameters) {
+        TypedQuery<T> query = em.createQuery(select + (condition == null ? "" : " WHERE " + condition) +
+            " ORDER BY " + order, type);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private static <T> List<T> sorted(List<T> views, Comparator<T> order) {
+        return views == null ? List.of() : views.stream().sorted(order).toList();
+    }
+
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.Specialty;
@@ -57,7 +58,9 @@ public class JpaSpecialtyRepositoryImpl implements SpecialtyRepository {
     @SuppressWarnings("unchecked")
 	@Override
 	public Collection<Specialty> findAll() throws DataAccessException {
-		return this.em.createQuery("SELECT s FROM Specialty s").getResultList();
+		return this.em.createQuery("SELECT s FROM Specialty s")
+			.setHint(HibernateHints.HINT_CACHEABLE, true)
+			.getResultList();
 	}
 
 	@Override
@@ -69,12 +72,14 @@ public class JpaSpecialtyRepositoryImpl implements SpecialtyRepository {
         }
 	}
 
+	@Override
+	public boolean update(Specialty specialty) throws DataAccessException {
+		return JpaUpdates.update(this.em, specialty);
+	}
+
 	@Override
 	public void delete(Specialty specialty) throws DataAccessException {
-		this.em.remove(this.em.contains(specialty) ? specialty : this.em.merge(specialty));
-		Integer specId = specialty.getId();
-		this.em.createNativeQuery("DELETE FROM vet_specialties WHERE specialty_id=" + specId).executeUpdate();
-		this.em.createQuery("DELETE FROM Specialty specialty WHERE id=" + specId).executeUpdate();
+		JpaUpdates.delete(this.em, specialty);
 	}
 
 }
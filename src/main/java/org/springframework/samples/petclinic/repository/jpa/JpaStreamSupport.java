@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Helper for the <code>streamAll()</code> implementations of the JPA based repositories.
+ */
+public final class JpaStreamSupport {
+
+    private JpaStreamSupport() {
+    }
+
+    /**
+     * Stream the results of the given query, which Hibernate reads through <code>ScrollableResults</code>
+     * fetching <code>fetchSize</code> rows per round trip. Closing the returned stream closes the cursor.
+     * <p>
+     * The persistence context is cleared every <code>fetchSize</code> results so that it does not retain
+     * every entity read; the streamed entities, whose associations are loaded along the fetch graph of the
+     * query, are thus detached.
+     * The stream is meant for read-only transactions, without pending changes to flush.
+     */
+    public static <T> Stream<T> stream(EntityManager em, TypedQuery<T> query, int fetchSize) {
+        int[] count = {0};
+        return query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+            .getResultStream()
+            .peek(entity -> {
+                if (++count[0] % fetchSize == 0) {
+                    em.clear();
+                }
+            });
+    }
+
+}
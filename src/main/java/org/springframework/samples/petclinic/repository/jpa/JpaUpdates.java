@@ -0,0 +1,214 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.VersionedEntity;
+import org.springframework.samples.petclinic.model.Visit;
+
+/**
+ * Helpers writing an entity whose id is known with bulk statements, without loading it first. Each update is one
+ * statement which only matches the row while it still has the version of the entity and increments that version,
+ * so that a stale entity updates nothing instead of overwriting a concurrent change. Each delete is one statement
+ * per table, instead of cascading the removal entity by entity.
+ */
+public final class JpaUpdates {
+
+    private JpaUpdates() {
+    }
+
+    /**
+     * Updates the fields of the owner, leaving its pets untouched.
+     */
+    public static boolean update(EntityManager em, Owner owner) {
+        return execute(em, em.createQuery("UPDATE Owner owner SET owner.firstName = :firstName, " +
+                "owner.lastName = :lastName, owner.address = :address, owner.city = :city, " +
+                "owner.telephone = :telephone, owner.version = owner.version + 1 " +
+                "WHERE owner.id = :id AND owner.version = :version")
+            .setParameter("firstName", owner.getFirstName())
+            .setParameter("lastName", owner.getLastName())
+            .setParameter("address", owner.getAddress())
+            .setParameter("city", owner.getCity())
+            .setParameter("telephone", owner.getTelephone()), owner);
+    }
+
+    /**
+     * Updates the name, birth date and type of the pet, checking that it belongs to its owner only if it holds one.
+     */
+    public static boolean update(EntityManager em, Pet pet) {
+        String ownerCondition = pet.getOwner() != null ? " AND pet.owner.id = :ownerId" : "";
+        Query query = em.createQuery("UPDATE Pet pet SET pet.name = :name, pet.birthDate = :birthDate, " +
+                "pet.type = :type, pet.version = pet.version + 1 " +
+                "WHERE pet.id = :id AND pet.version = :version" + ownerCondition)
+            .setParameter("name", pet.getName())
+            .setParameter("birthDate", pet.getBirthDate())
+            .setParameter("type", em.getReference(PetType.class, pet.getType().getId()));
+        if (pet.getOwner() != null) {
+            query.setParameter("ownerId", pet.getOwner().getId());
+        }
+        return execute(em, query, pet);
+    }
+
+    /**
+     * Updates the date and description of the visit, leaving its pet unchanged.
+     */
+    public static boolean update(EntityManager em, Visit visit) {
+        return execute(em, em.createQuery("UPDATE Visit visit SET visit.date = :date, " +
+                "visit.description = :description, visit.version = visit.version + 1 " +
+                "WHERE visit.id = :id AND visit.version = :version")
+            .setParameter("date", visit.getDate())
+            .setParameter("description", visit.getDescription()), visit);
+    }
+
+    public static boolean update(EntityManager em, PetType petType) {
+        return execute(em, em.createQuery("UPDATE PetType type SET type.name = :name, " +
+                "type.version = type.version + 1 WHERE type.id = :id AND type.version = :version")
+            .setParameter("name", petType.getName()), petType);
+    }
+
+    public static boolean update(EntityManager em, Specialty specialty) {
+        return execute(em, em.createQuery("UPDATE Specialty specialty SET specialty.name = :name, " +
+                "specialty.version = specialty.version + 1 " +
+                "WHERE specialty.id = :id AND specialty.version = :version")
+            .setParameter("name", specialty.getName()), specialty);
+    }
+
+    /**
+     * Updates the names and specialties of the vet. As its specialties live in a link table, the vet is loaded and
+     * compared with the version of the given one, then its changes are flushed with the version check of the
+     * persistence provider, which only writes the links which were actually added or removed.
+     */
+    public static boolean update(EntityManager em, Vet vet) {
+        Vet current = em.find(Vet.class, vet.getId());
+        if (current == null || current.getVersion() != vet.getVersion()) {
+            return false;
+        }
+        current.setFirstName(vet.getFirstName());
+        current.setLastName(vet.getLastName());
+        current.setSpecialties(vet.getSpecialties().stream()
+            .map(specialty -> em.getReference(Specialty.class, specialty.getId()))
+            .toList());
+        em.flush();
+        vet.setVersion(current.getVersion());
+        return true;
+    }
+
+    /**
+     * Deletes the owner along with its pets and their visits.
+     */
+    public static void delete(EntityManager em, Owner owner) {
+        execute(em,
+            em.createQuery("DELETE FROM Visit visit WHERE visit.pet.id IN " +
+                    "(SELECT pet.id FROM Pet pet WHERE pet.owner.id = :ownerId)")
+                .setParameter("ownerId", owner.getId()),
+            em.createQuery("DELETE FROM Pet pet WHERE pet.owner.id = :ownerId")
+                .setParameter("ownerId", owner.getId()),
+            em.createQuery("DELETE FROM Owner owner WHERE owner.id = :ownerId")
+                .setParameter("ownerId", owner.getId()));
+    }
+
+    /**
+     * Deletes the pet along with its visits.
+     */
+    public static void delete(EntityManager em, Pet pet) {
+        execute(em,
+            em.createQuery("DELETE FROM Visit visit WHERE visit.pet.id = :petId")
+                .setParameter("petId", pet.getId()),
+            em.createQuery("DELETE FROM Pet pet WHERE pet.id = :petId")
+                .setParameter("petId", pet.getId()));
+    }
+
+    /**
+     * Deletes the pet type along with the pets of that type and their visits.
+     */
+    public static void delete(EntityManager em, PetType petType) {
+        execute(em,
+            em.createQuery("DELETE FROM Visit visit WHERE visit.pet.id IN " +
+                    "(SELECT pet.id FROM Pet pet WHERE pet.type.id = :petTypeId)")
+                .setParameter("petTypeId", petType.getId()),
+            em.createQuery("DELETE FROM Pet pet WHERE pet.type.id = :petTypeId")
+                .setParameter("petTypeId", petType.getId()),
+            em.createQuery("DELETE FROM PetType pettype WHERE pettype.id = :petTypeId")
+                .setParameter("petTypeId", petType.getId()));
+    }
+
+    /**
+     * Deletes the vet along with its specialty links, see {@link #deleteSpecialtyLinks}.
+     */
+    public static void delete(EntityManager em, Vet vet) {
+        execute(em,
+            deleteSpecialtyLinks(em, "vet_id", vet.getId()),
+            em.createQuery("DELETE FROM Vet vet WHERE vet.id = :vetId")
+                .setParameter("vetId", vet.getId()));
+    }
+
+    /**
+     * Deletes the specialty along with its links to vets, see {@link #deleteSpecialtyLinks}.
+     */
+    public static void delete(EntityManager em, Specialty specialty) {
+        execute(em,
+            deleteSpecialtyLinks(em, "specialty_id", specialty.getId()),
+            em.createQuery("DELETE FROM Specialty specialty WHERE specialty.id = :specId")
+                .setParameter("specId", specialty.getId()));
+    }
+
+    /**
+     * The statement deleting the rows of the link table between vets and specialties whose given column holds the
+     * id. It declares that table as its query space, so that it only invalidates the cached specialties of vets
+     * instead of the whole second-level cache.
+     */
+    private static Query deleteSpecialtyLinks(EntityManager em, String column, Integer id) {
+        return em.createNativeQuery("DELETE FROM vet_specialties WHERE " + column + " = :id")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("vet_specialties")
+            .setParameter("id", id);
+    }
+
+    private static boolean execute(EntityManager em, Query query, VersionedEntity entity) {
+        int updated = execute(em, query
+            .setParameter("id", entity.getId())
+            .setParameter("version", entity.getVersion()));
+        if (updated == 0) {
+            return false;
+        }
+        entity.setVersion(entity.getVersion() + 1);
+        return true;
+    }
+
+    /**
+     * Executes the bulk statements in order and returns the number of rows they changed. As bulk statements bypass
+     * the persistence context, its pending changes are flushed beforehand, and it is cleared afterwards so that no
+     * managed entity outlives the row it stands for.
+     */
+    private static int execute(EntityManager em, Query... statements) {
+        em.flush();
+        int changed = 0;
+        for (Query statement : statements) {
+            changed += statement.executeUpdate();
+        }
+        em.clear();
+        return changed;
+    }
+
+}
@@ -15,8 +15,10 @@
  */
 package org.springframework.samples.petclinic.repository.jpa;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.repository.VetRepository;
 import org.springframework.stereotype.Repository;
@@ -44,13 +46,19 @@ public class JpaVetRepositoryImpl implements VetRepository {
 
 	@Override
 	public Vet findById(int id) throws DataAccessException {
-		return this.em.find(Vet.class, id);
+		return findById(id, FetchProfile.FULL);
+	}
+
+	@Override
+	public Vet findById(int id, FetchProfile profile) throws DataAccessException {
+		return JpaFetchGraphs.find(this.em, Vet.class, id, profile, Vet.SPECIALTIES_GRAPH);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public Collection<Vet> findAll() throws DataAccessException {
-		return this.em.createQuery("SELECT vet FROM Vet vet").getResultList();
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT vet FROM Vet vet", Vet.class), Vet.SPECIALTIES_GRAPH)
+			.setHint(HibernateHints.HINT_CACHEABLE, true)
+			.getResultList();
 	}
 
 	@Override
@@ -62,9 +70,14 @@ public class JpaVetRepositoryImpl implements VetRepository {
         }
 	}
 
+	@Override
+	public boolean update(Vet vet) throws DataAccessException {
+		return JpaUpdates.update(this.em, vet);
+	}
+
 	@Override
 	public void delete(Vet vet) throws DataAccessException {
-		this.em.remove(this.em.contains(vet) ? vet : this.em.merge(vet));
+		JpaUpdates.delete(this.em, vet);
 	}
 
 
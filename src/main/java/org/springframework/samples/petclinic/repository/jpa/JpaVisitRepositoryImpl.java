@@ -15,16 +15,21 @@
  */
 package org.springframework.samples.petclinic.repository.jpa;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 import org.springframework.stereotype.Repository;
 
@@ -46,6 +51,9 @@ public class JpaVisitRepositoryImpl implements VisitRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Value("${petclinic.repository.stream-fetch-size:500}")
+    private int streamFetchSize;
+
 
     @Override
     public void save(Visit visit) {
@@ -56,24 +64,41 @@ public class JpaVisitRepositoryImpl implements VisitRepository {
         }
     }
 
+    @Override
+    public boolean update(Visit visit) throws DataAccessException {
+        return JpaUpdates.update(this.em, visit);
+    }
+
 
     @Override
-    @SuppressWarnings("unchecked")
     public List<Visit> findByPetId(Integer petId) {
-        Query query = this.em.createQuery("SELECT v FROM Visit v where v.pet.id= :id");
+        TypedQuery<Visit> query = this.em.createQuery("SELECT v FROM Visit v where v.pet.id= :id", Visit.class);
         query.setParameter("id", petId);
-        return query.getResultList();
+        return JpaFetchGraphs.fetch(this.em, query, Visit.PET_GRAPH).getResultList();
     }
 
 	@Override
 	public Visit findById(int id) throws DataAccessException {
-		return this.em.find(Visit.class, id);
+		return this.em.find(Visit.class, id, JpaFetchGraphs.hints(this.em, Visit.PET_GRAPH));
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public Collection<Visit> findAll() throws DataAccessException {
-        return this.em.createQuery("SELECT v FROM Visit v").getResultList();
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT v FROM Visit v", Visit.class), Visit.PET_GRAPH)
+			.getResultList();
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<VisitView> findAllViews() {
+		return JpaProjections.findVisits(this.em, null, Map.of());
+	}
+
+	@Override
+	public VisitView findViewById(int id) {
+		return JpaProjections.single(JpaProjections.findVisits(this.em, "visit.id = :id", Map.of("id", id)));
 	}
 
 	@Override
@@ -81,4 +106,33 @@ public class JpaVisitRepositoryImpl implements VisitRepository {
         this.em.remove(this.em.contains(visit) ? visit : this.em.merge(visit));
 	}
 
+	/**
+	 * Loads a page of visits through a seek on <code>(date, id)</code> rather than an offset. As the graph of the
+	 * visits only joins single valued associations, the limit applies in the database.
+	 */
+	@Override
+	public List<Visit> findPage(LocalDate afterDate, Integer afterId, int limit) {
+		if (afterId == null) {
+			return JpaFetchGraphs.fetch(this.em,
+					this.em.createQuery("SELECT visit FROM Visit visit ORDER BY visit.date, visit.id", Visit.class), Visit.PET_GRAPH)
+				.setMaxResults(limit)
+				.getResultList();
+		}
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT visit FROM Visit visit WHERE visit.date >= :afterDate AND (visit.date > :afterDate OR visit.id > :afterId) " +
+				"ORDER BY visit.date, visit.id", Visit.class), Visit.PET_GRAPH)
+			.setParameter("afterDate", afterDate)
+			.setParameter("afterId", afterId)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+
+	/**
+	 * Streams the {@link Visit Visits} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Visit> streamAll() throws DataAccessException {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT visit FROM Visit visit ORDER BY visit.id", Visit.class), Visit.PET_GRAPH), this.streamFetchSize);
+	}
+
 }
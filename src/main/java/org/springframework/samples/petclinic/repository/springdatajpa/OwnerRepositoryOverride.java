@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.repository.springdatajpa;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+
+@Profile("spring-data-jpa")
+public interface OwnerRepositoryOverride {
+
+	void delete(Owner owner);
+
+	boolean update(Owner owner);
+
+	Owner findById(int id, FetchProfile profile);
+
+	List<Owner> findPage(String lastName, String afterLastName, Integer afterId, int limit, FetchProfile profile);
+
+	Stream<Owner> streamAll();
+
+	List<OwnerView> findAllViews(FetchProfile profile);
+
+	List<OwnerView> findViewsByLastName(String lastName, FetchProfile profile);
+
+	OwnerView findViewById(int id, FetchProfile profile);
+
+}
@@ -16,8 +16,13 @@
 
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.projection.PetView;
 
 /**
  * @author Vitaliy Fedoriv
@@ -29,4 +34,16 @@ public interface PetRepositoryOverride {
 	
 	void delete(Pet pet);
 
+	boolean update(Pet pet);
+
+	Pet findById(int id, FetchProfile profile);
+
+	List<Pet> findPage(String afterName, Integer afterId, int limit, FetchProfile profile);
+
+	Stream<Pet> streamAll();
+
+	List<PetView> findAllViews(FetchProfile profile);
+
+	PetView findViewById(int id, FetchProfile profile);
+
 }
@@ -29,4 +29,6 @@ public interface PetTypeRepositoryOverride {
 	
 	void delete(PetType petType);
 
+	boolean update(PetType petType);
+
 }
@@ -29,4 +29,6 @@ public interface SpecialtyRepositoryOverride {
 	
 	void delete(Specialty specialty);
 
+	boolean update(Specialty specialty);
+
 }
@@ -18,6 +18,9 @@ package org.springframework.samples.petclinic.repository.springdatajpa;
 import java.util.Collection;
 
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
@@ -32,13 +35,19 @@ import org.springframework.samples.petclinic.repository.OwnerRepository;
  */
 
 @Profile("spring-data-jpa")
-public interface SpringDataOwnerRepository extends OwnerRepository, Repository<Owner, Integer> {
+public interface SpringDataOwnerRepository extends OwnerRepository, Repository<Owner, Integer>, OwnerRepositoryOverride {
 
     @Override
-    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName%")
+    @EntityGraph(value = Owner.PETS_GRAPH, type = EntityGraphType.FETCH)
+    @Query("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName%")
     Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
     @Override
-    @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+    @EntityGraph(value = Owner.PETS_GRAPH, type = EntityGraphType.FETCH)
+    @Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
     Owner findById(@Param("id") int id);
+
+    @Override
+    @EntityGraph(value = Owner.PETS_GRAPH, type = EntityGraphType.FETCH)
+    Collection<Owner> findAll() throws DataAccessException;
 }
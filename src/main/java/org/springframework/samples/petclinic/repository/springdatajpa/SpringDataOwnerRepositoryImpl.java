@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.repository.springdatajpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.repository.jpa.JpaFetchGraphs;
+import org.springframework.samples.petclinic.repository.jpa.JpaProjections;
+import org.springframework.samples.petclinic.repository.jpa.JpaStreamSupport;
+import org.springframework.samples.petclinic.repository.jpa.JpaUpdates;
+
+@Profile("spring-data-jpa")
+public class SpringDataOwnerRepositoryImpl implements OwnerRepositoryOverride {
+
+	@PersistenceContext
+    private EntityManager em;
+
+	@Value("${petclinic.repository.stream-fetch-size:500}")
+	private int streamFetchSize;
+
+	@Override
+	public Owner findById(int id, FetchProfile profile) {
+		return this.em.find(Owner.class, id, JpaFetchGraphs.hints(this.em, profile, Owner.PETS_GRAPH));
+	}
+
+	@Override
+	public void delete(Owner owner) {
+		JpaUpdates.delete(this.em, owner);
+	}
+
+	/**
+	 * Loads a page of owners through a seek on <code>(lastName, id)</code> rather than an offset. The ids of the page
+	 * are selected first so that the limit applies in the database, see {@link JpaFetchGraphs#fetchPage}.
+	 */
+	@Override
+	public List<Owner> findPage(String lastName, String afterLastName, Integer afterId, int limit,
+								FetchProfile profile) {
+		List<String> conditions = new ArrayList<>();
+		if (lastName != null) {
+			conditions.add("owner.lastName LIKE :lastName");
+		}
+		if (afterId != null) {
+			conditions.add("owner.lastName >= :afterLastName AND (owner.lastName > :afterLastName OR owner.id > :afterId)");
+		}
+		TypedQuery<Integer> query = this.em.createQuery("SELECT owner.id FROM Owner owner" +
+			(conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+			" ORDER BY owner.lastName, owner.id", Integer.class);
+		if (lastName != null) {
+			query.setParameter("lastName", lastName + "%");
+		}
+		if (afterId != null) {
+			query.setParameter("afterLastName", afterLastName);
+			query.setParameter("afterId", afterId);
+		}
+		return JpaFetchGraphs.fetchPage(this.em, query.setMaxResults(limit), Owner.class, profile, Owner.PETS_GRAPH);
+	}
+
+	/**
+	 * Streams the {@link Owner Owners} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Owner> streamAll() {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT owner FROM Owner owner ORDER BY owner.id", Owner.class), Owner.PETS_GRAPH), this.streamFetchSize);
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<OwnerView> findAllViews(FetchProfile profile) {
+		return JpaProjections.findOwners(this.em, null, Map.of(), profile);
+	}
+
+	@Override
+	public List<OwnerView> findViewsByLastName(String lastName, FetchProfile profile) {
+		return JpaProjections.findOwners(this.em, "owner.lastName LIKE :lastName", Map.of("lastName", lastName + "%"),
+			profile);
+	}
+
+	@Override
+	public OwnerView findViewById(int id, FetchProfile profile) {
+		return JpaProjections.single(JpaProjections.findOwners(this.em, "owner.id = :id", Map.of("id", id), profile));
+	}
+
+	@Override
+	public boolean update(Owner owner) {
+		return JpaUpdates.update(this.em, owner);
+	}
+
+}
@@ -16,11 +16,23 @@
 
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.repository.jpa.JpaFetchGraphs;
+import org.springframework.samples.petclinic.repository.jpa.JpaProjections;
+import org.springframework.samples.petclinic.repository.jpa.JpaStreamSupport;
+import org.springframework.samples.petclinic.repository.jpa.JpaUpdates;
 
 /**
  * @author Vitaliy Fedoriv
@@ -33,14 +45,63 @@ public class SpringDataPetRepositoryImpl implements PetRepositoryOverride {
 	@PersistenceContext
     private EntityManager em;
 
+	@Value("${petclinic.repository.stream-fetch-size:500}")
+	private int streamFetchSize;
+
+	@Override
+	public Pet findById(int id, FetchProfile profile) {
+		return this.em.find(Pet.class, id, JpaFetchGraphs.hints(this.em, profile, Pet.DETAILS_GRAPH));
+	}
+
 	@Override
 	public void delete(Pet pet) {
-		String petId = pet.getId().toString();
-		this.em.createQuery("DELETE FROM Visit visit WHERE pet.id=" + petId).executeUpdate();
-		this.em.createQuery("DELETE FROM Pet pet WHERE id=" + petId).executeUpdate();
-        if (em.contains(pet)) {
-            em.remove(pet);
-        }
+		JpaUpdates.delete(this.em, pet);
+	}
+
+	/**
+	 * Loads a page of pets through a seek on <code>(name, id)</code> rather than an offset. The ids of the page are
+	 * selected first so that the limit applies in the database, see {@link JpaFetchGraphs#fetchPage}.
+	 */
+	@Override
+	public List<Pet> findPage(String afterName, Integer afterId, int limit, FetchProfile profile) {
+		TypedQuery<Integer> query;
+		if (afterId == null) {
+			query = this.em.createQuery("SELECT pet.id FROM Pet pet ORDER BY pet.name, pet.id", Integer.class);
+		} else {
+			query = this.em.createQuery("SELECT pet.id FROM Pet pet WHERE pet.name >= :afterName AND (pet.name > :afterName OR pet.id > :afterId) " +
+					"ORDER BY pet.name, pet.id", Integer.class)
+				.setParameter("afterName", afterName)
+				.setParameter("afterId", afterId);
+		}
+		return JpaFetchGraphs.fetchPage(this.em, query.setMaxResults(limit), Pet.class,
+			profile == FetchProfile.FULL ? Pet.DETAILS_GRAPH : Pet.SUMMARY_GRAPH);
+	}
+
+	/**
+	 * Streams the {@link Pet Pets} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Pet> streamAll() {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT pet FROM Pet pet ORDER BY pet.id", Pet.class), Pet.DETAILS_GRAPH), this.streamFetchSize);
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<PetView> findAllViews(FetchProfile profile) {
+		return JpaProjections.findPets(this.em, null, Map.of(), profile);
+	}
+
+	@Override
+	public PetView findViewById(int id, FetchProfile profile) {
+		return JpaProjections.single(JpaProjections.findPets(this.em, "pet.id = :id", Map.of("id", id), profile));
+	}
+
+	@Override
+	public boolean update(Pet pet) {
+		return JpaUpdates.update(this.em, pet);
 	}
 
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.repository.springdatajpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.repository.jpa.JpaFetchGraphs;
+import org.springframework.samples.petclinic.repository.jpa.JpaUpdates;
+
+@Profile("spring-data-jpa")
+public class SpringDataVetRepositoryImpl implements VetRepositoryOverride {
+
+	@PersistenceContext
+    private EntityManager em;
+
+	@Override
+	public Vet findById(int id) {
+		return findById(id, FetchProfile.FULL);
+	}
+
+	@Override
+	public Vet findById(int id, FetchProfile profile) {
+		return JpaFetchGraphs.find(this.em, Vet.class, id, profile, Vet.SPECIALTIES_GRAPH);
+	}
+
+	@Override
+	public void delete(Vet vet) {
+		JpaUpdates.delete(this.em, vet);
+	}
+
+	@Override
+	public boolean update(Vet vet) {
+		return JpaUpdates.update(this.em, vet);
+	}
+
+}
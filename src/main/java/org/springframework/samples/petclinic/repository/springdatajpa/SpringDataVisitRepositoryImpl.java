@@ -16,12 +16,23 @@
 
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
+import org.springframework.samples.petclinic.repository.jpa.JpaFetchGraphs;
+import org.springframework.samples.petclinic.repository.jpa.JpaProjections;
+import org.springframework.samples.petclinic.repository.jpa.JpaStreamSupport;
+import org.springframework.samples.petclinic.repository.jpa.JpaUpdates;
 
 /**
  * @author Vitaliy Fedoriv
@@ -34,6 +45,9 @@ public class SpringDataVisitRepositoryImpl implements VisitRepositoryOverride {
 	@PersistenceContext
     private EntityManager em;
 
+	@Value("${petclinic.repository.stream-fetch-size:500}")
+	private int streamFetchSize;
+
 	@Override
 	public void delete(Visit visit) throws DataAccessException {
 		String visitId = visit.getId().toString();
@@ -43,5 +57,51 @@ public class SpringDataVisitRepositoryImpl implements VisitRepositoryOverride {
         }
 	}
 
+	/**
+	 * Loads a page of visits through a seek on <code>(date, id)</code> rather than an offset. As the graph of the
+	 * visits only joins single valued associations, the limit applies in the database.
+	 */
+	@Override
+	public List<Visit> findPage(LocalDate afterDate, Integer afterId, int limit) {
+		if (afterId == null) {
+			return JpaFetchGraphs.fetch(this.em,
+					this.em.createQuery("SELECT visit FROM Visit visit ORDER BY visit.date, visit.id", Visit.class), Visit.PET_GRAPH)
+				.setMaxResults(limit)
+				.getResultList();
+		}
+		return JpaFetchGraphs.fetch(this.em, this.em.createQuery("SELECT visit FROM Visit visit WHERE visit.date >= :afterDate AND (visit.date > :afterDate OR visit.id > :afterId) " +
+				"ORDER BY visit.date, visit.id", Visit.class), Visit.PET_GRAPH)
+			.setParameter("afterDate", afterDate)
+			.setParameter("afterId", afterId)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+
+	/**
+	 * Streams the {@link Visit Visits} through a scrollable result, see {@link JpaStreamSupport#stream}.
+	 */
+	@Override
+	public Stream<Visit> streamAll() {
+		return JpaStreamSupport.stream(this.em, JpaFetchGraphs.fetch(this.em,
+			this.em.createQuery("SELECT visit FROM Visit visit ORDER BY visit.id", Visit.class), Visit.PET_GRAPH), this.streamFetchSize);
+	}
+
+	/**
+	 * Selects the views with constructor expressions, see {@link JpaProjections}.
+	 */
+	@Override
+	public List<VisitView> findAllViews() {
+		return JpaProjections.findVisits(this.em, null, Map.of());
+	}
+
+	@Override
+	public VisitView findViewById(int id) {
+		return JpaProjections.single(JpaProjections.findVisits(this.em, "visit.id = :id", Map.of("id", id)));
+	}
+
+	@Override
+	public boolean update(Visit visit) {
+		return JpaUpdates.update(this.em, visit);
+	}
 
 }
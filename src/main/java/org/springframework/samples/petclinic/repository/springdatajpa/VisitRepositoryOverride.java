@@ -16,8 +16,13 @@
 
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.springframework.context.annotation.Profile;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 
 /**
  * @author Vitaliy Fedoriv
@@ -29,4 +34,14 @@ public interface VisitRepositoryOverride {
 	
 	void delete(Visit visit);
 
+	boolean update(Visit visit);
+
+	List<Visit> findPage(LocalDate afterDate, Integer afterId, int limit);
+
+	Stream<Visit> streamAll();
+
+	List<VisitView> findAllViews();
+
+	VisitView findViewById(int id);
+
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.rest.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.VersionedEntity;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Strong entity tags of the representations returned by the GET endpoints, computed from the ids and versions of
+ * the entities they show rather than from the serialized body, so that a request whose <code>If-None-Match</code>
+ * header holds the current tag is answered by a 304 before any mapping or serialization.
+ * <p>
+ * The tag of a single entity starts with the version of that entity, followed by a dash and the hash, so that the
+ * PUT endpoints can turn the tag of an <code>If-Match</code> header into a version checking update without reading
+ * the entity first. Only that version is checked: the hash must have the form of one, but is not compared, as that
+ * would take reading the entity. As the changes of the pets and visits of an owner do not increment its version, the
+ * tag of an owner read before one of its pets changed still matches its current version. A successful update
+ * answers with the tag of the new version, for the next conditional update to send.
+ * <p>
+ * The tag of a collection, or of an aggregate such as an owner with its pets and visits, hashes the ids and
+ * versions of all its members: it changes as soon as one of them is added, removed or updated. Names of other
+ * entities shown along, such as the pet type of a pet, are hashed as well since their changes do not increment
+ * the version of the entity showing them.
+ */
+final class EntityTags {
+
+    private static final Pattern ENTITY_TAG = Pattern.compile("(\\d+)-[0-9a-f]{32}");
+
+    private EntityTags() {
+    }
+
+    static String of(OwnerView owner) {
+        StringBuilder state = new StringBuilder();
+        append(state, 'o', owner.id(), owner.version());
+        for (PetView pet : owner.pets()) {
+            append(state, pet);
+        }
+        return tag(owner.version(), state);
+    }
+
+    static String of(PetView pet) {
+        return tag(pet.version(), append(new StringBuilder(), pet));
+    }
+
+    static String of(VisitView visit) {
+        return tag(visit.version(), append(new StringBuilder(), 'v', visit.id(), visit.version()));
+    }
+
+    static String of(Visit visit) {
+        return tag(visit.getVersion(), append(new StringBuilder(), 'v', visit));
+    }
+
+    static String of(Vet vet) {
+        return tag(vet.getVersion(), append(new StringBuilder(), vet));
+    }
+
+    static String ofVets(Collection<Vet> vets) {
+        StringBuilder state = new StringBuilder();
+        for (Vet vet : vets) {
+            append(state, vet);
+        }
+        return tag(state);
+    }
+
+    static String of(PetType petType) {
+        return tag(petType.getVersion(), append(new StringBuilder(), 't', petType));
+    }
+
+    static String ofSpecialties(Collection<Specialty> specialties) {
+        StringBuilder state = new StringBuilder();
+        for (Specialty specialty : specialties) {
+            append(state, 's', specialty);
+        }
+        return tag(state);
+    }
+
+    static String of(Specialty specialty) {
+        return tag(specialty.getVersion(), append(new StringBuilder(), 's', specialty));
+    }
+
+    static String ofPetTypes(Collection<PetType> petTypes) {
+        StringBuilder state = new StringBuilder();
+        for (PetType petType : petTypes) {
+            append(state, 't', petType);
+        }
+        return tag(state);
+    }
+
+    /**
+     * The tag of the representation tagged by the given tag, limited to the given fields: the fields are hashed
+     * along, while the version of a single entity still leads the tag.
+     */
+    static String withFields(String tag, SparseFields fields) {
+        if (fields.isAll()) {
+            return tag;
+        }
+        String value = ETag.create(tag).tag();
+        int dash = value.indexOf('-');
+        StringBuilder state = new StringBuilder(value).append('|').append(fields);
+        return dash > 0 ? tag(Integer.parseInt(value.substring(0, dash)), state) : tag(state);
+    }
+
+    /**
+     * Whether the <code>If-None-Match</code> header of the current request matches the given tag, using the weak
+     * comparison required for this header.
+     */
+    static boolean isNotModified(String tag) {
+        ETag current = ETag.create(tag);
+        Enumeration<String> headers = currentRequest().getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (headers.hasMoreElements()) {
+            for (ETag ifNoneMatch : ETag.parse(headers.nextElement())) {
+                if (ifNoneMatch.isWildcard() || ifNoneMatch.compare(current, false)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A 304 response without body, holding the given tag.
+     */
+    static <T> ResponseEntity<T> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+    }
+
+    /**
+     * The version of the entity tag held by the <code>If-Match</code> header of the current request, which a PUT
+     * endpoint only updates the entity at. Returns <code>null</code> without that header or with a wildcard, for
+     * the endpoint to update whichever version it finds, and -1, which no version matches, when the header holds
+     * no strong tag of a single entity, as a weak tag never matches an <code>If-Match</code> header. A tag whose hash
+     * does not have the form of the hashes of this class is not one of a single entity.
+     */
+    static Integer ifMatchVersion() {
+        Enumeration<String> headers = currentRequest().getHeaders(HttpHeaders.IF_MATCH);
+        if (!headers.hasMoreElements()) {
+            return null;
+        }
+        while (headers.hasMoreElements()) {
+            for (ETag ifMatch : ETag.parse(headers.nextElement())) {
+                if (ifMatch.isWildcard()) {
+                    return null;
+                }
+                Matcher entityTag = ENTITY_TAG.matcher(ifMatch.tag());
+                if (!ifMatch.weak() && entityTag.matches()) {
+                    try {
+                        return Integer.parseInt(entityTag.group(1));
+                    } catch (NumberFormatException ex) {
+                        // Not a version, try the next tag
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The 204 response of a PUT endpoint whose version checking update succeeded, holding the tag of the new version.
+     */
+    static <T> ResponseEntity<T> updated(String tag) {
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).eTag(tag).build();
+    }
+
+    /**
+     * The response of a PUT endpoint whose version checking update changed nothing: a 412 if the entity exists,
+     * as its version no longer matches the <code>If-Match</code> header, and a 404 otherwise.
+     */
+    static <T> ResponseEntity<T> notUpdated(boolean exists) {
+        return new ResponseEntity<>(exists ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND);
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    private static StringBuilder append(StringBuilder state, PetView pet) {
+        append(state, 'p', pet.id(), pet.version()).append(pet.typeId()).append('=').append(pet.typeName());
+        for (VisitView visit : pet.visits()) {
+            append(state, 'v', visit.id(), visit.version());
+        }
+        return state;
+    }
+
+    private static StringBuilder append(StringBuilder state, Vet vet) {
+        append(state, 'e', vet);
+        for (Specialty specialty : vet.getSpecialties()) {
+            append(state, 's', specialty);
+        }
+        return state;
+    }
+
+    private static StringBuilder append(StringBuilder state, char kind, VersionedEntity entity) {
+        return append(state, kind, entity.getId(), entity.getVersion());
+    }
+
+    private static StringBuilder append(StringBuilder state, char kind, Integer id, int version) {
+        return state.append(kind).append(id).append('@').append(version).append(';');
+    }
+
+    private static String tag(int version, StringBuilder state) {
+        return "\"" + version + '-' + hash(state) + '"';
+    }
+
+    private static String tag(StringBuilder state) {
+        return '"' + hash(state) + '"';
+    }
+
+    private static String hash(StringBuilder state) {
+        return DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
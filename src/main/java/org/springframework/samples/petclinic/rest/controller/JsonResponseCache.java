@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.rest.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Cache of the serialized bodies of GET endpoints whose content rarely changes, such as the lists of the reference
+ * data. A body is stored as its UTF-8 JSON bytes along with their gzip compression and its entity tag, so that a hit
+ * is answered without loading entities, mapping them to DTOs or running Jackson: the bytes are written straight to
+ * the output stream of the response, compressed if the request accepts gzip.
+ * <p>
+ * The entries are evicted by the writes of the
+ * {@link org.springframework.samples.petclinic.service.ClinicService ClinicService} changing their content, see
+ * {@link org.springframework.samples.petclinic.config.CacheConfig CacheConfig}.
+ */
+@Component
+class JsonResponseCache {
+
+    private static final String KEY = "body";
+
+    private static final String GZIP = "gzip";
+
+    private final CacheManager cacheManager;
+
+    private final JsonMapper jsonMapper;
+
+    JsonResponseCache(CacheManager cacheManager, JsonMapper jsonMapper) {
+        this.cacheManager = cacheManager;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Answers the current GET request with the body cached in the given cache, built from the content returned by the
+     * loader on a miss. A missing content, returned as <code>null</code> by the loader, is answered with a 404 and
+     * not cached, so that the next request runs the loader again.
+     * <p>
+     * Returns the response for the controller to return: a 304 if the <code>If-None-Match</code> header holds the
+     * tag of the body, or <code>null</code> once the body has been written to the response, which tells Spring MVC
+     * that the request has been handled.
+     */
+    <T> ResponseEntity<T> respond(String cacheName, Supplier<Content> loader) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+        Body body = cache.get(KEY, () -> serialize(loader.get()));
+        if (body == null) {
+            cache.evict(KEY);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (EntityTags.isNotModified(body.etag())) {
+            // a cache keeping the 304 must tell it apart by the encoding as it does the 200
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(body.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        ServletRequestAttributes attributes =
+            (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        HttpServletResponse response = attributes.getResponse();
+        boolean gzip = acceptsGzip(attributes.getRequest());
+        byte[] bytes = gzip ? body.gzip() : body.json();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(bytes.length);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            // the compressed representation differs byte for byte from the uncompressed one
+            response.setHeader(HttpHeaders.ETAG, "W/" + body.etag());
+        } else {
+            response.setHeader(HttpHeaders.ETAG, body.etag());
+        }
+        try {
+            response.getOutputStream().write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return null;
+    }
+
+    private Body serialize(Content content) {
+        if (content == null) {
+            return null;
+        }
+        byte[] json = this.jsonMapper.writeValueAsBytes(content.body());
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new Body(content.etag(), json, gzip.toByteArray());
+    }
+
+    /**
+     * Whether the <code>Accept-Encoding</code> headers of the request list gzip, or a wildcard, with a non-zero
+     * quality.
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers.hasMoreElements()) {
+            for (String coding : StringUtils.tokenizeToStringArray(headers.nextElement(), ",")) {
+                String[] parameters = StringUtils.tokenizeToStringArray(coding, ";");
+                if ((GZIP.equalsIgnoreCase(parameters[0]) || "*".equals(parameters[0]))
+                    && (parameters.length == 1 || !parameters[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The content of a body: its entity tag, and the object serialized as its JSON.
+     */
+    record Content(String etag, Object body) {
+    }
+
+    private record Body(String etag, byte[] json, byte[] gzip) {
+    }
+
+}
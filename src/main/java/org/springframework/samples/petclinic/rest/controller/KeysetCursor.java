@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.rest.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of the keyset pagination of the list endpoints, holding the sort key and the id of the last
+ * item of the previous page. The next page starts right after this (key, id) pair, so that it is found through
+ * an index seek whatever its depth, instead of skipping rows as an OFFSET does.
+ * <p>
+ * The cursor is encoded as URL-safe Base64 so that clients do not rely on its content.
+ */
+public final class KeysetCursor {
+
+    /**
+     * Response header holding the cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Cursor of the first page, with neither key nor id.
+     */
+    public static final KeysetCursor START = new KeysetCursor(null, null);
+
+    static final int DEFAULT_LIMIT = 20;
+
+    static final int MAX_LIMIT = 100;
+
+    private static final char SEPARATOR = ':';
+
+    private final String key;
+
+    private final Integer id;
+
+    private KeysetCursor(String key, Integer id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * Encode the cursor of the page following the given last item.
+     *
+     * @param key the sort key of the last item of the page, such as a last name or a date
+     * @param id  the id of the last item of the page
+     * @return the opaque cursor
+     */
+    public static String encode(Object key, int id) {
+        String value = Integer.toString(id) + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor received as the <code>after</code> parameter.
+     *
+     * @param cursor the opaque cursor, or <code>null</code> for the first page
+     * @return the decoded cursor, or {@link #START} if <code>cursor</code> is <code>null</code>
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null) {
+            return START;
+        }
+        String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = value.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        try {
+            return new KeysetCursor(value.substring(separator + 1), Integer.valueOf(value.substring(0, separator)));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, ex);
+        }
+    }
+
+    /**
+     * Resolve the requested page size, defaulting to {@value #DEFAULT_LIMIT} and capped to {@value #MAX_LIMIT}.
+     *
+     * @throws IllegalArgumentException if the requested limit is not positive
+     */
+    public static int pageLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not an ISO date
+     */
+    public LocalDate getDateKey() {
+        if (this.key == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(this.key);
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("Malformed cursor date: " + this.key, ex);
+        }
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+}
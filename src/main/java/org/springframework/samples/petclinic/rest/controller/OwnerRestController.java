@@ -22,9 +22,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.mapper.OwnerMapper;
 import org.springframework.samples.petclinic.mapper.PetMapper;
 import org.springframework.samples.petclinic.mapper.VisitMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.rest.api.OwnersApi;
 import org.springframework.samples.petclinic.rest.dto.*;
 import org.springframework.samples.petclinic.service.ClinicService;
@@ -36,7 +39,6 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import jakarta.transaction.Transactional;
 
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -44,7 +46,7 @@ import java.util.List;
  */
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag, " + KeysetCursor.NEXT_CURSOR_HEADER)
 @RequestMapping("/api")
 public class OwnerRestController implements OwnersApi {
 
@@ -56,39 +58,86 @@ public class OwnerRestController implements OwnersApi {
 
     private final VisitMapper visitMapper;
 
+    private final SparseFieldsWriter sparseFieldsWriter;
+
     public OwnerRestController(ClinicService clinicService,
                                OwnerMapper ownerMapper,
                                PetMapper petMapper,
-                               VisitMapper visitMapper) {
+                               VisitMapper visitMapper,
+                               SparseFieldsWriter sparseFieldsWriter) {
         this.clinicService = clinicService;
         this.ownerMapper = ownerMapper;
         this.petMapper = petMapper;
         this.visitMapper = visitMapper;
+        this.sparseFieldsWriter = sparseFieldsWriter;
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<List<OwnerDto>> listOwners(String lastName) {
-        Collection<Owner> owners;
+    public ResponseEntity<List<OwnerDto>> listOwners(String lastName, String after, Integer limit,
+                                                     List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        // the pets, and their visits, are only read when some of their properties are returned
+        FetchProfile profile = sparseFields.includes("pets") ? FetchProfile.FULL : FetchProfile.SUMMARY;
+        if (after != null || limit != null) {
+            return listOwnersPage(lastName, after, limit, sparseFields, profile);
+        }
+        List<OwnerView> owners;
         if (lastName != null) {
-            owners = this.clinicService.findOwnerByLastName(lastName);
+            owners = this.clinicService.findOwnerViewsByLastName(lastName, profile);
         } else {
-            owners = this.clinicService.findAllOwners();
+            owners = this.clinicService.findAllOwnerViews(profile);
         }
         if (owners.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(ownerMapper.toOwnerDtoCollection(owners), HttpStatus.OK);
+        return this.sparseFieldsWriter.write(new ResponseEntity<>(ownerMapper.toOwnerViewDtos(owners), HttpStatus.OK),
+            sparseFields);
+    }
+
+    private ResponseEntity<List<OwnerDto>> listOwnersPage(String lastName, String after, Integer limit,
+                                                          SparseFields sparseFields, FetchProfile profile) {
+        KeysetCursor cursor;
+        int pageLimit;
+        try {
+            cursor = KeysetCursor.decode(after);
+            pageLimit = KeysetCursor.pageLimit(limit);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // one more owner than the limit is read to know whether there is a next page
+        List<Owner> owners = this.clinicService.findOwnersPage(lastName, cursor.getKey(), cursor.getId(), pageLimit + 1,
+            profile);
+        HttpHeaders headers = new HttpHeaders();
+        if (owners.size() > pageLimit) {
+            owners = owners.subList(0, pageLimit);
+            Owner last = owners.get(pageLimit - 1);
+            headers.set(KeysetCursor.NEXT_CURSOR_HEADER, KeysetCursor.encode(last.getLastName(), last.getId()));
+        }
+        if (owners.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        List<OwnerDto> ownerDtos = profile == FetchProfile.FULL ? ownerMapper.toOwnerDtoCollection(owners)
+            : ownerMapper.toOwnerSummaryDtos(owners);
+        return this.sparseFieldsWriter.write(new ResponseEntity<>(ownerDtos, headers, HttpStatus.OK), sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<OwnerDto> getOwner(Integer ownerId) {
-        Owner owner = this.clinicService.findOwnerById(ownerId);
+    public ResponseEntity<OwnerDto> getOwner(Integer ownerId, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        // only the whole owner aggregate is cached, the owner alone is read as is
+        OwnerView owner = sparseFields.includes("pets") ? this.clinicService.findOwnerViewById(ownerId)
+            : this.clinicService.findOwnerViewById(ownerId, FetchProfile.SUMMARY);
         if (owner == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(ownerMapper.toOwnerDto(owner), HttpStatus.OK);
+        String etag = EntityTags.withFields(EntityTags.of(owner), sparseFields);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return this.sparseFieldsWriter.write(ResponseEntity.ok().eTag(etag).body(ownerMapper.toOwnerDto(owner)),
+            sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
@@ -106,7 +155,17 @@ public class OwnerRestController implements OwnersApi {
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
     public ResponseEntity<OwnerDto> updateOwner(Integer ownerId, OwnerFieldsDto ownerFieldsDto) {
-        Owner currentOwner = this.clinicService.findOwnerById(ownerId);
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Owner owner = ownerMapper.toOwner(ownerFieldsDto);
+            owner.setId(ownerId);
+            owner.setVersion(version);
+            if (!this.clinicService.updateOwner(owner)) {
+                return EntityTags.notUpdated(this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY) != null);
+            }
+            return EntityTags.updated(EntityTags.of(this.clinicService.findOwnerViewById(ownerId)));
+        }
+        Owner currentOwner = this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY);
         if (currentOwner == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -116,14 +175,14 @@ public class OwnerRestController implements OwnersApi {
         currentOwner.setLastName(ownerFieldsDto.getLastName());
         currentOwner.setTelephone(ownerFieldsDto.getTelephone());
         this.clinicService.saveOwner(currentOwner);
-        return new ResponseEntity<>(ownerMapper.toOwnerDto(currentOwner), HttpStatus.NO_CONTENT);
+        return new ResponseEntity<>(ownerMapper.toOwnerSummaryDto(currentOwner), HttpStatus.NO_CONTENT);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Transactional
     @Override
     public ResponseEntity<OwnerDto> deleteOwner(Integer ownerId) {
-        Owner owner = this.clinicService.findOwnerById(ownerId);
+        Owner owner = this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY);
         if (owner == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -150,9 +209,23 @@ public class OwnerRestController implements OwnersApi {
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
     public ResponseEntity<Void> updateOwnersPet(Integer ownerId, Integer petId, PetFieldsDto petFieldsDto) {
-        Owner currentOwner = this.clinicService.findOwnerById(ownerId);
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Owner owner = new Owner();
+            owner.setId(ownerId);
+            Pet pet = petMapper.toPet(petFieldsDto);
+            pet.setId(petId);
+            pet.setVersion(version);
+            pet.setOwner(owner);
+            if (!this.clinicService.updatePet(pet)) {
+                Pet currentPet = this.clinicService.findPetById(petId, FetchProfile.SUMMARY);
+                return EntityTags.notUpdated(currentPet != null && ownerId.equals(currentPet.getOwner().getId()));
+            }
+            return EntityTags.updated(EntityTags.of(this.clinicService.findPetViewById(petId, FetchProfile.FULL)));
+        }
+        Owner currentOwner = this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY);
         if (currentOwner != null) {
-            Pet currentPet = this.clinicService.findPetById(petId);
+            Pet currentPet = this.clinicService.findPetById(petId, FetchProfile.SUMMARY);
             if (currentPet != null) {
                 currentPet.setBirthDate(petFieldsDto.getBirthDate());
                 currentPet.setName(petFieldsDto.getName());
@@ -182,12 +255,19 @@ public class OwnerRestController implements OwnersApi {
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<PetDto> getOwnersPet(Integer ownerId, Integer petId) {
-        Owner owner = this.clinicService.findOwnerById(ownerId);
+    public ResponseEntity<PetDto> getOwnersPet(Integer ownerId, Integer petId, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        OwnerView owner = this.clinicService.findOwnerViewById(ownerId);
         if (owner != null) {
-            Pet pet = owner.getPet(petId);
-            if (pet != null) {
-                return new ResponseEntity<>(petMapper.toPetDto(pet), HttpStatus.OK);
+            for (PetView pet : owner.pets()) {
+                if (pet.id().equals(petId)) {
+                    String etag = EntityTags.withFields(EntityTags.of(pet), sparseFields);
+                    if (EntityTags.isNotModified(etag)) {
+                        return EntityTags.notModified(etag);
+                    }
+                    return this.sparseFieldsWriter.write(ResponseEntity.ok().eTag(etag).body(petMapper.toPetDto(pet)),
+                        sparseFields);
+                }
             }
         }
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
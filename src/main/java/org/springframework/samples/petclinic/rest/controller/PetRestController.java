@@ -16,10 +16,13 @@
 
 package org.springframework.samples.petclinic.rest.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.mapper.PetMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.rest.api.PetsApi;
 import org.springframework.samples.petclinic.rest.dto.PetDto;
 import org.springframework.samples.petclinic.service.ClinicService;
@@ -36,7 +39,7 @@ import java.util.List;
  */
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag, " + KeysetCursor.NEXT_CURSOR_HEADER)
 @RequestMapping("api")
 public class PetRestController implements PetsApi {
 
@@ -44,36 +47,95 @@ public class PetRestController implements PetsApi {
 
     private final PetMapper petMapper;
 
-    public PetRestController(ClinicService clinicService, PetMapper petMapper) {
+    private final SparseFieldsWriter sparseFieldsWriter;
+
+    public PetRestController(ClinicService clinicService, PetMapper petMapper, SparseFieldsWriter sparseFieldsWriter) {
         this.clinicService = clinicService;
         this.petMapper = petMapper;
+        this.sparseFieldsWriter = sparseFieldsWriter;
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<PetDto> getPet(Integer petId) {
-        PetDto pet = petMapper.toPetDto(this.clinicService.findPetById(petId));
+    public ResponseEntity<PetDto> getPet(Integer petId, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        PetView pet = this.clinicService.findPetViewById(petId, visitsProfile(sparseFields));
         if (pet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(pet, HttpStatus.OK);
+        String etag = EntityTags.withFields(EntityTags.of(pet), sparseFields);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return this.sparseFieldsWriter.write(ResponseEntity.ok().eTag(etag).body(petMapper.toPetDto(pet)),
+            sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<List<PetDto>> listPets() {
-        List<PetDto> pets = new ArrayList<>(petMapper.toPetsDto(this.clinicService.findAllPets()));
+    public ResponseEntity<List<PetDto>> listPets(String after, Integer limit, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        if (after != null || limit != null) {
+            return listPetsPage(after, limit, sparseFields);
+        }
+        List<PetDto> pets = petMapper.toPetViewDtos(this.clinicService.findAllPetViews(visitsProfile(sparseFields)));
         if (pets.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(pets, HttpStatus.OK);
+        return this.sparseFieldsWriter.write(new ResponseEntity<>(pets, HttpStatus.OK), sparseFields);
+    }
+
+    /**
+     * The visits are only read when some of their properties are returned.
+     */
+    private static FetchProfile visitsProfile(SparseFields sparseFields) {
+        return sparseFields.includes("visits") ? FetchProfile.FULL : FetchProfile.SUMMARY;
+    }
+
+    private ResponseEntity<List<PetDto>> listPetsPage(String after, Integer limit, SparseFields sparseFields) {
+        KeysetCursor cursor;
+        int pageLimit;
+        try {
+            cursor = KeysetCursor.decode(after);
+            pageLimit = KeysetCursor.pageLimit(limit);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // one more pet than the limit is read to know whether there is a next page
+        FetchProfile profile = visitsProfile(sparseFields);
+        List<Pet> pets = this.clinicService.findPetsPage(cursor.getKey(), cursor.getId(), pageLimit + 1, profile);
+        HttpHeaders headers = new HttpHeaders();
+        if (pets.size() > pageLimit) {
+            pets = pets.subList(0, pageLimit);
+            Pet last = pets.get(pageLimit - 1);
+            headers.set(KeysetCursor.NEXT_CURSOR_HEADER, KeysetCursor.encode(last.getName(), last.getId()));
+        }
+        if (pets.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        List<PetDto> petDtos = profile == FetchProfile.FULL ? new ArrayList<>(petMapper.toPetsDto(pets))
+            : petMapper.toPetSummaryDtos(pets);
+        return this.sparseFieldsWriter.write(new ResponseEntity<>(petDtos, headers, HttpStatus.OK), sparseFields);
     }
 
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
     public ResponseEntity<PetDto> updatePet(Integer petId, PetDto petDto) {
-        Pet currentPet = this.clinicService.findPetById(petId);
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Pet pet = new Pet();
+            pet.setId(petId);
+            pet.setVersion(version);
+            pet.setBirthDate(petDto.getBirthDate());
+            pet.setName(petDto.getName());
+            pet.setType(petMapper.toPetType(petDto.getType()));
+            if (!this.clinicService.updatePet(pet)) {
+                return EntityTags.notUpdated(this.clinicService.findPetById(petId, FetchProfile.SUMMARY) != null);
+            }
+            return EntityTags.updated(EntityTags.of(this.clinicService.findPetViewById(petId, FetchProfile.FULL)));
+        }
+        Pet currentPet = this.clinicService.findPetById(petId, FetchProfile.SUMMARY);
         if (currentPet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -81,13 +143,13 @@ public class PetRestController implements PetsApi {
         currentPet.setName(petDto.getName());
         currentPet.setType(petMapper.toPetType(petDto.getType()));
         this.clinicService.savePet(currentPet);
-        return new ResponseEntity<>(petMapper.toPetDto(currentPet), HttpStatus.NO_CONTENT);
+        return new ResponseEntity<>(petMapper.toPetSummaryDto(currentPet), HttpStatus.NO_CONTENT);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
     public ResponseEntity<PetDto> deletePet(Integer petId) {
-        Pet pet = this.clinicService.findPetById(petId);
+        Pet pet = this.clinicService.findPetById(petId, FetchProfile.SUMMARY);
         if (pet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -29,33 +29,38 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import static org.springframework.samples.petclinic.config.CacheConfig.PET_TYPES_JSON;
+
 import jakarta.transaction.Transactional;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag")
 @RequestMapping("api")
 public class PetTypeRestController implements PettypesApi {
 
     private final ClinicService clinicService;
     private final PetTypeMapper petTypeMapper;
+    private final JsonResponseCache jsonResponseCache;
 
 
-    public PetTypeRestController(ClinicService clinicService, PetTypeMapper petTypeMapper) {
+    public PetTypeRestController(ClinicService clinicService, PetTypeMapper petTypeMapper,
+                                 JsonResponseCache jsonResponseCache) {
         this.clinicService = clinicService;
         this.petTypeMapper = petTypeMapper;
+        this.jsonResponseCache = jsonResponseCache;
     }
 
     @PreAuthorize("hasAnyRole(@roles.OWNER_ADMIN, @roles.VET_ADMIN)")
     @Override
     public ResponseEntity<List<PetTypeDto>> listPetTypes() {
-        List<PetType> petTypes = new ArrayList<>(this.clinicService.findAllPetTypes());
-        if (petTypes.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(petTypeMapper.toPetTypeDtos(petTypes), HttpStatus.OK);
+        return this.jsonResponseCache.respond(PET_TYPES_JSON, () -> {
+            Collection<PetType> petTypes = this.clinicService.findAllPetTypes();
+            return petTypes.isEmpty() ? null : new JsonResponseCache.Content(EntityTags.ofPetTypes(petTypes),
+                petTypeMapper.toPetTypeDtos(petTypes));
+        });
     }
 
     @PreAuthorize("hasAnyRole(@roles.OWNER_ADMIN, @roles.VET_ADMIN)")
@@ -65,7 +70,11 @@ public class PetTypeRestController implements PettypesApi {
         if (petType == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(petTypeMapper.toPetTypeDto(petType), HttpStatus.OK);
+        String etag = EntityTags.of(petType);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(petTypeMapper.toPetTypeDto(petType));
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
@@ -81,13 +90,27 @@ public class PetTypeRestController implements PettypesApi {
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
     public ResponseEntity<PetTypeDto> updatePetType(Integer petTypeId, PetTypeDto petTypeDto) {
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            PetType petType = new PetType();
+            petType.setId(petTypeId);
+            petType.setVersion(version);
+            petType.setName(petTypeDto.getName());
+            if (!this.clinicService.updatePetType(petType)) {
+                return EntityTags.notUpdated(this.clinicService.findPetTypeById(petTypeId) != null);
+            }
+            return EntityTags.updated(EntityTags.of(petType));
+        }
         PetType currentPetType = this.clinicService.findPetTypeById(petTypeId);
         if (currentPetType == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        currentPetType.setName(petTypeDto.getName());
-        this.clinicService.savePetType(currentPetType);
-        return new ResponseEntity<>(petTypeMapper.toPetTypeDto(currentPetType), HttpStatus.NO_CONTENT);
+        PetType petType = new PetType();
+        petType.setId(petTypeId);
+        petType.setVersion(currentPetType.getVersion());
+        petType.setName(petTypeDto.getName());
+        this.clinicService.savePetType(petType);
+        return new ResponseEntity<>(petTypeMapper.toPetTypeDto(petType), HttpStatus.NO_CONTENT);
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
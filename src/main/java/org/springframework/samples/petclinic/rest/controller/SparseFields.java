@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.rest.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+import org.springframework.util.StringUtils;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * The properties requested by the <code>fields</code> parameter of a GET endpoint, which limits the returned
+ * representation to them. A property of a nested object, or of the items of a nested array, is named by its path,
+ * such as <code>pets.name</code>, while naming the nested property alone, such as <code>pets</code>, requests it
+ * whole. Names matching no property are ignored.
+ * <p>
+ * The endpoints also ask it which associations are requested, so that those which are not are never loaded.
+ */
+final class SparseFields {
+
+    /**
+     * All the properties, requested by an omitted or empty <code>fields</code> parameter.
+     */
+    static final SparseFields ALL = new SparseFields(null);
+
+    private static final char SEPARATOR = '.';
+
+    /**
+     * The requested properties by name, with their own requested properties, or <code>null</code> for all.
+     */
+    private final Map<String, SparseFields> properties;
+
+    private SparseFields(Map<String, SparseFields> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Parse the values of the <code>fields</code> parameter, each holding one or more comma separated paths.
+     */
+    static SparseFields of(List<String> fields) {
+        if (fields == null) {
+            return ALL;
+        }
+        SparseFields requested = new SparseFields(new TreeMap<>());
+        for (String field : fields) {
+            for (String path : StringUtils.tokenizeToStringArray(field, ",")) {
+                requested.add(path);
+            }
+        }
+        return requested.properties.isEmpty() ? ALL : requested;
+    }
+
+    private void add(String path) {
+        int separator = path.indexOf(SEPARATOR);
+        if (separator < 0) {
+            this.properties.put(path, ALL);
+            return;
+        }
+        SparseFields nested = this.properties.computeIfAbsent(path.substring(0, separator),
+            name -> new SparseFields(new TreeMap<>()));
+        if (!nested.isAll()) {
+            nested.add(path.substring(separator + 1));
+        }
+    }
+
+    /**
+     * Whether all the properties are requested.
+     */
+    boolean isAll() {
+        return this.properties == null;
+    }
+
+    /**
+     * Whether the given property is requested, whole or some of its own properties.
+     */
+    boolean includes(String property) {
+        return isAll() || this.properties.containsKey(property);
+    }
+
+    /**
+     * Remove from the given JSON object, or from each object of the given JSON array, the properties which are not
+     * requested.
+     */
+    void apply(JsonNode node) {
+        if (isAll()) {
+            return;
+        }
+        if (node.isArray()) {
+            for (JsonNode item : node.values()) {
+                apply(item);
+            }
+        } else if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            object.retain(this.properties.keySet());
+            this.properties.forEach((name, nested) -> {
+                JsonNode value = object.get(name);
+                if (value != null) {
+                    nested.apply(value);
+                }
+            });
+        }
+    }
+
+    /**
+     * The requested properties, sorted by name with the requested properties of each nested one in parentheses,
+     * such as <code>firstName,lastName,pets(name)</code>: equal sets of requested properties have the same string,
+     * whatever the order of the parameter.
+     */
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "*";
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        this.properties.forEach((name, nested) -> joiner.add(nested.isAll() ? name : name + '(' + nested + ')'));
+        return joiner.toString();
+    }
+
+}
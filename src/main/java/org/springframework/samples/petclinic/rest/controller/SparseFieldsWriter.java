@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.rest.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes the responses of the GET endpoints limited to the properties requested by their <code>fields</code>
+ * parameter, see {@link SparseFields}. The body is turned into a JSON tree, whose properties which are not requested
+ * are removed before it is written straight to the output stream of the response, as the DTO types of the
+ * endpoints cannot hold a partial representation.
+ */
+@Component
+class SparseFieldsWriter {
+
+    private final JsonMapper jsonMapper;
+
+    SparseFieldsWriter(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Returns the given response itself when all the properties are requested or when it has no body. Otherwise
+     * writes its status, headers and body limited to the requested properties, and returns <code>null</code>, which
+     * tells Spring MVC that the request has been handled.
+     */
+    <T> ResponseEntity<T> write(ResponseEntity<T> response, SparseFields fields) {
+        if (fields.isAll() || !response.hasBody()) {
+            return response;
+        }
+        JsonNode body = this.jsonMapper.valueToTree(response.getBody());
+        fields.apply(body);
+        byte[] json = this.jsonMapper.writeValueAsBytes(body);
+        HttpServletResponse servletResponse =
+            ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getResponse();
+        servletResponse.setStatus(response.getStatusCode().value());
+        response.getHeaders().forEach((name, values) -> values.forEach(value -> servletResponse.addHeader(name, value)));
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setContentLength(json.length);
+        try {
+            servletResponse.getOutputStream().write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return null;
+    }
+
+}
@@ -28,8 +28,10 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import static org.springframework.samples.petclinic.config.CacheConfig.SPECIALTIES_JSON;
+
 import jakarta.transaction.Transactional;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -37,7 +39,7 @@ import java.util.List;
  */
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag")
 @RequestMapping("api")
 public class SpecialtyRestController implements SpecialtiesApi {
 
@@ -45,20 +47,23 @@ public class SpecialtyRestController implements SpecialtiesApi {
 
     private final SpecialtyMapper specialtyMapper;
 
-    public SpecialtyRestController(ClinicService clinicService, SpecialtyMapper specialtyMapper) {
+    private final JsonResponseCache jsonResponseCache;
+
+    public SpecialtyRestController(ClinicService clinicService, SpecialtyMapper specialtyMapper,
+                                   JsonResponseCache jsonResponseCache) {
         this.clinicService = clinicService;
         this.specialtyMapper = specialtyMapper;
+        this.jsonResponseCache = jsonResponseCache;
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
     public ResponseEntity<List<SpecialtyDto>> listSpecialties() {
-        List<SpecialtyDto> specialties = new ArrayList<>();
-        specialties.addAll(specialtyMapper.toSpecialtyDtos(this.clinicService.findAllSpecialties()));
-        if (specialties.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(specialties, HttpStatus.OK);
+        return this.jsonResponseCache.respond(SPECIALTIES_JSON, () -> {
+            Collection<Specialty> specialties = this.clinicService.findAllSpecialties();
+            return specialties.isEmpty() ? null : new JsonResponseCache.Content(EntityTags.ofSpecialties(specialties),
+                specialtyMapper.toSpecialtyDtos(specialties));
+        });
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
@@ -68,7 +73,11 @@ public class SpecialtyRestController implements SpecialtiesApi {
         if (specialty == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(specialtyMapper.toSpecialtyDto(specialty), HttpStatus.OK);
+        String etag = EntityTags.of(specialty);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(specialtyMapper.toSpecialtyDto(specialty));
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
@@ -84,13 +93,27 @@ public class SpecialtyRestController implements SpecialtiesApi {
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
     public ResponseEntity<SpecialtyDto> updateSpecialty(Integer specialtyId, SpecialtyDto specialtyDto) {
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Specialty specialty = new Specialty();
+            specialty.setId(specialtyId);
+            specialty.setVersion(version);
+            specialty.setName(specialtyDto.getName());
+            if (!this.clinicService.updateSpecialty(specialty)) {
+                return EntityTags.notUpdated(this.clinicService.findSpecialtyById(specialtyId) != null);
+            }
+            return EntityTags.updated(EntityTags.of(specialty));
+        }
         Specialty currentSpecialty = this.clinicService.findSpecialtyById(specialtyId);
         if (currentSpecialty == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        currentSpecialty.setName(specialtyDto.getName());
-        this.clinicService.saveSpecialty(currentSpecialty);
-        return new ResponseEntity<>(specialtyMapper.toSpecialtyDto(currentSpecialty), HttpStatus.NO_CONTENT);
+        Specialty specialty = new Specialty();
+        specialty.setId(specialtyId);
+        specialty.setVersion(currentSpecialty.getVersion());
+        specialty.setName(specialtyDto.getName());
+        this.clinicService.saveSpecialty(specialty);
+        return new ResponseEntity<>(specialtyMapper.toSpecialtyDto(specialty), HttpStatus.NO_CONTENT);
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
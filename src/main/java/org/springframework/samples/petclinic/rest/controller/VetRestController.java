@@ -20,18 +20,24 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.mapper.SpecialtyMapper;
 import org.springframework.samples.petclinic.mapper.VetMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.rest.api.VetsApi;
+import org.springframework.samples.petclinic.rest.dto.SpecialtyDto;
 import org.springframework.samples.petclinic.rest.dto.VetDto;
 import org.springframework.samples.petclinic.service.ClinicService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import static org.springframework.samples.petclinic.config.CacheConfig.VETS_JSON;
+
 import jakarta.transaction.Transactional;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -39,38 +45,63 @@ import java.util.stream.Collectors;
  */
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag")
 @RequestMapping("api")
 public class VetRestController implements VetsApi {
 
     private final ClinicService clinicService;
     private final VetMapper vetMapper;
     private final SpecialtyMapper specialtyMapper;
+    private final JsonResponseCache jsonResponseCache;
+    private final SparseFieldsWriter sparseFieldsWriter;
 
-    public VetRestController(ClinicService clinicService, VetMapper vetMapper, SpecialtyMapper specialtyMapper) {
+    public VetRestController(ClinicService clinicService, VetMapper vetMapper, SpecialtyMapper specialtyMapper,
+                             JsonResponseCache jsonResponseCache, SparseFieldsWriter sparseFieldsWriter) {
         this.clinicService = clinicService;
         this.vetMapper = vetMapper;
         this.specialtyMapper = specialtyMapper;
+        this.jsonResponseCache = jsonResponseCache;
+        this.sparseFieldsWriter = sparseFieldsWriter;
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
-    public ResponseEntity<List<VetDto>> listVets() {
-        List<VetDto> vets = new ArrayList<>(vetMapper.toVetDtos(this.clinicService.findAllVets()));
-        if (vets.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<List<VetDto>> listVets(List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        if (!sparseFields.isAll()) {
+            // the cached body holds all the properties, the cached vets are mapped again instead
+            Collection<Vet> vets = this.clinicService.findAllVets();
+            if (vets.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            String etag = EntityTags.withFields(EntityTags.ofVets(vets), sparseFields);
+            if (EntityTags.isNotModified(etag)) {
+                return EntityTags.notModified(etag);
+            }
+            return this.sparseFieldsWriter.write(
+                ResponseEntity.ok().eTag(etag).body(new ArrayList<>(vetMapper.toVetDtos(vets))), sparseFields);
         }
-        return new ResponseEntity<>(vets, HttpStatus.OK);
+        return this.jsonResponseCache.respond(VETS_JSON, () -> {
+            Collection<Vet> vets = this.clinicService.findAllVets();
+            return vets.isEmpty() ? null : new JsonResponseCache.Content(EntityTags.ofVets(vets),
+                vetMapper.toVetDtos(vets));
+        });
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
-    public ResponseEntity<VetDto> getVet(Integer vetId)  {
+    public ResponseEntity<VetDto> getVet(Integer vetId, List<String> fields)  {
+        SparseFields sparseFields = SparseFields.of(fields);
         Vet vet = this.clinicService.findVetById(vetId);
         if (vet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(vetMapper.toVetDto(vet), HttpStatus.OK);
+        String etag = EntityTags.withFields(EntityTags.of(vet), sparseFields);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return this.sparseFieldsWriter.write(ResponseEntity.ok().eTag(etag).body(vetMapper.toVetDto(vet)),
+            sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
@@ -90,20 +121,35 @@ public class VetRestController implements VetsApi {
     @PreAuthorize("hasRole(@roles.VET_ADMIN)")
     @Override
     public ResponseEntity<VetDto> updateVet(Integer vetId,VetDto vetDto)  {
-        Vet currentVet = this.clinicService.findVetById(vetId);
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Vet vet = new Vet();
+            vet.setId(vetId);
+            vet.setVersion(version);
+            vet.setFirstName(vetDto.getFirstName());
+            vet.setLastName(vetDto.getLastName());
+            Set<String> specialtyNames = vetDto.getSpecialties().stream()
+                .map(SpecialtyDto::getName)
+                .collect(Collectors.toSet());
+            if (!specialtyNames.isEmpty()) {
+                vet.setSpecialties(this.clinicService.findSpecialtiesByNameIn(specialtyNames));
+            }
+            if (!this.clinicService.updateVet(vet)) {
+                return EntityTags.notUpdated(this.clinicService.findVetById(vetId, FetchProfile.SUMMARY) != null);
+            }
+            return EntityTags.updated(EntityTags.of(vet));
+        }
+        Vet currentVet = this.clinicService.findVetById(vetId, FetchProfile.FULL);
         if (currentVet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         currentVet.setFirstName(vetDto.getFirstName());
         currentVet.setLastName(vetDto.getLastName());
-        currentVet.clearSpecialties();
-        for (Specialty spec : specialtyMapper.toSpecialtys(vetDto.getSpecialties())) {
-            currentVet.addSpecialty(spec);
-        }
-        if(currentVet.getNrOfSpecialties() > 0){
-            List<Specialty> vetSpecialities = this.clinicService.findSpecialtiesByNameIn(currentVet.getSpecialties().stream().map(Specialty::getName).collect(Collectors.toSet()));
-            currentVet.setSpecialties(vetSpecialities);
-        }
+        Set<String> specialtyNames = vetDto.getSpecialties().stream()
+            .map(SpecialtyDto::getName)
+            .collect(Collectors.toSet());
+        currentVet.setSpecialties(specialtyNames.isEmpty() ? List.of()
+            : this.clinicService.findSpecialtiesByNameIn(specialtyNames));
         this.clinicService.saveVet(currentVet);
         return new ResponseEntity<>(vetMapper.toVetDto(currentVet), HttpStatus.NO_CONTENT);
     }
@@ -112,7 +158,7 @@ public class VetRestController implements VetsApi {
     @Transactional
     @Override
     public ResponseEntity<VetDto> deleteVet(Integer vetId) {
-        Vet vet = this.clinicService.findVetById(vetId);
+        Vet vet = this.clinicService.findVetById(vetId, FetchProfile.SUMMARY);
         if (vet == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -21,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.mapper.VisitMapper;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.rest.api.VisitsApi;
 import org.springframework.samples.petclinic.rest.dto.VisitDto;
 import org.springframework.samples.petclinic.rest.dto.VisitFieldsDto;
@@ -30,6 +31,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import jakarta.transaction.Transactional;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,7 +40,7 @@ import java.util.List;
  */
 
 @RestController
-@CrossOrigin(exposedHeaders = "errors, content-type")
+@CrossOrigin(exposedHeaders = "errors, content-type, etag, " + KeysetCursor.NEXT_CURSOR_HEADER)
 @RequestMapping("api")
 public class VisitRestController implements VisitsApi {
 
@@ -46,30 +48,71 @@ public class VisitRestController implements VisitsApi {
 
     private final VisitMapper visitMapper;
 
-    public VisitRestController(ClinicService clinicService, VisitMapper visitMapper) {
+    private final SparseFieldsWriter sparseFieldsWriter;
+
+    public VisitRestController(ClinicService clinicService, VisitMapper visitMapper,
+                               SparseFieldsWriter sparseFieldsWriter) {
         this.clinicService = clinicService;
         this.visitMapper = visitMapper;
+        this.sparseFieldsWriter = sparseFieldsWriter;
     }
 
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<List<VisitDto>> listVisits() {
-        List<Visit> visits = new ArrayList<>(this.clinicService.findAllVisits());
+    public ResponseEntity<List<VisitDto>> listVisits(String after, Integer limit, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        if (after != null || limit != null) {
+            return listVisitsPage(after, limit, sparseFields);
+        }
+        List<VisitView> visits = this.clinicService.findAllVisitViews();
         if (visits.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(new ArrayList<>(visitMapper.toVisitsDto(visits)), HttpStatus.OK);
+        return this.sparseFieldsWriter.write(new ResponseEntity<>(visitMapper.toVisitViewDtos(visits), HttpStatus.OK),
+            sparseFields);
+    }
+
+    private ResponseEntity<List<VisitDto>> listVisitsPage(String after, Integer limit, SparseFields sparseFields) {
+        KeysetCursor cursor;
+        LocalDate afterDate;
+        int pageLimit;
+        try {
+            cursor = KeysetCursor.decode(after);
+            afterDate = cursor.getDateKey();
+            pageLimit = KeysetCursor.pageLimit(limit);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // one more visit than the limit is read to know whether there is a next page
+        List<Visit> visits = this.clinicService.findVisitsPage(afterDate, cursor.getId(), pageLimit + 1);
+        HttpHeaders headers = new HttpHeaders();
+        if (visits.size() > pageLimit) {
+            visits = visits.subList(0, pageLimit);
+            Visit last = visits.get(pageLimit - 1);
+            headers.set(KeysetCursor.NEXT_CURSOR_HEADER, KeysetCursor.encode(last.getDate(), last.getId()));
+        }
+        if (visits.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return this.sparseFieldsWriter.write(
+            new ResponseEntity<>(new ArrayList<>(visitMapper.toVisitsDto(visits)), headers, HttpStatus.OK), sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
-    public ResponseEntity<VisitDto> getVisit( Integer visitId) {
-        Visit visit = this.clinicService.findVisitById(visitId);
+    public ResponseEntity<VisitDto> getVisit( Integer visitId, List<String> fields) {
+        SparseFields sparseFields = SparseFields.of(fields);
+        VisitView visit = this.clinicService.findVisitViewById(visitId);
         if (visit == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(visitMapper.toVisitDto(visit), HttpStatus.OK);
+        String etag = EntityTags.withFields(EntityTags.of(visit), sparseFields);
+        if (EntityTags.isNotModified(etag)) {
+            return EntityTags.notModified(etag);
+        }
+        return this.sparseFieldsWriter.write(ResponseEntity.ok().eTag(etag).body(visitMapper.toVisitDto(visit)),
+            sparseFields);
     }
 
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
@@ -86,6 +129,16 @@ public class VisitRestController implements VisitsApi {
     @PreAuthorize("hasRole(@roles.OWNER_ADMIN)")
     @Override
     public ResponseEntity<VisitDto> updateVisit(Integer visitId, VisitFieldsDto visitDto) {
+        Integer version = EntityTags.ifMatchVersion();
+        if (version != null) {
+            Visit visit = visitMapper.toVisit(visitDto);
+            visit.setId(visitId);
+            visit.setVersion(version);
+            if (!this.clinicService.updateVisit(visit)) {
+                return EntityTags.notUpdated(this.clinicService.findVisitById(visitId) != null);
+            }
+            return EntityTags.updated(EntityTags.of(visit));
+        }
         Visit currentVisit = this.clinicService.findVisitById(visitId);
         if (currentVisit == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
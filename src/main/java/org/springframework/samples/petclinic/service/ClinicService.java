@@ -15,20 +15,62 @@
  */
 package org.springframework.samples.petclinic.service;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 
 /**
  * Mostly used as a facade so all controllers have a single point of entry
+ * <p>
+ * The <code>streamAll*</code> methods apply the given action to a cursor-backed <code>Stream</code> within a
+ * read-only transaction, and close the stream once the action returns. The action must therefore consume the
+ * stream entirely and not let it escape.
+ * <p>
+ * The <code>find*Page</code> methods implement keyset pagination: they return the items following the given
+ * sort key and id, which are those of the last item of the previous page, or <code>null</code> for the first page.
+ * <p>
+ * The collections of owners, pets and vets are loaded lazily. Reads returning them load them with the
+ * {@link FetchProfile#FULL FULL} profile, so that they can be mapped once the transaction is over; the
+ * <code>find*ById</code> methods taking a {@link FetchProfile} let callers which only check existence or change
+ * scalar fields skip them with the {@link FetchProfile#SUMMARY SUMMARY} profile.
+ * <p>
+ * The <code>find*View*</code> methods return read-only views of owners, pets and visits, selected column by
+ * column instead of being loaded as managed entities, for the callers which only render them. Those taking a
+ * {@link FetchProfile} leave out the pets of the owners and the visits of the pets with the
+ * {@link FetchProfile#SUMMARY SUMMARY} profile, for the callers which do not render them, as does
+ * {@link #findOwnersPage(String, String, Integer, int, FetchProfile)} and
+ * {@link #findPetsPage(String, Integer, int, FetchProfile)} with the entities they load.
+ * <p>
+ * The vets, pet types and specialties returned by {@link #findVetById(int)}, {@link #findAllVets()},
+ * {@link #findVets()}, {@link #findPetTypeById(int)}, {@link #findAllPetTypes()}, {@link #findPetTypes()},
+ * {@link #findSpecialtyById(int)} and {@link #findAllSpecialties()} are cached: every caller gets the same instances,
+ * which must therefore never be changed. Callers updating one save a new instance with its id and version instead,
+ * or change a vet loaded by {@link #findVetById(int, FetchProfile)}, which is not cached.
+ * <p>
+ * Reads run in read-only transactions. With the JPA based repositories, the transaction manager then sets the
+ * session to load every entity read-only, whichever query loads it, and to flush manually: the persistence
+ * context keeps no snapshot of the loaded state for dirty checking, and is never flushed on commit.
+ * <p>
+ * The <code>update*</code> methods write the fields of an entity which is not loaded beforehand, only if the stored
+ * entity still has the version of the given one, and increment that version. They return <code>false</code>, and
+ * change nothing, when the entity does not exist or has been changed since the caller read that version. Unlike
+ * the <code>save*</code> methods they leave the associations of the entity untouched, except the specialties of
+ * a vet.
  *
  * @author Michael Isvy
  * @author Vitaliy Fedoriv
@@ -36,34 +78,64 @@ import org.springframework.samples.petclinic.model.Visit;
 public interface ClinicService {
 
 	Pet findPetById(int id) throws DataAccessException;
+	Pet findPetById(int id, FetchProfile profile) throws DataAccessException;
 	Collection<Pet> findAllPets() throws DataAccessException;
+	PetView findPetViewById(int id) throws DataAccessException;
+	PetView findPetViewById(int id, FetchProfile profile) throws DataAccessException;
+	List<PetView> findAllPetViews() throws DataAccessException;
+	List<PetView> findAllPetViews(FetchProfile profile) throws DataAccessException;
+	<R> R streamAllPets(Function<Stream<Pet>, R> action) throws DataAccessException;
+	List<Pet> findPetsPage(String afterName, Integer afterId, int limit) throws DataAccessException;
+	List<Pet> findPetsPage(String afterName, Integer afterId, int limit, FetchProfile profile) throws DataAccessException;
 	void savePet(Pet pet) throws DataAccessException;
+	boolean updatePet(Pet pet) throws DataAccessException;
 	void deletePet(Pet pet) throws DataAccessException;
 
 	Collection<Visit> findVisitsByPetId(int petId);
 	Visit findVisitById(int visitId) throws DataAccessException;
 	Collection<Visit> findAllVisits() throws DataAccessException;
+	VisitView findVisitViewById(int visitId) throws DataAccessException;
+	List<VisitView> findAllVisitViews() throws DataAccessException;
+	<R> R streamAllVisits(Function<Stream<Visit>, R> action) throws DataAccessException;
+	List<Visit> findVisitsPage(LocalDate afterDate, Integer afterId, int limit) throws DataAccessException;
 	void saveVisit(Visit visit) throws DataAccessException;
+	boolean updateVisit(Visit visit) throws DataAccessException;
 	void deleteVisit(Visit visit) throws DataAccessException;
 	Vet findVetById(int id) throws DataAccessException;
+	Vet findVetById(int id, FetchProfile profile) throws DataAccessException;
 	Collection<Vet> findVets() throws DataAccessException;
 	Collection<Vet> findAllVets() throws DataAccessException;
 	void saveVet(Vet vet) throws DataAccessException;
+	boolean updateVet(Vet vet) throws DataAccessException;
 	void deleteVet(Vet vet) throws DataAccessException;
 	Owner findOwnerById(int id) throws DataAccessException;
+	Owner findOwnerById(int id, FetchProfile profile) throws DataAccessException;
 	Collection<Owner> findAllOwners() throws DataAccessException;
+	<R> R streamAllOwners(Function<Stream<Owner>, R> action) throws DataAccessException;
+	List<Owner> findOwnersPage(String lastName, String afterLastName, Integer afterId, int limit) throws DataAccessException;
+	List<Owner> findOwnersPage(String lastName, String afterLastName, Integer afterId, int limit, FetchProfile profile)
+		throws DataAccessException;
 	void saveOwner(Owner owner) throws DataAccessException;
+	boolean updateOwner(Owner owner) throws DataAccessException;
 	void deleteOwner(Owner owner) throws DataAccessException;
 	Collection<Owner> findOwnerByLastName(String lastName) throws DataAccessException;
+	OwnerView findOwnerViewById(int id) throws DataAccessException;
+	OwnerView findOwnerViewById(int id, FetchProfile profile) throws DataAccessException;
+	List<OwnerView> findAllOwnerViews() throws DataAccessException;
+	List<OwnerView> findAllOwnerViews(FetchProfile profile) throws DataAccessException;
+	List<OwnerView> findOwnerViewsByLastName(String lastName) throws DataAccessException;
+	List<OwnerView> findOwnerViewsByLastName(String lastName, FetchProfile profile) throws DataAccessException;
 
 	PetType findPetTypeById(int petTypeId);
 	Collection<PetType> findAllPetTypes() throws DataAccessException;
 	Collection<PetType> findPetTypes() throws DataAccessException;
 	void savePetType(PetType petType) throws DataAccessException;
+	boolean updatePetType(PetType petType) throws DataAccessException;
 	void deletePetType(PetType petType) throws DataAccessException;
 	Specialty findSpecialtyById(int specialtyId);
 	Collection<Specialty> findAllSpecialties() throws DataAccessException;
 	void saveSpecialty(Specialty specialty) throws DataAccessException;
+	boolean updateSpecialty(Specialty specialty) throws DataAccessException;
 	void deleteSpecialty(Specialty specialty) throws DataAccessException;
 
     List<Specialty> findSpecialtiesByNameIn(Set<String> names) throws DataAccessException;
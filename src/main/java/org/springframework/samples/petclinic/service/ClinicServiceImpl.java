@@ -15,22 +15,49 @@
  */
 package org.springframework.samples.petclinic.service;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.samples.petclinic.model.*;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.repository.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.springframework.samples.petclinic.config.CacheConfig.*;
 
 /**
  * Mostly used as a facade for all Petclinic controllers
  * Also a placeholder for @Transactional and @Cacheable annotations
+ * <p>
+ * The reads of vets, specialties and pet types are cached, see
+ * {@link org.springframework.samples.petclinic.config.CacheConfig CacheConfig}. Each save, update or delete evicts the
+ * entries it makes stale twice: before the invocation, immediately, so that the rest of its transaction reads the
+ * database; and after it, on commit, so that the entries put by concurrent readers meanwhile are dropped too. Saving,
+ * updating or deleting a specialty also evicts the vets, which hold their specialties.
+ * <p>
+ * The owner aggregates returned by {@link #findOwnerViewById(int)} are cached too. They are immutable, so a reader
+ * gets either the snapshot from before a write or the one after it, never a partly updated one. Saving or deleting an
+ * owner, or one of its pets or visits, evicts the aggregate of that owner; saving or deleting a pet type evicts them
+ * all, as they hold the type names and a deleted type takes its pets with it.
+ * <p>
+ * The writes of vets, specialties and pet types also evict the serialized JSON bodies of their list endpoints, which
+ * the web layer caches under {@link org.springframework.samples.petclinic.config.CacheConfig#VETS_JSON VETS_JSON},
+ * {@link org.springframework.samples.petclinic.config.CacheConfig#SPECIALTIES_JSON SPECIALTIES_JSON} and
+ * {@link org.springframework.samples.petclinic.config.CacheConfig#PET_TYPES_JSON PET_TYPES_JSON}.
  *
  * @author Michael Isvy
  * @author Vitaliy Fedoriv
@@ -67,6 +94,56 @@ public class ClinicServiceImpl implements ClinicService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public PetView findPetViewById(int id) throws DataAccessException {
+        return findPetViewById(id, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PetView findPetViewById(int id, FetchProfile profile) throws DataAccessException {
+        return findEntityById(() -> petRepository.findViewById(id, profile));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PetView> findAllPetViews() throws DataAccessException {
+        return findAllPetViews(FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PetView> findAllPetViews(FetchProfile profile) throws DataAccessException {
+        return petRepository.findAllViews(profile);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <R> R streamAllPets(Function<Stream<Pet>, R> action) throws DataAccessException {
+        try (Stream<Pet> stream = petRepository.streamAll()) {
+            return action.apply(stream);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Pet> findPetsPage(String afterName, Integer afterId, int limit) throws DataAccessException {
+        return findPetsPage(afterName, afterId, limit, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Pet> findPetsPage(String afterName, Integer afterId, int limit, FetchProfile profile)
+        throws DataAccessException {
+        return petRepository.findPage(afterName, afterId, limit, profile);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null")
+    })
     @Transactional
     public void deletePet(Pet pet) throws DataAccessException {
         petRepository.delete(pet);
@@ -85,30 +162,94 @@ public class ClinicServiceImpl implements ClinicService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public VisitView findVisitViewById(int visitId) throws DataAccessException {
+        return findEntityById(() -> visitRepository.findViewById(visitId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VisitView> findAllVisitViews() throws DataAccessException {
+        return visitRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <R> R streamAllVisits(Function<Stream<Visit>, R> action) throws DataAccessException {
+        try (Stream<Visit> stream = visitRepository.streamAll()) {
+            return action.apply(stream);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Visit> findVisitsPage(LocalDate afterDate, Integer afterId, int limit) throws DataAccessException {
+        return visitRepository.findPage(afterDate, afterId, limit);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null")
+    })
     @Transactional
     public void deleteVisit(Visit visit) throws DataAccessException {
+        resolvePetOwner(visit);
         visitRepository.delete(visit);
     }
 
     @Override
+    @Cacheable(cacheNames = VET, unless = "#result == null")
     @Transactional(readOnly = true)
     public Vet findVetById(int id) throws DataAccessException {
-        return findEntityById(() -> vetRepository.findById(id));
+        return findVetById(id, FetchProfile.FULL);
     }
 
     @Override
     @Transactional(readOnly = true)
+    public Vet findVetById(int id, FetchProfile profile) throws DataAccessException {
+        return findEntityById(() -> vetRepository.findById(id, profile));
+    }
+
+    @Override
+    @Cacheable(cacheNames = VETS, key = "#root.methodName")
+    @Transactional(readOnly = true)
     public Collection<Vet> findAllVets() throws DataAccessException {
         return vetRepository.findAll();
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = VET, key = "#vet.id", condition = "#vet.id != null", beforeInvocation = true),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = VET, key = "#vet.id"),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true)
+    })
     @Transactional
     public void saveVet(Vet vet) throws DataAccessException {
         vetRepository.save(vet);
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = VET, key = "#vet.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = VET, key = "#vet.id"),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true)
+    })
+    @Transactional
+    public boolean updateVet(Vet vet) throws DataAccessException {
+        return vetRepository.update(vet);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = VET, key = "#vet.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = VET, key = "#vet.id"),
+        @CacheEvict(cacheNames = {VETS, VETS_JSON}, allEntries = true)
+    })
     @Transactional
     public void deleteVet(Vet vet) throws DataAccessException {
         vetRepository.delete(vet);
@@ -121,60 +262,143 @@ public class ClinicServiceImpl implements ClinicService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public <R> R streamAllOwners(Function<Stream<Owner>, R> action) throws DataAccessException {
+        try (Stream<Owner> stream = ownerRepository.streamAll()) {
+            return action.apply(stream);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Owner> findOwnersPage(String lastName, String afterLastName, Integer afterId, int limit) throws DataAccessException {
+        return findOwnersPage(lastName, afterLastName, afterId, limit, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Owner> findOwnersPage(String lastName, String afterLastName, Integer afterId, int limit,
+                                      FetchProfile profile) throws DataAccessException {
+        return ownerRepository.findPage(lastName, afterLastName, afterId, limit, profile);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id")
+    })
     @Transactional
     public void deleteOwner(Owner owner) throws DataAccessException {
         ownerRepository.delete(owner);
     }
 
     @Override
+    @Cacheable(cacheNames = PET_TYPE, unless = "#result == null")
     @Transactional(readOnly = true)
     public PetType findPetTypeById(int petTypeId) {
         return findEntityById(() -> petTypeRepository.findById(petTypeId));
     }
 
     @Override
+    @Cacheable(cacheNames = PET_TYPES, key = "#root.methodName")
     @Transactional(readOnly = true)
     public Collection<PetType> findAllPetTypes() throws DataAccessException {
         return petTypeRepository.findAll();
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id", condition = "#petType.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id"),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true)
+    })
     @Transactional
     public void savePetType(PetType petType) throws DataAccessException {
         petTypeRepository.save(petType);
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id"),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true)
+    })
+    @Transactional
+    public boolean updatePetType(PetType petType) throws DataAccessException {
+        return petTypeRepository.update(petType);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true, beforeInvocation = true),
+        @CacheEvict(cacheNames = PET_TYPE, key = "#petType.id"),
+        @CacheEvict(cacheNames = {PET_TYPES, PET_TYPES_JSON, OWNER}, allEntries = true)
+    })
     @Transactional
     public void deletePetType(PetType petType) throws DataAccessException {
         petTypeRepository.delete(petType);
     }
 
     @Override
+    @Cacheable(cacheNames = SPECIALTY, unless = "#result == null")
     @Transactional(readOnly = true)
     public Specialty findSpecialtyById(int specialtyId) {
         return findEntityById(() -> specialtyRepository.findById(specialtyId));
     }
 
     @Override
+    @Cacheable(cacheNames = SPECIALTIES, key = "#root.methodName")
     @Transactional(readOnly = true)
     public Collection<Specialty> findAllSpecialties() throws DataAccessException {
         return specialtyRepository.findAll();
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id", condition = "#specialty.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true,
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id"),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true)
+    })
     @Transactional
     public void saveSpecialty(Specialty specialty) throws DataAccessException {
         specialtyRepository.save(specialty);
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true,
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id"),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true)
+    })
+    @Transactional
+    public boolean updateSpecialty(Specialty specialty) throws DataAccessException {
+        return specialtyRepository.update(specialty);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true,
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = SPECIALTY, key = "#specialty.id"),
+        @CacheEvict(cacheNames = {SPECIALTIES, SPECIALTIES_JSON, VETS, VETS_JSON, VET}, allEntries = true)
+    })
     @Transactional
     public void deleteSpecialty(Specialty specialty) throws DataAccessException {
         specialtyRepository.delete(specialty);
     }
 
     @Override
+    @Cacheable(cacheNames = PET_TYPES, key = "#root.methodName")
     @Transactional(readOnly = true)
     public Collection<PetType> findPetTypes() throws DataAccessException {
         return petRepository.findPetTypes();
@@ -183,48 +407,170 @@ public class ClinicServiceImpl implements ClinicService {
     @Override
     @Transactional(readOnly = true)
     public Owner findOwnerById(int id) throws DataAccessException {
-        return findEntityById(() -> ownerRepository.findById(id));
+        return findOwnerById(id, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Owner findOwnerById(int id, FetchProfile profile) throws DataAccessException {
+        return findEntityById(() -> ownerRepository.findById(id, profile));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Pet findPetById(int id) throws DataAccessException {
-        return findEntityById(() -> petRepository.findById(id));
+        return findPetById(id, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Pet findPetById(int id, FetchProfile profile) throws DataAccessException {
+        return findEntityById(() -> petRepository.findById(id, profile));
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null")
+    })
     @Transactional
     public void savePet(Pet pet) throws DataAccessException {
         pet.setType(findPetTypeById(pet.getType().getId()));
         petRepository.save(pet);
     }
 
+    /**
+     * Resolves the owner of a pet given without one, so that the cached aggregate of that owner is evicted. A pet
+     * given with its owner is only updated if it belongs to that owner.
+     */
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#pet.owner.id", condition = "#pet.owner?.id != null")
+    })
+    @Transactional
+    public boolean updatePet(Pet pet) throws DataAccessException {
+        if (pet.getOwner() == null) {
+            Pet current = findPetById(pet.getId(), FetchProfile.SUMMARY);
+            if (current == null) {
+                return false;
+            }
+            pet.setOwner(current.getOwner());
+        }
+        return petRepository.update(pet);
+    }
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null")
+    })
     @Transactional
     public void saveVisit(Visit visit) throws DataAccessException {
+        resolvePetOwner(visit);
         visitRepository.save(visit);
+    }
 
+    /**
+     * Resolves the pet and owner of a visit given without its pet, so that the cached aggregate of that owner is
+     * evicted.
+     */
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null",
+            beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#visit.pet.owner.id", condition = "#visit.pet?.owner?.id != null")
+    })
+    @Transactional
+    public boolean updateVisit(Visit visit) throws DataAccessException {
+        if (visit.getPet() == null) {
+            Visit current = findVisitById(visit.getId());
+            if (current == null) {
+                return false;
+            }
+            visit.setPet(current.getPet());
+        }
+        resolvePetOwner(visit);
+        return visitRepository.update(visit);
     }
 
     @Override
+    @Cacheable(cacheNames = VETS, key = "#root.methodName")
     @Transactional(readOnly = true)
     public Collection<Vet> findVets() throws DataAccessException {
         return vetRepository.findAll();
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id", condition = "#owner.id != null", beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id")
+    })
     @Transactional
     public void saveOwner(Owner owner) throws DataAccessException {
         ownerRepository.save(owner);
 
     }
 
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = OWNER, key = "#owner.id")
+    })
+    @Transactional
+    public boolean updateOwner(Owner owner) throws DataAccessException {
+        return ownerRepository.update(owner);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Collection<Owner> findOwnerByLastName(String lastName) throws DataAccessException {
         return ownerRepository.findByLastName(lastName);
     }
 
+    @Override
+    @Cacheable(cacheNames = OWNER, unless = "#result == null")
+    @Transactional(readOnly = true)
+    public OwnerView findOwnerViewById(int id) throws DataAccessException {
+        return findOwnerViewById(id, FetchProfile.FULL);
+    }
+
+    /**
+     * Unlike {@link #findOwnerViewById(int)}, not cached: the cache only holds the whole owner aggregates.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public OwnerView findOwnerViewById(int id, FetchProfile profile) throws DataAccessException {
+        return findEntityById(() -> ownerRepository.findViewById(id, profile));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OwnerView> findAllOwnerViews() throws DataAccessException {
+        return findAllOwnerViews(FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OwnerView> findAllOwnerViews(FetchProfile profile) throws DataAccessException {
+        return ownerRepository.findAllViews(profile);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OwnerView> findOwnerViewsByLastName(String lastName) throws DataAccessException {
+        return findOwnerViewsByLastName(lastName, FetchProfile.FULL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OwnerView> findOwnerViewsByLastName(String lastName, FetchProfile profile) throws DataAccessException {
+        return ownerRepository.findViewsByLastName(lastName, profile);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Collection<Visit> findVisitsByPetId(int petId) {
@@ -237,6 +583,20 @@ public class ClinicServiceImpl implements ClinicService {
         return findEntityById(() -> specialtyRepository.findSpecialtiesByNameIn(names));
     }
 
+    /**
+     * Loads the pet of a visit referring to it by id only, e.g. a visit posted with a pet id, so that the cached
+     * aggregate of its owner is evicted.
+     */
+    private void resolvePetOwner(Visit visit) {
+        Pet pet = visit.getPet();
+        if (pet != null && pet.getId() != null && pet.getOwner() == null) {
+            Pet loaded = findPetById(pet.getId(), FetchProfile.SUMMARY);
+            if (loaded != null) {
+                visit.setPet(loaded);
+            }
+        }
+    }
+
     private <T> T findEntityById(Supplier<T> supplier) {
         try {
             return supplier.get();
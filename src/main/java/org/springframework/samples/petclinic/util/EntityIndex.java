@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.util;
+
+import java.util.Collection;
+
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+/**
+ * Index of entities by id, used to join entities in memory in constant time per lookup instead of scanning a
+ * collection with {@link EntityUtils#getById}.
+ * <p>
+ * Backed by an open-addressing hash table with linear probing on primitive <code>int</code> keys, so that neither
+ * the ids nor the table entries are boxed. The table is kept at most half full and grows by doubling.
+ * Instances are not thread-safe.
+ *
+ * @param <T> the entity type
+ * @see EntityUtils
+ */
+public class EntityIndex<T extends BaseEntity> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final Class<T> entityClass;
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int size;
+
+    public EntityIndex(Class<T> entityClass) {
+        this(entityClass, MIN_CAPACITY / 2);
+    }
+
+    public EntityIndex(Class<T> entityClass, int expectedSize) {
+        this.entityClass = entityClass;
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Build an index of the given entities.
+     *
+     * @param entityClass the entity class
+     * @param entities    the entities to index, which must all have an id
+     * @return the index
+     */
+    public static <T extends BaseEntity> EntityIndex<T> of(Class<T> entityClass, Collection<? extends T> entities) {
+        EntityIndex<T> index = new EntityIndex<>(entityClass, entities.size());
+        for (T entity : entities) {
+            index.put(entity);
+        }
+        return index;
+    }
+
+    /**
+     * Add the given entity to the index, replacing any entity with the same id.
+     *
+     * @param entity the entity to index, which must have an id
+     * @return the entity previously indexed with the same id, or <code>null</code> if none
+     */
+    public T put(T entity) {
+        Integer entityId = entity.getId();
+        if (entityId == null) {
+            throw new IllegalArgumentException("Cannot index a new entity: " + entity);
+        }
+        int id = entityId;
+        int slot = slot(id);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == id) {
+                T previous = entityAt(slot);
+                this.values[slot] = entity;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = id;
+        this.values[slot] = entity;
+        if (++this.size * 2 > this.values.length) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Look up the entity with the given id.
+     *
+     * @param id the entity id to look up
+     * @return the found entity, or <code>null</code> if none
+     */
+    public T get(int id) {
+        int slot = slot(id);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == id) {
+                return entityAt(slot);
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Look up the entity with the given id, failing like {@link EntityUtils#getById} if it is not indexed.
+     *
+     * @param id the entity id to look up
+     * @return the found entity
+     * @throws ObjectRetrievalFailureException if the entity was not found
+     */
+    public T getById(int id) throws ObjectRetrievalFailureException {
+        T entity = get(id);
+        if (entity == null) {
+            throw new ObjectRetrievalFailureException(this.entityClass, id);
+        }
+        return entity;
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    private int slot(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entityAt(int slot) {
+        return (T) this.values[slot];
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private void grow() {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(oldValues.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+}
@@ -1,13 +1,19 @@
+CREATE SEQUENCE IF NOT EXISTS vets_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS vets (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR vets_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   first_name VARCHAR(30) NOT NULL,
   last_name VARCHAR(30) NOT NULL
 );
 
 CREATE INDEX idx_vets_last_name ON vets(last_name);
 
+CREATE SEQUENCE IF NOT EXISTS specialties_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS specialties (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR specialties_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   name VARCHAR(80) NOT NULL
 );
 
@@ -21,15 +27,21 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
   UNIQUE (vet_id, specialty_id)
 );
 
+CREATE SEQUENCE IF NOT EXISTS types_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS types (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR types_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   name VARCHAR(80) NOT NULL
 );
 
 CREATE INDEX idx_types_name ON types(name);
 
+CREATE SEQUENCE IF NOT EXISTS owners_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS owners (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR owners_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   first_name VARCHAR(30) NOT NULL,
   last_name VARCHAR(30) NOT NULL,
   address VARCHAR(255) NOT NULL,
@@ -39,8 +51,11 @@ CREATE TABLE IF NOT EXISTS owners (
 
 CREATE INDEX idx_owners_last_name ON owners(last_name);
 
+CREATE SEQUENCE IF NOT EXISTS pets_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS pets (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR pets_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   name VARCHAR(30) NOT NULL,
   birth_date DATE NOT NULL,
   type_id INTEGER NOT NULL,
@@ -51,24 +66,41 @@ CREATE TABLE IF NOT EXISTS pets (
 
 CREATE INDEX idx_pets_name ON pets(name);
 
+CREATE SEQUENCE IF NOT EXISTS visits_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS visits (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR visits_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
   pet_id INTEGER NOT NULL,
   visit_date DATE NOT NULL,
   description VARCHAR(255) NOT NULL,
   FOREIGN KEY (pet_id) REFERENCES pets(id) ON DELETE CASCADE
 );
 
+CREATE INDEX idx_visits_visit_date ON visits(visit_date, id);
+
 CREATE TABLE IF NOT EXISTS users (
   username VARCHAR(20) NOT NULL PRIMARY KEY,
   password VARCHAR(255) NOT NULL,
   enabled BOOLEAN NOT NULL DEFAULT TRUE
 );
 
+CREATE SEQUENCE IF NOT EXISTS roles_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS roles (
-  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id INTEGER DEFAULT NEXT VALUE FOR roles_seq PRIMARY KEY,
   username VARCHAR(20) NOT NULL,
   role VARCHAR(20) NOT NULL,
   UNIQUE (role, username),
   FOREIGN KEY (username) REFERENCES users(username) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS cache_invalidation (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  node_id VARCHAR(36) NOT NULL,
+  cache_name VARCHAR(40) NOT NULL,
+  cache_key INTEGER,
+  created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_cache_invalidation_created_at ON cache_invalidation(created_at);
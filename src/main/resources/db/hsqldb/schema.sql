@@ -7,18 +7,30 @@ DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
 DROP TABLE roles IF EXISTS;
 DROP TABLE users IF EXISTS;
+DROP TABLE cache_invalidation IF EXISTS;
+DROP SEQUENCE vets_seq IF EXISTS;
+DROP SEQUENCE specialties_seq IF EXISTS;
+DROP SEQUENCE types_seq IF EXISTS;
+DROP SEQUENCE owners_seq IF EXISTS;
+DROP SEQUENCE pets_seq IF EXISTS;
+DROP SEQUENCE visits_seq IF EXISTS;
+DROP SEQUENCE roles_seq IF EXISTS;
 
 
+CREATE SEQUENCE vets_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE vets (
-  id         INTEGER IDENTITY PRIMARY KEY,
+  id         INTEGER GENERATED BY DEFAULT AS SEQUENCE vets_seq PRIMARY KEY,
+  version    INTEGER DEFAULT 0 NOT NULL,
   first_name VARCHAR(30),
   last_name  VARCHAR(30)
 );
 CREATE INDEX vets_last_name ON vets (last_name);
 
+CREATE SEQUENCE specialties_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE specialties (
-  id   INTEGER IDENTITY PRIMARY KEY,
-  name VARCHAR(80)
+  id      INTEGER GENERATED BY DEFAULT AS SEQUENCE specialties_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
+  name    VARCHAR(80)
 );
 CREATE INDEX specialties_name ON specialties (name);
 
@@ -29,14 +41,18 @@ CREATE TABLE vet_specialties (
 ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_vets FOREIGN KEY (vet_id) REFERENCES vets (id);
 ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_specialties FOREIGN KEY (specialty_id) REFERENCES specialties (id);
 
+CREATE SEQUENCE types_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE types (
-  id   INTEGER IDENTITY PRIMARY KEY,
-  name VARCHAR(80)
+  id      INTEGER GENERATED BY DEFAULT AS SEQUENCE types_seq PRIMARY KEY,
+  version INTEGER DEFAULT 0 NOT NULL,
+  name    VARCHAR(80)
 );
 CREATE INDEX types_name ON types (name);
 
+CREATE SEQUENCE owners_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE owners (
-  id         INTEGER IDENTITY PRIMARY KEY,
+  id         INTEGER GENERATED BY DEFAULT AS SEQUENCE owners_seq PRIMARY KEY,
+  version    INTEGER DEFAULT 0 NOT NULL,
   first_name VARCHAR(30),
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
@@ -45,8 +61,10 @@ CREATE TABLE owners (
 );
 CREATE INDEX owners_last_name ON owners (last_name);
 
+CREATE SEQUENCE pets_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE pets (
-  id         INTEGER IDENTITY PRIMARY KEY,
+  id         INTEGER GENERATED BY DEFAULT AS SEQUENCE pets_seq PRIMARY KEY,
+  version    INTEGER DEFAULT 0 NOT NULL,
   name       VARCHAR(30),
   birth_date DATE,
   type_id    INTEGER NOT NULL,
@@ -56,14 +74,17 @@ ALTER TABLE pets ADD CONSTRAINT fk_pets_owners FOREIGN KEY (owner_id) REFERENCES
 ALTER TABLE pets ADD CONSTRAINT fk_pets_types FOREIGN KEY (type_id) REFERENCES types (id);
 CREATE INDEX pets_name ON pets (name);
 
+CREATE SEQUENCE visits_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE visits (
-  id          INTEGER IDENTITY PRIMARY KEY,
+  id          INTEGER GENERATED BY DEFAULT AS SEQUENCE visits_seq PRIMARY KEY,
+  version     INTEGER DEFAULT 0 NOT NULL,
   pet_id      INTEGER NOT NULL,
   visit_date  DATE,
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
 CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_visit_date ON visits (visit_date, id);
 
 CREATE  TABLE users (
   username    VARCHAR(20) NOT NULL ,
@@ -72,11 +93,20 @@ CREATE  TABLE users (
   PRIMARY KEY (username)
 );
 
+CREATE SEQUENCE roles_seq START WITH 100 INCREMENT BY 50;
 CREATE TABLE roles (
-  id              INTEGER IDENTITY PRIMARY KEY,
+  id              INTEGER GENERATED BY DEFAULT AS SEQUENCE roles_seq PRIMARY KEY,
   username        VARCHAR(20) NOT NULL,
   role            VARCHAR(20) NOT NULL
 );
 ALTER TABLE roles ADD CONSTRAINT fk_username FOREIGN KEY (username) REFERENCES users (username);
 CREATE INDEX fk_username_idx ON roles (username);
 
+CREATE TABLE cache_invalidation (
+  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  node_id    VARCHAR(36) NOT NULL,
+  cache_name VARCHAR(40) NOT NULL,
+  cache_key  INTEGER,
+  created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX cache_invalidation_created_at ON cache_invalidation (created_at);
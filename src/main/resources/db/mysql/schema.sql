@@ -1,5 +1,6 @@
 CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
   INDEX(last_name)
@@ -7,6 +8,7 @@ CREATE TABLE IF NOT EXISTS vets (
 
 CREATE TABLE IF NOT EXISTS specialties (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   name VARCHAR(80),
   INDEX(name)
 ) engine=InnoDB;
@@ -21,12 +23,14 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
 
 CREATE TABLE IF NOT EXISTS types (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   name VARCHAR(80),
   INDEX(name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS owners (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
   address VARCHAR(255),
@@ -37,6 +41,7 @@ CREATE TABLE IF NOT EXISTS owners (
 
 CREATE TABLE IF NOT EXISTS pets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   name VARCHAR(30),
   birth_date DATE,
   type_id INT(4) UNSIGNED NOT NULL,
@@ -48,9 +53,11 @@ CREATE TABLE IF NOT EXISTS pets (
 
 CREATE TABLE IF NOT EXISTS visits (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  version INT NOT NULL DEFAULT 0,
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(visit_date, id),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
 
@@ -70,3 +77,31 @@ CREATE TABLE IF NOT EXISTS roles (
   KEY fk_username_idx (username),
   CONSTRAINT fk_username FOREIGN KEY (username) REFERENCES users (username)
 ) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS cache_invalidation (
+  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  node_id VARCHAR(36) NOT NULL,
+  cache_name VARCHAR(40) NOT NULL,
+  cache_key INT(4) UNSIGNED,
+  created_at TIMESTAMP(3) NOT NULL,
+  INDEX(created_at)
+) engine=InnoDB;
+
+-- MySQL has no sequences: Hibernate emulates the id sequence of each entity with a one-row table holding its next
+-- value, which it increments by 50 to reserve a block of ids. The JDBC repositories rely on AUTO_INCREMENT instead,
+-- and the two advance independently, so the JDBC and JPA profiles must not share one MySQL database, not even one
+-- after the other.
+CREATE TABLE IF NOT EXISTS vets_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO vets_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM vets_seq);
+CREATE TABLE IF NOT EXISTS specialties_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO specialties_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM specialties_seq);
+CREATE TABLE IF NOT EXISTS types_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO types_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM types_seq);
+CREATE TABLE IF NOT EXISTS owners_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO owners_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM owners_seq);
+CREATE TABLE IF NOT EXISTS pets_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO pets_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM pets_seq);
+CREATE TABLE IF NOT EXISTS visits_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO visits_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM visits_seq);
+CREATE TABLE IF NOT EXISTS roles_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO roles_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM roles_seq);
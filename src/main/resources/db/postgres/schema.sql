@@ -1,12 +1,18 @@
+CREATE SEQUENCE IF NOT EXISTS vets_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS vets (
-                                    id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                    id         INT DEFAULT nextval('vets_seq') PRIMARY KEY,
+                                    version    INT NOT NULL DEFAULT 0,
                                     first_name TEXT,
                                     last_name  TEXT
 );
 CREATE INDEX ON vets (last_name);
 
+CREATE SEQUENCE IF NOT EXISTS specialties_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS specialties (
-                                           id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                           id   INT DEFAULT nextval('specialties_seq') PRIMARY KEY,
+                                           version INT NOT NULL DEFAULT 0,
                                            name TEXT
 );
 CREATE INDEX ON specialties (name);
@@ -17,14 +23,20 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
                                                UNIQUE (vet_id, specialty_id)
 );
 
+CREATE SEQUENCE IF NOT EXISTS types_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS types (
-                                     id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                     id   INT DEFAULT nextval('types_seq') PRIMARY KEY,
+                                     version INT NOT NULL DEFAULT 0,
                                      name TEXT
 );
 CREATE INDEX ON types (name);
 
+CREATE SEQUENCE IF NOT EXISTS owners_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS owners (
-                                      id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                      id         INT DEFAULT nextval('owners_seq') PRIMARY KEY,
+                                      version    INT NOT NULL DEFAULT 0,
                                       first_name TEXT,
                                       last_name  TEXT,
                                       address    TEXT,
@@ -33,8 +45,11 @@ CREATE TABLE IF NOT EXISTS owners (
 );
 CREATE INDEX ON owners (last_name);
 
+CREATE SEQUENCE IF NOT EXISTS pets_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS pets (
-                                    id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                    id         INT DEFAULT nextval('pets_seq') PRIMARY KEY,
+                                    version    INT NOT NULL DEFAULT 0,
                                     name       TEXT,
                                     birth_date DATE,
                                     type_id    INT NOT NULL REFERENCES types (id),
@@ -43,13 +58,17 @@ CREATE TABLE IF NOT EXISTS pets (
 CREATE INDEX ON pets (name);
 CREATE INDEX ON pets (owner_id);
 
+CREATE SEQUENCE IF NOT EXISTS visits_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS visits (
-                                      id          INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                      id          INT DEFAULT nextval('visits_seq') PRIMARY KEY,
+                                      version     INT NOT NULL DEFAULT 0,
                                       pet_id      INT REFERENCES pets (id),
                                       visit_date  DATE,
                                       description TEXT
 );
 CREATE INDEX ON visits (pet_id);
+CREATE INDEX ON visits (visit_date, id);
 
 CREATE TABLE IF NOT EXISTS users (
   username VARCHAR(20) NOT NULL ,
@@ -58,10 +77,21 @@ CREATE TABLE IF NOT EXISTS users (
   CONSTRAINT pk_users PRIMARY KEY (username)
 );
 
+CREATE SEQUENCE IF NOT EXISTS roles_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS roles (
-  id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id INT DEFAULT nextval('roles_seq') PRIMARY KEY,
   username varchar(20) NOT NULL,
   role varchar(20) NOT NULL,
   FOREIGN KEY (username) REFERENCES users (username),
   CONSTRAINT uni_username_role UNIQUE (role, username)
 );
+
+CREATE TABLE IF NOT EXISTS cache_invalidation (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  node_id VARCHAR(36) NOT NULL,
+  cache_name VARCHAR(40) NOT NULL,
+  cache_key INT,
+  created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX ON cache_invalidation (created_at);
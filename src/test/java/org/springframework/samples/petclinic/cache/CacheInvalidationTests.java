@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests of the cache coherence of two nodes, i.e. two application contexts, sharing one H2 file database. The nodes
+ * poll the cache invalidation log on demand only, rather than every poll interval.
+ */
+class CacheInvalidationTests {
+
+    @TempDir
+    static Path directory;
+
+    private static ConfigurableApplicationContext first;
+
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNodes() {
+        String url = "jdbc:h2:file:" + directory.resolve("petclinic");
+        first = startNode(url, "always");
+        second = startNode(url, "never");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        second.close();
+        first.close();
+    }
+
+    private static ConfigurableApplicationContext startNode(String url, String sqlInitMode) {
+        return new SpringApplicationBuilder(PetClinicApplication.class).run(
+            "--spring.profiles.active=h2,spring-data-jpa",
+            "--spring.datasource.url=" + url,
+            "--spring.sql.init.mode=" + sqlInitMode,
+            "--server.port=0",
+            "--spring.jmx.enabled=false",
+            "--petclinic.cache.invalidation.enabled=true",
+            "--petclinic.cache.invalidation.poll-interval=PT1H");
+    }
+
+    private static ClinicService clinicService(ConfigurableApplicationContext node) {
+        return node.getBean(ClinicService.class);
+    }
+
+    private static int countInvalidations(ConfigurableApplicationContext node) {
+        return node.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM cache_invalidation", Integer.class);
+    }
+
+    @Test
+    void shouldEvictVetUpdatedByAnotherNodeWhenPolling() {
+        Vet cached = clinicService(first).findVetById(2);
+        assertThat(clinicService(first).findVetById(2)).isSameAs(cached);
+
+        Vet vet = clinicService(second).findVetById(2, FetchProfile.FULL);
+        vet.setLastName("Leary-Smith");
+        clinicService(second).saveVet(vet);
+        assertThat(clinicService(first).findVetById(2).getLastName()).isEqualTo(cached.getLastName());
+
+        first.getBean(CacheInvalidationPoller.class).poll();
+        assertThat(clinicService(first).findVetById(2).getLastName()).isEqualTo("Leary-Smith");
+        assertThat(clinicService(first).findAllVets()).extracting(Vet::getLastName).contains("Leary-Smith");
+    }
+
+    @Test
+    void shouldEvictOwnerAggregateOfVisitAddedByAnotherNodeWhenPolling() {
+        OwnerView cached = clinicService(first).findOwnerViewById(6);
+
+        Pet pet = new Pet();
+        pet.setId(7);
+        Visit visit = new Visit();
+        visit.setPet(pet);
+        visit.setDate(LocalDate.now());
+        visit.setDescription("dental check-up");
+        clinicService(second).saveVisit(visit);
+        assertThat(clinicService(first).findOwnerViewById(6)).isSameAs(cached);
+
+        first.getBean(CacheInvalidationPoller.class).poll();
+        assertThat(clinicService(first).findOwnerViewById(6).pets())
+            .filteredOn(view -> view.id() == 7)
+            .flatExtracting(PetView::visits)
+            .extracting(VisitView::description)
+            .contains("dental check-up");
+    }
+
+    @Test
+    void shouldLogEvictionsInTheTransactionOfTheWrite() {
+        int logged = countInvalidations(second);
+        TransactionTemplate transaction = new TransactionTemplate(second.getBean(PlatformTransactionManager.class));
+        transaction.executeWithoutResult(status -> {
+            Vet vet = clinicService(second).findVetById(3, FetchProfile.FULL);
+            vet.setFirstName("Lynda");
+            clinicService(second).saveVet(vet);
+            assertThat(countInvalidations(second)).isGreaterThan(logged);
+            status.setRollbackOnly();
+        });
+        assertThat(countInvalidations(second)).isEqualTo(logged);
+
+        clinicService(second).findAllVets();
+        assertThat(countInvalidations(second)).isEqualTo(logged);
+    }
+
+}
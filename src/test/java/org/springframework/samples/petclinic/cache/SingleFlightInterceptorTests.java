@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.repository.OwnerRepository;
+import org.springframework.samples.petclinic.repository.PetRepository;
+import org.springframework.samples.petclinic.repository.PetTypeRepository;
+import org.springframework.samples.petclinic.repository.SpecialtyRepository;
+import org.springframework.samples.petclinic.repository.VetRepository;
+import org.springframework.samples.petclinic.repository.VisitRepository;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.samples.petclinic.service.ClinicServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Concurrency tests of the {@link SingleFlightInterceptor} in front of a {@link ClinicService} with mock repositories:
+ * the repository calls are held until every caller of a burst has arrived.
+ */
+class SingleFlightInterceptorTests {
+
+    private static final int CALLERS = 16;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VetRepository vetRepository = mock(VetRepository.class);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3 * CALLERS);
+
+    private ClinicService clinicService;
+
+    @BeforeEach
+    void setUp() {
+        ProxyFactory proxyFactory = new ProxyFactory(new ClinicServiceImpl(mock(PetRepository.class),
+            this.vetRepository, mock(OwnerRepository.class), mock(VisitRepository.class),
+            mock(SpecialtyRepository.class), mock(PetTypeRepository.class)));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(
+            AnnotationMatchingPointcut.forMethodAnnotation(Cacheable.class),
+            new SingleFlightInterceptor(() -> this.meterRegistry)));
+        this.clinicService = (ClinicService) proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    private static Vet vet(int id) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        return vet;
+    }
+
+    private double calls(String outcome) {
+        return this.meterRegistry.find("petclinic.single.flight.calls").tag("outcome", outcome).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+
+    private void awaitCoalesced(int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls("coalesced") < calls) {
+            assertThat(System.nanoTime()).as("coalesced calls").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private <T> T held(T result) throws InterruptedException {
+        this.release.await();
+        return result;
+    }
+
+    @Test
+    void shouldCallRepositoryOncePerKeyPerBurst() throws Exception {
+        Collection<Vet> vets = List.of(vet(1), vet(2));
+        given(this.vetRepository.findAll()).willAnswer(invocation -> held(vets));
+        given(this.vetRepository.findById(1, FetchProfile.FULL)).willAnswer(invocation -> held(vet(1)));
+        given(this.vetRepository.findById(2, FetchProfile.FULL)).willAnswer(invocation -> held(vet(2)));
+
+        List<Future<Object>> allVets = new ArrayList<>();
+        List<Future<Object>> firstVets = new ArrayList<>();
+        List<Future<Object>> secondVets = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            allVets.add(this.executor.submit(() -> this.clinicService.findAllVets()));
+            firstVets.add(this.executor.submit(() -> this.clinicService.findVetById(1)));
+            secondVets.add(this.executor.submit(() -> this.clinicService.findVetById(2)));
+        }
+        awaitCoalesced(3 * (CALLERS - 1));
+        this.release.countDown();
+
+        assertThat(results(allVets)).allSatisfy(result -> assertThat(result).isSameAs(vets));
+        Object first = firstVets.get(0).get();
+        assertThat(results(firstVets)).allSatisfy(result -> assertThat(result).isSameAs(first));
+        Object second = secondVets.get(0).get();
+        assertThat(results(secondVets)).allSatisfy(result -> assertThat(result).isNotSameAs(first).isSameAs(second));
+        verify(this.vetRepository, times(1)).findAll();
+        verify(this.vetRepository, times(1)).findById(1, FetchProfile.FULL);
+        verify(this.vetRepository, times(1)).findById(2, FetchProfile.FULL);
+        assertThat(calls("loaded")).isEqualTo(3);
+        assertThat(calls("coalesced")).isEqualTo(3 * (CALLERS - 1));
+
+        // the next burst loads again
+        this.clinicService.findAllVets();
+        verify(this.vetRepository, times(2)).findAll();
+    }
+
+    @Test
+    void shouldShareFailureOfCoalescedCall() throws Exception {
+        given(this.vetRepository.findAll()).willAnswer(invocation -> {
+            this.release.await();
+            throw new DataRetrievalFailureException("vets unavailable");
+        });
+        List<Future<Object>> allVets = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            allVets.add(this.executor.submit(() -> this.clinicService.findAllVets()));
+        }
+        awaitCoalesced(CALLERS - 1);
+        this.release.countDown();
+
+        for (Future<Object> result : allVets) {
+            assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataRetrievalFailureException.class);
+        }
+        verify(this.vetRepository, times(1)).findAll();
+    }
+
+    @Test
+    void shouldNotCoalesceCallsOfMethodsWithoutCache() {
+        this.clinicService.findAllOwners();
+        this.clinicService.findAllOwners();
+        assertThat(calls("loaded")).isZero();
+    }
+
+    private static List<Object> results(List<Future<Object>> futures) throws Exception {
+        List<Object> results = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+}
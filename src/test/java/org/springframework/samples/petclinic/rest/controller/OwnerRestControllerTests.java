@@ -16,12 +16,19 @@
 
 package org.springframework.samples.petclinic.rest.controller;
 
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,11 +42,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.samples.petclinic.mapper.OwnerMapper;
 import org.springframework.samples.petclinic.mapper.PetMapper;
 import org.springframework.samples.petclinic.mapper.VisitMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.rest.advice.ExceptionControllerAdvice;
 import org.springframework.samples.petclinic.rest.dto.OwnerDto;
 import org.springframework.samples.petclinic.rest.dto.PetDto;
@@ -141,6 +153,10 @@ class OwnerRestControllerTests {
         visits.add(visit);
     }
 
+    private List<OwnerView> ownerViews(List<OwnerDto> ownerDtos) {
+        return ownerMapper.toOwners(ownerDtos).stream().map(OwnerView::of).toList();
+    }
+
     private PetDto getTestPetWithIdAndName(final int id, final String name) {
         PetTypeDto petType = new PetTypeDto();
         PetDto pet = new PetDto();
@@ -158,7 +174,7 @@ class OwnerRestControllerTests {
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("Id=1인 owner가 존재하고, Id=1인 owner를 찾으려 하면, 해당 owner에 대한 정보를 정상적으로 반환한다. ")
     void testGetOwnerSuccess() throws Exception {
-        given(this.clinicService.findOwnerById(1)).willReturn(ownerMapper.toOwner(owners.get(0)));
+        given(this.clinicService.findOwnerViewById(1)).willReturn(OwnerView.of(ownerMapper.toOwner(owners.get(0))));
         this.mockMvc.perform(get("/api/owners/1")
                 .accept(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isOk())
@@ -172,19 +188,44 @@ class OwnerRestControllerTests {
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("존재하지 않는 owner(id=2)에 대한 정보를 조회하려고 하면, isNotFound를 반환한다.")
     void testGetOwnerNotFound() throws Exception {
-        given(this.clinicService.findOwnerById(2)).willReturn(null);
+        given(this.clinicService.findOwnerViewById(2)).willReturn(null);
         this.mockMvc.perform(get("/api/owners/2")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("owner의 ETag를 If-None-Match로 보내면 본문 없이 isNotModified를, visit이 수정된 후에는 새 ETag와 owner를 반환한다.")
+    void testGetOwnerNotModified() throws Exception {
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        given(this.clinicService.findOwnerViewById(1)).willAnswer(invocation -> OwnerView.of(owner));
+        String etag = this.mockMvc.perform(get("/api/owners/1")
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/api/owners/1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().string(""));
+        owner.getPets().get(0).getVisits().get(0).setVersion(1);
+        this.mockMvc.perform(get("/api/owners/1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.id").value(1));
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("ownerList를 성공적으로 반환하는지 검사한다.")
     void testGetOwnersListSuccess() throws Exception {
         owners.remove(0);
         owners.remove(1);
-        given(this.clinicService.findOwnerByLastName("Davis")).willReturn(ownerMapper.toOwners(owners));
+        given(this.clinicService.findOwnerViewsByLastName("Davis", FetchProfile.FULL)).willReturn(ownerViews(owners));
         this.mockMvc.perform(get("/api/owners?lastName=Davis")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -200,7 +241,7 @@ class OwnerRestControllerTests {
     @DisplayName("존재하지 않는 유저를 찾으려고 할 때 isNotFound를 발생시킨다.")
     void testGetOwnersListNotFound() throws Exception {
         owners.clear();
-        given(this.clinicService.findOwnerByLastName("0")).willReturn(ownerMapper.toOwners(owners));
+        given(this.clinicService.findOwnerViewsByLastName("0", FetchProfile.FULL)).willReturn(ownerViews(owners));
         this.mockMvc.perform(get("/api/owners?lastName=0")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
@@ -212,7 +253,7 @@ class OwnerRestControllerTests {
     void testGetAllOwnersSuccess() throws Exception {
         owners.remove(0);
         owners.remove(1);
-        given(this.clinicService.findAllOwners()).willReturn(ownerMapper.toOwners(owners));
+        given(this.clinicService.findAllOwnerViews(FetchProfile.FULL)).willReturn(ownerViews(owners));
         this.mockMvc.perform(get("/api/owners")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -223,12 +264,110 @@ class OwnerRestControllerTests {
             .andExpect(jsonPath("$.[1].firstName").value("Harold"));
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("limit이 주어지면 owner 페이지와 다음 페이지의 커서를 반환한다.")
+    void testGetOwnersPageSuccess() throws Exception {
+        given(this.clinicService.findOwnersPage(null, null, null, 4, FetchProfile.FULL)).willReturn(new ArrayList<>(ownerMapper.toOwners(owners)));
+        String nextCursor = KeysetCursor.encode("Rodriquez", 3);
+        this.mockMvc.perform(get("/api/owners?limit=3")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(KeysetCursor.NEXT_CURSOR_HEADER, nextCursor))
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$.[2].id").value(3));
+
+        given(this.clinicService.findOwnersPage(null, "Rodriquez", 3, 4, FetchProfile.FULL)).willReturn(new ArrayList<>(ownerMapper.toOwners(owners.subList(3, 4))));
+        this.mockMvc.perform(get("/api/owners?limit=3&after=" + nextCursor)
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(KeysetCursor.NEXT_CURSOR_HEADER))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(4));
+    }
+
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("fields가 주어지면 pets를 읽지 않고 요청된 속성만 owner 목록과 페이지로 반환한다.")
+    void testGetOwnersWithFields() throws Exception {
+        given(this.clinicService.findAllOwnerViews(FetchProfile.SUMMARY))
+            .willReturn(ownerViews(owners).stream().map(owner -> owner.withPets(List.of())).toList());
+        this.mockMvc.perform(get("/api/owners?fields=id,lastName,telephone")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/json"))
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(jsonPath("$.[0].id").value(1))
+            .andExpect(jsonPath("$.[0].lastName").value("Franklin"))
+            .andExpect(jsonPath("$.[0].telephone").value("6085551023"))
+            .andExpect(jsonPath("$.[0].firstName").doesNotExist())
+            .andExpect(jsonPath("$.[0].pets").doesNotExist());
+        verify(this.clinicService, never()).findAllOwnerViews(FetchProfile.FULL);
+
+        given(this.clinicService.findOwnersPage(null, null, null, 3, FetchProfile.SUMMARY))
+            .willReturn(new ArrayList<>(ownerMapper.toOwners(owners.subList(0, 2))));
+        this.mockMvc.perform(get("/api/owners?limit=2&fields=firstName")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(KeysetCursor.NEXT_CURSOR_HEADER))
+            .andExpect(jsonPath("$.[1].firstName").value("Betty"))
+            .andExpect(jsonPath("$.[1].id").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("fields에 pets의 속성이 없으면 owner만 읽고, 있으면 요청된 pets와 visits의 속성만 반환하며 ETag는 fields마다 다르다.")
+    void testGetOwnerWithFields() throws Exception {
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        given(this.clinicService.findOwnerViewById(1, FetchProfile.SUMMARY))
+            .willReturn(OwnerView.of(owner).withPets(List.of()));
+        this.mockMvc.perform(get("/api/owners/1?fields=firstName")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName").value("George"))
+            .andExpect(jsonPath("$.id").doesNotExist())
+            .andExpect(jsonPath("$.pets").doesNotExist());
+        verify(this.clinicService, never()).findOwnerViewById(1);
+
+        given(this.clinicService.findOwnerViewById(1)).willReturn(OwnerView.of(owner));
+        String etag = this.mockMvc.perform(get("/api/owners/1")
+                .accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String fieldsEtag = this.mockMvc.perform(get("/api/owners/1?fields=lastName,pets.name,pets.visits.description")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.lastName").value("Franklin"))
+            .andExpect(jsonPath("$.address").doesNotExist())
+            .andExpect(jsonPath("$.pets[0].name").value("Rosy"))
+            .andExpect(jsonPath("$.pets[0].id").doesNotExist())
+            .andExpect(jsonPath("$.pets[0].visits[0].description").value("test1"))
+            .andExpect(jsonPath("$.pets[0].visits[0].date").doesNotExist())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/api/owners/1?fields=pets.visits.description,pets.name&fields=lastName")
+                .header(HttpHeaders.IF_NONE_MATCH, fieldsEtag)
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("잘못된 커서나 limit이 주어지면 BadRequest를 반환한다.")
+    void testGetOwnersPageBadRequest() throws Exception {
+        this.mockMvc.perform(get("/api/owners?after=not*a*cursor")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/owners?limit=0")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("빈 owners list에 대해 isNotFound를 발생시킨다.")
     void testGetAllOwnersNotFound() throws Exception {
         owners.clear();
-        given(this.clinicService.findAllOwners()).willReturn(ownerMapper.toOwners(owners));
+        given(this.clinicService.findAllOwnerViews(FetchProfile.FULL)).willReturn(ownerViews(owners));
         this.mockMvc.perform(get("/api/owners")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
@@ -266,7 +405,9 @@ class OwnerRestControllerTests {
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("존재하는 owner(id=1)에 대한 정보를 업데이트하면, 정보가 정상적으로 업데이트된다.")
     void testUpdateOwnerSuccess() throws Exception {
-        given(this.clinicService.findOwnerById(1)).willReturn(ownerMapper.toOwner(owners.get(0)));
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        given(this.clinicService.findOwnerViewById(1)).willAnswer(invocation -> OwnerView.of(owner));
+        given(this.clinicService.findOwnerById(1, FetchProfile.SUMMARY)).willReturn(owner);
         int ownerId = owners.get(0).getId();
         OwnerDto updatedOwnerDto = new OwnerDto();
         // body.id = ownerId which is used in url path
@@ -296,7 +437,9 @@ class OwnerRestControllerTests {
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("owner 정보를 업데이트 할 때 id를 명시해주지 않아도 업데이트된 정보가 잘 반영된다.")
     void testUpdateOwnerSuccessNoBodyId() throws Exception {
-        given(this.clinicService.findOwnerById(1)).willReturn(ownerMapper.toOwner(owners.get(0)));
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        given(this.clinicService.findOwnerViewById(1)).willAnswer(invocation -> OwnerView.of(owner));
+        given(this.clinicService.findOwnerById(1, FetchProfile.SUMMARY)).willReturn(owner);
         int ownerId = owners.get(0).getId();
         OwnerDto updatedOwnerDto = new OwnerDto();
 //        updatedOwnerDto.setId(ownerId);
@@ -322,6 +465,44 @@ class OwnerRestControllerTests {
 
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("owner의 ETag를 If-Match로 보내면 그 version에서만 업데이트하고, version이 다르면 isPreconditionFailed를, owner가 없으면 isNotFound를 반환한다.")
+    void testUpdateOwnerIfMatch() throws Exception {
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        owner.setVersion(3);
+        given(this.clinicService.findOwnerViewById(1)).willAnswer(invocation -> OwnerView.of(owner));
+        given(this.clinicService.findOwnerById(1, FetchProfile.SUMMARY)).willReturn(owner);
+        given(this.clinicService.updateOwner(argThat(updated -> updated.getId() == 1
+            && updated.getVersion() == owner.getVersion() && "GeorgeI".equals(updated.getFirstName()))))
+            .willAnswer(invocation -> {
+                owner.setVersion(owner.getVersion() + 1);
+                return true;
+            });
+        String etag = this.mockMvc.perform(get("/api/owners/1")
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        OwnerDto updatedOwnerDto = owners.get(0).firstName("GeorgeI");
+        String newOwnerAsJSON = new ObjectMapper().writeValueAsString(updatedOwnerDto);
+        String newEtag = this.mockMvc.perform(put("/api/owners/1")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content(newOwnerAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"4-")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        verify(this.clinicService, never()).saveOwner(any());
+
+        this.mockMvc.perform(put("/api/owners/1")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content(newOwnerAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isPreconditionFailed());
+        this.mockMvc.perform(put("/api/owners/2")
+                .header(HttpHeaders.IF_MATCH, newEtag)
+                .content(newOwnerAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("owner 정보를 업데이트 할 때, FirstName을 null으로 설정하면 BadRequest 상태가 된다.")
@@ -343,7 +524,7 @@ class OwnerRestControllerTests {
         ObjectMapper mapper = new ObjectMapper();
         String newOwnerAsJSON = mapper.writeValueAsString(newOwnerDto);
         final Owner owner = ownerMapper.toOwner(owners.get(0));
-        given(this.clinicService.findOwnerById(1)).willReturn(owner);
+        given(this.clinicService.findOwnerById(1, FetchProfile.SUMMARY)).willReturn(owner);
         this.mockMvc.perform(delete("/api/owners/1")
                 .content(newOwnerAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isNoContent());
@@ -356,7 +537,7 @@ class OwnerRestControllerTests {
         OwnerDto newOwnerDto = owners.get(0);
         ObjectMapper mapper = new ObjectMapper();
         String newOwnerAsJSON = mapper.writeValueAsString(newOwnerDto);
-        given(this.clinicService.findOwnerById(999)).willReturn(null);
+        given(this.clinicService.findOwnerById(999, FetchProfile.SUMMARY)).willReturn(null);
         this.mockMvc.perform(delete("/api/owners/999")
                 .content(newOwnerAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isNotFound());
@@ -413,10 +594,7 @@ class OwnerRestControllerTests {
     @DisplayName("owner와 pet을 정상적으로 설정하면, id=2인 owner의 pet 중, id=1인 pet의 정보를 반환한다.")
     void testGetOwnerPetSuccess() throws Exception {
         var owner = ownerMapper.toOwner(owners.get(0));
-        given(this.clinicService.findOwnerById(2)).willReturn(owner);
-        var pet = petMapper.toPet(pets.get(0));
-        pet.setOwner(owner);
-        given(this.clinicService.findPetById(1)).willReturn(pet);
+        given(this.clinicService.findOwnerViewById(2)).willReturn(OwnerView.of(owner));
         this.mockMvc.perform(get("/api/owners/2/pets/1")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -439,7 +617,7 @@ class OwnerRestControllerTests {
     @DisplayName("정상적으로 정의된 owner에 대해 연결된 pet이 없을 때, 해당 pet의 정보를 확인하려고 하면 isNotFound를 반환한다.")
     void testGetOwnersPetsWithPetNotFound() throws Exception {
         var owner1 = ownerMapper.toOwner(owners.get(0));
-        given(this.clinicService.findOwnerById(1)).willReturn(owner1);
+        given(this.clinicService.findOwnerViewById(1)).willReturn(OwnerView.of(owner1));
         this.mockMvc.perform(get("/api/owners/1/pets/2")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
@@ -452,8 +630,8 @@ class OwnerRestControllerTests {
     void testUpdateOwnersPetSuccess() throws Exception {
         int ownerId = owners.get(0).getId();
         int petId = pets.get(0).getId();
-        given(this.clinicService.findOwnerById(ownerId)).willReturn(ownerMapper.toOwner(owners.get(0)));
-        given(this.clinicService.findPetById(petId)).willReturn(petMapper.toPet(pets.get(0)));
+        given(this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY)).willReturn(ownerMapper.toOwner(owners.get(0)));
+        given(this.clinicService.findPetById(petId, FetchProfile.SUMMARY)).willReturn(petMapper.toPet(pets.get(0)));
         PetDto updatedPetDto = pets.get(0);
         updatedPetDto.setName("Rex");
         updatedPetDto.setBirthDate(LocalDate.of(2020, 1, 15));
@@ -475,7 +653,7 @@ class OwnerRestControllerTests {
     void testUpdateOwnersPetOwnerNotFound() throws Exception {
         int ownerId = 0;
         int petId = pets.get(0).getId();
-        given(this.clinicService.findOwnerById(ownerId)).willReturn(null);
+        given(this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY)).willReturn(null);
         PetDto petDto = pets.get(0);
         petDto.setName("Thor");
         ObjectMapper mapper =  JsonMapper.builder()
@@ -488,14 +666,59 @@ class OwnerRestControllerTests {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    @DisplayName("If-Match로 pet을 수정할 때 version이 다르면 isPreconditionFailed를, pet이 다른 owner의 pet이면 isNotFound를 반환한다.")
+    void testUpdateOwnersPetIfMatch() throws Exception {
+        Owner owner = ownerMapper.toOwner(owners.get(0));
+        Pet pet = petMapper.toPet(pets.get(0));
+        pet.setVersion(2);
+        owner.addPet(pet);
+        given(this.clinicService.findOwnerViewById(1)).willAnswer(invocation -> OwnerView.of(owner));
+        given(this.clinicService.findPetById(pet.getId(), FetchProfile.SUMMARY)).willReturn(pet);
+        given(this.clinicService.findPetViewById(pet.getId(), FetchProfile.FULL))
+            .willAnswer(invocation -> PetView.of(pet));
+        given(this.clinicService.updatePet(argThat(updated -> updated.getVersion() == pet.getVersion()
+            && updated.getOwner().getId() == 1))).willAnswer(invocation -> {
+                pet.setVersion(pet.getVersion() + 1);
+                return true;
+            });
+        String etag = this.mockMvc.perform(get("/api/owners/1/pets/" + pet.getId())
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        ObjectMapper mapper =  JsonMapper.builder()
+            .defaultDateFormat(new SimpleDateFormat("dd/MM/yyyy"))
+            .build();
+        String updatedPetAsJSON = mapper.writeValueAsString(pets.get(0).name("Rex"));
+        String newEtag = this.mockMvc.perform(put("/api/owners/1/pets/" + pet.getId())
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updatedPetAsJSON))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"3-")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(put("/api/owners/1/pets/" + pet.getId())
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updatedPetAsJSON))
+            .andExpect(status().isPreconditionFailed());
+        this.mockMvc.perform(put("/api/owners/2/pets/" + pet.getId())
+                .header(HttpHeaders.IF_MATCH, newEtag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updatedPetAsJSON))
+            .andExpect(status().isNotFound());
+        verify(this.clinicService, never()).savePet(any());
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     @DisplayName("owner는 존재하지만 수정하려는 pet이 존재하지 않을 경우 isNotFound를 반환한다. ")
     void testUpdateOwnersPetPetNotFound() throws Exception {
         int ownerId = owners.get(0).getId();
         int petId = 0;
-        given(this.clinicService.findOwnerById(ownerId)).willReturn(ownerMapper.toOwner(owners.get(0)));
-        given(this.clinicService.findPetById(petId)).willReturn(null);
+        given(this.clinicService.findOwnerById(ownerId, FetchProfile.SUMMARY)).willReturn(ownerMapper.toOwner(owners.get(0)));
+        given(this.clinicService.findPetById(petId, FetchProfile.SUMMARY)).willReturn(null);
         PetDto petDto = pets.get(0);
         petDto.setName("Ghost");
         petDto.setBirthDate(LocalDate.of(2020, 1, 1));
@@ -23,7 +23,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.samples.petclinic.mapper.PetMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.projection.PetView;
 import org.springframework.samples.petclinic.rest.advice.ExceptionControllerAdvice;
 import org.springframework.samples.petclinic.rest.dto.OwnerDto;
 import org.springframework.samples.petclinic.rest.dto.PetDto;
@@ -41,10 +43,11 @@ import tools.jackson.databind.json.JsonMapper;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -105,7 +108,7 @@ class PetRestControllerTests {
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     void testGetPetSuccess() throws Exception {
-        given(this.clinicService.findPetById(3)).willReturn(petMapper.toPet(pets.get(0)));
+        given(this.clinicService.findPetViewById(3, FetchProfile.FULL)).willReturn(PetView.of(petMapper.toPet(pets.get(0))));
         this.mockMvc.perform(get("/api/pets/3")
                 .accept(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isOk())
@@ -114,10 +117,26 @@ class PetRestControllerTests {
             .andExpect(jsonPath("$.name").value("Rosy"));
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    void testGetPetWithFields() throws Exception {
+        given(this.clinicService.findPetViewById(3, FetchProfile.SUMMARY)).willReturn(PetView.of(petMapper.toPet(pets.get(0))));
+        this.mockMvc.perform(get("/api/pets/3?fields=name,type.name")
+                .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/json"))
+            .andExpect(jsonPath("$.name").value("Rosy"))
+            .andExpect(jsonPath("$.type.name").value("dog"))
+            .andExpect(jsonPath("$.type.id").doesNotExist())
+            .andExpect(jsonPath("$.id").doesNotExist())
+            .andExpect(jsonPath("$.visits").doesNotExist());
+        verify(this.clinicService, never()).findPetViewById(3, FetchProfile.FULL);
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     void testGetPetNotFound() throws Exception {
-        given(petMapper.toPetDto(this.clinicService.findPetById(999))).willReturn(null);
+        given(this.clinicService.findPetViewById(999, FetchProfile.FULL)).willReturn(null);
         this.mockMvc.perform(get("/api/pets/999")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
@@ -126,8 +145,8 @@ class PetRestControllerTests {
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     void testGetAllPetsSuccess() throws Exception {
-        final Collection<Pet> mockPets = petMapper.toPets(this.pets);
-        when(this.clinicService.findAllPets()).thenReturn(mockPets);
+        final List<PetView> mockPets = petMapper.toPets(this.pets).stream().map(PetView::of).toList();
+        when(this.clinicService.findAllPetViews(FetchProfile.FULL)).thenReturn(mockPets);
 
         this.mockMvc.perform(get("/api/pets")
                 .accept(MediaType.APPLICATION_JSON))
@@ -139,11 +158,25 @@ class PetRestControllerTests {
             .andExpect(jsonPath("$.[1].name").value("Jewel"));
     }
 
+    @Test
+    @WithMockUser(roles = "OWNER_ADMIN")
+    void testGetPetsPageWithFields() throws Exception {
+        given(this.clinicService.findPetsPage(null, null, 3, FetchProfile.SUMMARY))
+            .willReturn(new ArrayList<>(petMapper.toPets(this.pets)));
+        this.mockMvc.perform(get("/api/pets?limit=2&fields=name")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[1].name").value("Jewel"))
+            .andExpect(jsonPath("$.[1].id").doesNotExist())
+            .andExpect(jsonPath("$.[1].visits").doesNotExist());
+        verify(this.clinicService, never()).findPetsPage(null, null, 3, FetchProfile.FULL);
+    }
+
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     void testGetAllPetsNotFound() throws Exception {
         pets.clear();
-        given(this.clinicService.findAllPets()).willReturn(petMapper.toPets(pets));
+        given(this.clinicService.findAllPetViews(FetchProfile.FULL)).willReturn(petMapper.toPets(pets).stream().map(PetView::of).toList());
         this.mockMvc.perform(get("/api/pets")
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
@@ -152,7 +185,9 @@ class PetRestControllerTests {
     @Test
     @WithMockUser(roles = "OWNER_ADMIN")
     void testUpdatePetSuccess() throws Exception {
-        given(this.clinicService.findPetById(3)).willReturn(petMapper.toPet(pets.get(0)));
+        Pet pet = petMapper.toPet(pets.get(0));
+        given(this.clinicService.findPetViewById(3, FetchProfile.FULL)).willAnswer(invocation -> PetView.of(pet));
+        given(this.clinicService.findPetById(3, FetchProfile.SUMMARY)).willReturn(pet);
         PetDto newPet = pets.get(0);
         newPet.setName("Rosy I");
         ObjectMapper mapper =  JsonMapper.builder()
@@ -195,7 +230,7 @@ class PetRestControllerTests {
         PetDto newPet = pets.get(0);
         ObjectMapper mapper = new ObjectMapper();
         String newPetAsJSON = mapper.writeValueAsString(newPet);
-        given(this.clinicService.findPetById(3)).willReturn(petMapper.toPet(pets.get(0)));
+        given(this.clinicService.findPetById(3, FetchProfile.SUMMARY)).willReturn(petMapper.toPet(pets.get(0)));
         this.mockMvc.perform(delete("/api/pets/3")
                 .content(newPetAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isNoContent());
@@ -207,7 +242,7 @@ class PetRestControllerTests {
         PetDto newPet = pets.get(0);
         ObjectMapper mapper = new ObjectMapper();
         String newPetAsJSON = mapper.writeValueAsString(newPet);
-        given(this.clinicService.findPetById(999)).willReturn(null);
+        given(this.clinicService.findPetById(999, FetchProfile.SUMMARY)).willReturn(null);
         this.mockMvc.perform(delete("/api/pets/999")
                 .content(newPetAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(status().isNotFound());
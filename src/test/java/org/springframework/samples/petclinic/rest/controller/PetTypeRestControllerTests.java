@@ -21,10 +21,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.config.CacheConfig;
 import org.springframework.samples.petclinic.mapper.PetTypeMapper;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.rest.advice.ExceptionControllerAdvice;
+import org.springframework.samples.petclinic.rest.dto.PetTypeDto;
 import org.springframework.samples.petclinic.service.ClinicService;
 import org.springframework.samples.petclinic.service.clinicService.ApplicationTestConfig;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -37,7 +41,13 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -58,6 +68,9 @@ class PetTypeRestControllerTests {
     @Autowired
     private PetTypeMapper petTypeMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @MockitoBean
     private ClinicService clinicService;
 
@@ -67,6 +80,7 @@ class PetTypeRestControllerTests {
 
     @BeforeEach
     void initPetTypes(){
+    	this.cacheManager.getCache(CacheConfig.PET_TYPES_JSON).clear();
     	this.mockMvc = MockMvcBuilders.standaloneSetup(petTypeRestController)
     			.setControllerAdvice(new ExceptionControllerAdvice())
     			.build();
@@ -117,6 +131,27 @@ class PetTypeRestControllerTests {
             .andExpect(jsonPath("$.name").value("cat"));
     }
 
+    @Test
+    @WithMockUser(roles="OWNER_ADMIN")
+    void testGetPetTypeNotModified() throws Exception {
+        given(this.clinicService.findPetTypeById(1)).willReturn(petTypes.get(0));
+        String etag = this.mockMvc.perform(get("/api/pettypes/1")
+            .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/api/pettypes/1")
+            .header(HttpHeaders.IF_NONE_MATCH, "W/" + etag)
+            .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        this.mockMvc.perform(get("/api/pettypes/1")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"")
+            .accept(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(jsonPath("$.name").value("cat"));
+    }
+
     @Test
     @WithMockUser(roles="OWNER_ADMIN")
     void testGetPetTypeNotFound() throws Exception {
@@ -214,6 +249,58 @@ class PetTypeRestControllerTests {
             .andExpect(jsonPath("$.name").value("dog I"));
     }
 
+    @Test
+    @WithMockUser(roles="VET_ADMIN")
+    void testUpdatePetTypeLeavesTheCachedInstanceUnchanged() throws Exception {
+        PetType cached = petTypes.get(1);
+        cached.setVersion(4);
+        given(this.clinicService.findPetTypeById(2)).willReturn(cached);
+        PetTypeDto petTypeDto = petTypeMapper.toPetTypeDto(cached).name("dog I");
+        this.mockMvc.perform(put("/api/pettypes/2")
+                .content(new ObjectMapper().writeValueAsString(petTypeDto))
+                .accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNoContent());
+        assertThat(cached.getName()).isEqualTo("dog");
+        verify(this.clinicService).savePetType(argThat(saved -> saved != cached && saved.getId() == 2
+            && saved.getVersion() == 4 && "dog I".equals(saved.getName())));
+    }
+
+    @Test
+    @WithMockUser(roles="VET_ADMIN")
+    void testUpdatePetTypeIfMatch() throws Exception {
+        PetType petType = petTypes.get(1);
+        petType.setVersion(4);
+        given(this.clinicService.findPetTypeById(2)).willReturn(petType);
+        given(this.clinicService.updatePetType(argThat(updated -> updated.getId() == 2 && updated.getVersion() == 4
+            && "dog I".equals(updated.getName())))).willAnswer(invocation -> {
+                invocation.<PetType>getArgument(0).setVersion(5);
+                return true;
+            });
+        String etag = this.mockMvc.perform(get("/api/pettypes/2")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"4-")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        PetTypeDto petTypeDto = petTypeMapper.toPetTypeDto(petType).name("dog I");
+        String newPetTypeAsJSON = new ObjectMapper().writeValueAsString(petTypeDto);
+        this.mockMvc.perform(put("/api/pettypes/2")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content(newPetTypeAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"5-")));
+        // a tag which was not issued by a GET is not one of a single entity, whatever its version
+        this.mockMvc.perform(put("/api/pettypes/2")
+                .header(HttpHeaders.IF_MATCH, "\"4-x\"")
+                .content(newPetTypeAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isPreconditionFailed());
+        // a weak tag never matches an If-Match header
+        this.mockMvc.perform(put("/api/pettypes/2")
+                .header(HttpHeaders.IF_MATCH, "W/" + etag)
+                .content(newPetTypeAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(status().isPreconditionFailed());
+        verify(this.clinicService, never()).savePetType(any());
+    }
+
     @Test
     @WithMockUser(roles="VET_ADMIN")
     void testUpdatePetTypeError() throws Exception {
@@ -21,7 +21,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.config.CacheConfig;
 import org.springframework.samples.petclinic.mapper.SpecialtyMapper;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.rest.advice.ExceptionControllerAdvice;
@@ -57,6 +59,9 @@ class SpecialtyRestControllerTests {
     @Autowired
     private SpecialtyMapper specialtyMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
 	@MockitoBean
     private ClinicService clinicService;
 
@@ -66,6 +71,7 @@ class SpecialtyRestControllerTests {
 
     @BeforeEach
     void initSpecialtys(){
+    	this.cacheManager.getCache(CacheConfig.SPECIALTIES_JSON).clear();
     	this.mockMvc = MockMvcBuilders.standaloneSetup(specialtyRestController)
     			.setControllerAdvice(new ExceptionControllerAdvice())
     			.build();
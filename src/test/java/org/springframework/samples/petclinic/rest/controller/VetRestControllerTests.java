@@ -21,8 +21,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.config.CacheConfig;
 import org.springframework.samples.petclinic.mapper.VetMapper;
+import org.springframework.samples.petclinic.model.FetchProfile;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.rest.advice.ExceptionControllerAdvice;
 import org.springframework.samples.petclinic.service.ClinicService;
@@ -31,13 +35,22 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -57,6 +70,9 @@ class VetRestControllerTests {
     @Autowired
     private VetMapper vetMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
 	@MockitoBean
     private ClinicService clinicService;
 
@@ -66,6 +82,7 @@ class VetRestControllerTests {
 
     @BeforeEach
     void initVets(){
+    	this.cacheManager.getCache(CacheConfig.VETS_JSON).clear();
     	this.mockMvc = MockMvcBuilders.standaloneSetup(vetRestController)
     			.setControllerAdvice(new ExceptionControllerAdvice())
     			.build();
@@ -126,6 +143,80 @@ class VetRestControllerTests {
             .andExpect(jsonPath("$.[1].firstName").value("Helen"));
     }
 
+    @Test
+    @WithMockUser(roles="VET_ADMIN")
+    void testGetAllVetsNotModified() throws Exception {
+        given(this.clinicService.findAllVets()).willReturn(vets);
+        String etag = this.mockMvc.perform(get("/api/vets")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/api/vets")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+            .andExpect(content().string(""));
+        vets.get(1).setVersion(1);
+        // evicted by the write of the vet
+        this.cacheManager.getCache(CacheConfig.VETS_JSON).clear();
+        this.mockMvc.perform(get("/api/vets")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.[1].id").value(2));
+    }
+
+    @Test
+    @WithMockUser(roles="VET_ADMIN")
+    void testGetAllVetsFromJsonCache() throws Exception {
+        given(this.clinicService.findAllVets()).willReturn(vets);
+        MockHttpServletResponse response = this.mockMvc.perform(get("/api/vets")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+            .andReturn().getResponse();
+        MockHttpServletResponse gzipResponse = this.mockMvc.perform(get("/api/vets")
+            .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/json"))
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, "W/" + response.getHeader(HttpHeaders.ETAG)))
+            .andReturn().getResponse();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipResponse.getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(response.getContentAsByteArray());
+        }
+        this.mockMvc.perform(get("/api/vets")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(jsonPath("$.[1].firstName").value("Helen"));
+        verify(this.clinicService, times(1)).findAllVets();
+    }
+
+    @Test
+    @WithMockUser(roles="VET_ADMIN")
+    void testGetAllVetsWithFields() throws Exception {
+        given(this.clinicService.findAllVets()).willReturn(vets);
+        String etag = this.mockMvc.perform(get("/api/vets")
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        this.mockMvc.perform(get("/api/vets?fields=lastName")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/json"))
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.[1].lastName").value("Leary"))
+            .andExpect(jsonPath("$.[1].firstName").doesNotExist())
+            .andExpect(jsonPath("$.[1].specialties").doesNotExist());
+    }
+
     @Test
     @WithMockUser(roles="VET_ADMIN")
     void testGetAllVetsNotFound() throws Exception {
@@ -134,6 +225,15 @@ class VetRestControllerTests {
         this.mockMvc.perform(get("/api/vets")
         	.accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
+        // the missing list is not cached
+        Vet vet = new Vet();
+        vet.setId(1);
+        vet.setFirstName("James");
+        vets.add(vet);
+        this.mockMvc.perform(get("/api/vets")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].firstName").value("James"));
     }
 
     @Test
@@ -165,6 +265,7 @@ class VetRestControllerTests {
     @WithMockUser(roles="VET_ADMIN")
     void testUpdateVetSuccess() throws Exception {
     	given(this.clinicService.findVetById(1)).willReturn(vets.get(0));
+    	given(this.clinicService.findVetById(1, FetchProfile.FULL)).willReturn(vets.get(0));
     	Vet newVet = vets.get(0);
     	newVet.setFirstName("James");
     	ObjectMapper mapper = new ObjectMapper();
@@ -201,7 +302,7 @@ class VetRestControllerTests {
     	Vet newVet = vets.get(0);
     	ObjectMapper mapper = new ObjectMapper();
         String newVetAsJSON = mapper.writeValueAsString(vetMapper.toVetDto(newVet));
-    	given(this.clinicService.findVetById(1)).willReturn(vets.get(0));
+    	given(this.clinicService.findVetById(1, FetchProfile.SUMMARY)).willReturn(vets.get(0));
     	this.mockMvc.perform(delete("/api/vets/1")
     		.content(newVetAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
         	.andExpect(status().isNoContent());
@@ -213,7 +314,7 @@ class VetRestControllerTests {
     	Vet newVet = vets.get(0);
     	ObjectMapper mapper = new ObjectMapper();
         String newVetAsJSON = mapper.writeValueAsString(vetMapper.toVetDto(newVet));
-    	given(this.clinicService.findVetById(999)).willReturn(null);
+    	given(this.clinicService.findVetById(999, FetchProfile.SUMMARY)).willReturn(null);
     	this.mockMvc.perform(delete("/api/vets/999")
     		.content(newVetAsJSON).accept(MediaType.APPLICATION_JSON_VALUE).contentType(MediaType.APPLICATION_JSON_VALUE))
         	.andExpect(status().isNotFound());
@@ -15,21 +15,37 @@
  */
 package org.springframework.samples.petclinic.service.clinicService;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.samples.petclinic.config.CacheConfig;
 import org.springframework.samples.petclinic.model.*;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
 import org.springframework.samples.petclinic.service.ClinicService;
 import org.springframework.samples.petclinic.util.EntityUtils;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * <p> Base class for {@link ClinicService} integration tests. </p> <p> Subclasses should specify Spring context
@@ -56,6 +72,18 @@ abstract class AbstractClinicServiceTests {
     @Autowired
     protected ClinicService clinicService;
 
+    @Autowired
+    protected CacheManager cacheManager;
+
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void invalidateCaches() {
+        // invalidate() rather than clear(), which a transaction-aware cache defers to the commit of the test transaction
+        this.cacheManager.getCacheNames().forEach(name -> this.cacheManager.getCache(name).invalidate());
+    }
+
     @Test
     void shouldFindOwnersByLastName() {
         Collection<Owner> owners = this.clinicService.findOwnerByLastName("Davis");
@@ -74,6 +102,39 @@ abstract class AbstractClinicServiceTests {
         assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
     }
 
+    @Test
+    void shouldFindOwnerViewWithPetsAndVisits() {
+        OwnerView owner = this.clinicService.findOwnerViewById(6);
+        assertThat(owner.lastName()).isEqualTo("Coleman");
+        assertThat(owner.pets()).extracting(PetView::name).containsSubsequence("Max", "Samantha");
+        PetView samantha = owner.pets().stream().filter(pet -> pet.id() == 7).findFirst().orElseThrow();
+        assertThat(samantha.typeName()).isEqualTo("cat");
+        assertThat(samantha.ownerId()).isEqualTo(6);
+        assertThat(samantha.visits()).extracting(VisitView::description).containsSubsequence("spayed", "rabies shot");
+        assertThat(this.clinicService.findOwnerViewById(-1)).isNull();
+    }
+
+    @Test
+    void shouldFindOwnerAndPetSummaryViewsWithoutTheirCollections() {
+        OwnerView owner = this.clinicService.findOwnerViewById(6, FetchProfile.SUMMARY);
+        assertThat(owner.lastName()).isEqualTo("Coleman");
+        assertThat(owner.pets()).isEmpty();
+        assertThat(this.clinicService.findOwnerViewById(-1, FetchProfile.SUMMARY)).isNull();
+        assertThat(this.clinicService.findOwnerViewsByLastName("Davis", FetchProfile.SUMMARY))
+            .allSatisfy(davis -> assertThat(davis.pets()).isEmpty())
+            .extracting(OwnerView::firstName).containsExactly("Betty", "Harold");
+        assertThat(this.clinicService.findAllOwnerViews(FetchProfile.SUMMARY)).extracting(OwnerView::id)
+            .containsExactlyElementsOf(this.clinicService.findAllOwnerViews().stream().map(OwnerView::id).toList());
+        assertThat(this.clinicService.findOwnersPage("Davis", null, null, 2, FetchProfile.SUMMARY))
+            .extracting(Owner::getFirstName).containsExactly("Betty", "Harold");
+        PetView pet = this.clinicService.findPetViewById(7, FetchProfile.SUMMARY);
+        assertThat(pet.typeName()).isEqualTo("cat");
+        assertThat(pet.ownerId()).isEqualTo(6);
+        assertThat(pet.visits()).isEmpty();
+        assertThat(this.clinicService.findAllPetViews(FetchProfile.SUMMARY))
+            .allSatisfy(view -> assertThat(view.visits()).isEmpty());
+    }
+
     @Test
     @Transactional
     void shouldInsertOwner() {
@@ -108,6 +169,166 @@ abstract class AbstractClinicServiceTests {
         assertThat(owner.getLastName()).isEqualTo(newLastName);
     }
 
+    @Test
+    @Transactional
+    void shouldIncrementVersionOfUpdatedOwnerAndRejectStaleUpdate() {
+        Owner owner = this.clinicService.findOwnerById(1, FetchProfile.SUMMARY);
+        int version = owner.getVersion();
+        owner.setTelephone("6085551024");
+        this.clinicService.saveOwner(owner);
+        assertThat(this.clinicService.findOwnerViewById(1).version()).isEqualTo(version + 1);
+
+        Owner stale = new Owner();
+        stale.setId(1);
+        stale.setVersion(version);
+        stale.setFirstName(owner.getFirstName());
+        stale.setLastName(owner.getLastName());
+        stale.setAddress(owner.getAddress());
+        stale.setCity(owner.getCity());
+        stale.setTelephone("6085551025");
+        assertThatThrownBy(() -> this.clinicService.saveOwner(stale))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    @Transactional
+    void shouldUpdateOwnerPetAndVisitOnlyAtTheirVersion() {
+        OwnerView ownerView = this.clinicService.findOwnerViewById(1);
+        Owner owner = new Owner();
+        owner.setId(1);
+        owner.setVersion(ownerView.version());
+        owner.setFirstName(ownerView.firstName());
+        owner.setLastName(ownerView.lastName());
+        owner.setAddress(ownerView.address());
+        owner.setCity("Monona");
+        owner.setTelephone(ownerView.telephone());
+        assertThat(this.clinicService.updateOwner(owner)).isTrue();
+        assertThat(owner.getVersion()).isEqualTo(ownerView.version() + 1);
+        ownerView = this.clinicService.findOwnerViewById(1);
+        assertThat(ownerView.city()).isEqualTo("Monona");
+        assertThat(ownerView.version()).isEqualTo(owner.getVersion());
+        assertThat(ownerView.pets()).hasSize(1);
+        owner.setVersion(owner.getVersion() - 1);
+        assertThat(this.clinicService.updateOwner(owner)).isFalse();
+        owner.setId(999);
+        assertThat(this.clinicService.updateOwner(owner)).isFalse();
+
+        PetView petView = this.clinicService.findPetViewById(1);
+        Pet pet = new Pet();
+        pet.setId(1);
+        pet.setVersion(petView.version());
+        pet.setName("Leon");
+        pet.setBirthDate(petView.birthDate());
+        pet.setType(this.clinicService.findPetTypeById(2));
+        Owner otherOwner = new Owner();
+        otherOwner.setId(2);
+        pet.setOwner(otherOwner);
+        assertThat(this.clinicService.updatePet(pet)).isFalse();
+        pet.setOwner(null);
+        assertThat(this.clinicService.updatePet(pet)).isTrue();
+        assertThat(pet.getOwner().getId()).isEqualTo(1);
+        petView = this.clinicService.findPetViewById(1);
+        assertThat(petView.name()).isEqualTo("Leon");
+        assertThat(petView.typeName()).isEqualTo("dog");
+        assertThat(petView.ownerId()).isEqualTo(1);
+        assertThat(petView.version()).isEqualTo(pet.getVersion());
+
+        VisitView visitView = this.clinicService.findVisitViewById(1);
+        Visit visit = new Visit();
+        visit.setId(1);
+        visit.setVersion(visitView.version());
+        visit.setDate(visitView.date());
+        visit.setDescription("rabies booster");
+        assertThat(this.clinicService.updateVisit(visit)).isTrue();
+        assertThat(visit.getPet().getId()).isEqualTo(7);
+        visitView = this.clinicService.findVisitViewById(1);
+        assertThat(visitView.description()).isEqualTo("rabies booster");
+        assertThat(visitView.petId()).isEqualTo(7);
+        assertThat(visitView.version()).isEqualTo(visit.getVersion());
+        visit.setVersion(visit.getVersion() - 1);
+        assertThat(this.clinicService.updateVisit(visit)).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void shouldUpdateVetPetTypeAndSpecialtyOnlyAtTheirVersion() {
+        Vet current = this.clinicService.findVetById(2);
+        int version = current.getVersion();
+        Vet vet = new Vet();
+        vet.setId(2);
+        vet.setVersion(version);
+        vet.setFirstName(current.getFirstName());
+        vet.setLastName("Leary-Smith");
+        vet.setSpecialties(this.clinicService.findSpecialtiesByNameIn(Set.of("surgery", "dentistry")));
+        assertThat(this.clinicService.updateVet(vet)).isTrue();
+        assertThat(vet.getVersion()).isEqualTo(version + 1);
+        current = this.clinicService.findVetById(2);
+        assertThat(current.getLastName()).isEqualTo("Leary-Smith");
+        assertThat(current.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+        assertThat(current.getVersion()).isEqualTo(vet.getVersion());
+        vet.setVersion(vet.getVersion() - 1);
+        assertThat(this.clinicService.updateVet(vet)).isFalse();
+        vet.setId(999);
+        assertThat(this.clinicService.updateVet(vet)).isFalse();
+
+        PetType petType = new PetType();
+        petType.setId(1);
+        petType.setVersion(this.clinicService.findPetTypeById(1).getVersion());
+        petType.setName("kitten");
+        assertThat(this.clinicService.updatePetType(petType)).isTrue();
+        assertThat(this.clinicService.findPetTypeById(1).getName()).isEqualTo("kitten");
+        petType.setVersion(petType.getVersion() - 1);
+        assertThat(this.clinicService.updatePetType(petType)).isFalse();
+
+        Specialty specialty = new Specialty();
+        specialty.setId(1);
+        specialty.setVersion(this.clinicService.findSpecialtyById(1).getVersion());
+        specialty.setName("imaging");
+        assertThat(this.clinicService.updateSpecialty(specialty)).isTrue();
+        assertThat(this.clinicService.findSpecialtyById(1).getName()).isEqualTo("imaging");
+        specialty.setVersion(specialty.getVersion() - 1);
+        assertThat(this.clinicService.updateSpecialty(specialty)).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void shouldUpdateOwnerReadWithSummaryProfileKeepingItsPets() {
+        Owner owner = this.clinicService.findOwnerById(6, FetchProfile.SUMMARY);
+        assertThat(owner.getLastName()).isEqualTo("Coleman");
+
+        owner.setCity("Monona");
+        this.clinicService.saveOwner(owner);
+        clearCache();
+
+        owner = this.clinicService.findOwnerById(6);
+        assertThat(owner.getCity()).isEqualTo("Monona");
+        assertThat(owner.getPets()).hasSize(2);
+        assertThat(owner.getPet("Max").getVisits()).hasSize(2);
+    }
+
+    @Test
+    @Transactional
+    void shouldUpdatePetReadWithSummaryProfileKeepingItsVisits() {
+        Pet pet = this.clinicService.findPetById(7, FetchProfile.SUMMARY);
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Coleman");
+
+        pet.setName("Sam");
+        this.clinicService.savePet(pet);
+        clearCache();
+
+        pet = this.clinicService.findPetById(7);
+        assertThat(pet.getName()).isEqualTo("Sam");
+        assertThat(pet.getVisits()).hasSize(2);
+    }
+
+    @Test
+    void shouldFindVetSummaryById() {
+        Vet vet = this.clinicService.findVetById(3, FetchProfile.SUMMARY);
+        assertThat(vet.getLastName()).isEqualTo("Douglas");
+        assertThat(this.clinicService.findVetById(999, FetchProfile.SUMMARY)).isNull();
+    }
+
     @Test
     void shouldFindPetWithCorrectId() {
         Pet pet7 = this.clinicService.findPetById(7);
@@ -116,6 +337,20 @@ abstract class AbstractClinicServiceTests {
 
     }
 
+    @Test
+    void shouldFindPetByIdWithTypeOwnerAndVisits() {
+        Pet pet8 = this.clinicService.findPetById(8);
+        assertThat(pet8.getName()).isEqualTo("Max");
+        assertThat(pet8.getType().getName()).isEqualTo("cat");
+        assertThat(pet8.getOwner().getId()).isEqualTo(6);
+        assertThat(pet8.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(pet8.getVisits()).extracting(Visit::getDescription).containsExactly("neutered", "rabies shot");
+
+        Pet pet1 = this.clinicService.findPetById(1);
+        assertThat(pet1.getVisits()).isEmpty();
+        assertThat(this.clinicService.findPetById(1000)).isNull();
+    }
+
 //    @Test
 //    void shouldFindAllPetTypes() {
 //        Collection<PetType> petTypes = this.clinicService.findPetTypes();
@@ -222,6 +457,16 @@ abstract class AbstractClinicServiceTests {
         assertThat(pet).isNull();
     }
 
+    @Test
+    @Transactional
+    void shouldDeletePetKnownOnlyByItsId(){
+        Pet pet = new Pet();
+        pet.setId(7);
+        this.clinicService.deletePet(pet);
+        clearCache();
+        assertThat(this.clinicService.findOwnerViewById(6).pets()).extracting(PetView::id).doesNotContain(7);
+    }
+
     @Test
     void shouldFindVisitDyId(){
     	Visit visit = this.clinicService.findVisitById(1);
@@ -238,6 +483,119 @@ abstract class AbstractClinicServiceTests {
         assertThat(visit3.getPet().getName()).isEqualTo("Max");
     }
 
+    @Test
+    void shouldFindAllVisitsWithPetTypeAndOwner(){
+        Collection<Visit> visits = this.clinicService.findAllVisits();
+        Visit visit2 = EntityUtils.getById(visits, Visit.class, 2);
+        assertThat(visit2.getPet().getName()).isEqualTo("Max");
+        assertThat(visit2.getPet().getType().getName()).isEqualTo("cat");
+        assertThat(visit2.getPet().getOwner().getLastName()).isEqualTo("Coleman");
+        Visit visit4 = EntityUtils.getById(visits, Visit.class, 4);
+        assertThat(visit4.getPet().getOwner().getTelephone()).isEqualTo("6085552654");
+    }
+
+    @Test
+    void shouldStreamAllVisitsWithPetAndOwner() {
+        List<Visit> visits = this.clinicService.streamAllVisits(stream -> stream.toList());
+        assertThat(visits).extracting(Visit::getId)
+            .containsExactlyElementsOf(this.clinicService.findAllVisits().stream().map(Visit::getId).sorted().toList());
+        Visit visit2 = EntityUtils.getById(visits, Visit.class, 2);
+        assertThat(visit2.getPet().getName()).isEqualTo("Max");
+        assertThat(visit2.getPet().getType().getName()).isEqualTo("cat");
+        assertThat(visit2.getPet().getOwner().getLastName()).isEqualTo("Coleman");
+    }
+
+    @Test
+    void shouldStreamAllPetsWithTypeOwnerAndVisits() {
+        List<Pet> pets = this.clinicService.streamAllPets(stream -> stream.toList());
+        assertThat(pets).extracting(Pet::getId)
+            .containsExactlyElementsOf(this.clinicService.findAllPets().stream().map(Pet::getId).sorted().toList());
+        Pet pet7 = EntityUtils.getById(pets, Pet.class, 7);
+        assertThat(pet7.getName()).isEqualTo("Samantha");
+        assertThat(pet7.getType().getName()).isEqualTo("cat");
+        assertThat(pet7.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(pet7.getVisits()).extracting(Visit::getId).containsExactlyInAnyOrder(1, 4);
+    }
+
+    @Test
+    void shouldFindOwnersPagesSortedByLastNameAndId() {
+        List<Owner> owners = new ArrayList<>();
+        List<Owner> page = this.clinicService.findOwnersPage(null, null, null, 3);
+        while (!page.isEmpty()) {
+            assertThat(page.size()).isLessThanOrEqualTo(3);
+            owners.addAll(page);
+            Owner last = page.get(page.size() - 1);
+            page = this.clinicService.findOwnersPage(null, last.getLastName(), last.getId(), 3);
+        }
+        assertThat(owners).extracting(Owner::getId).containsExactlyElementsOf(this.clinicService.findAllOwners().stream()
+            .sorted(Comparator.comparing(Owner::getLastName).thenComparing(Owner::getId))
+            .map(Owner::getId)
+            .toList());
+        Owner owner6 = EntityUtils.getById(owners, Owner.class, 6);
+        assertThat(owner6.getPets()).extracting(Pet::getName).containsExactlyInAnyOrder("Max", "Samantha");
+        assertThat(owner6.getPet("Max").getVisits()).hasSize(2);
+    }
+
+    @Test
+    void shouldFindOwnersPagesByLastName() {
+        List<Owner> page = this.clinicService.findOwnersPage("Davis", null, null, 1);
+        assertThat(page).extracting(Owner::getId).containsExactly(2);
+        page = this.clinicService.findOwnersPage("Davis", "Davis", 2, 1);
+        assertThat(page).extracting(Owner::getId).containsExactly(4);
+        page = this.clinicService.findOwnersPage("Davis", "Davis", 4, 1);
+        assertThat(page).isEmpty();
+    }
+
+    @Test
+    void shouldFindPetsPagesSortedByNameAndId() {
+        List<Pet> pets = new ArrayList<>();
+        List<Pet> page = this.clinicService.findPetsPage(null, null, 4);
+        while (!page.isEmpty()) {
+            pets.addAll(page);
+            Pet last = page.get(page.size() - 1);
+            page = this.clinicService.findPetsPage(last.getName(), last.getId(), 4);
+        }
+        assertThat(pets).extracting(Pet::getId).containsExactlyElementsOf(this.clinicService.findAllPets().stream()
+            .sorted(Comparator.comparing(Pet::getName).thenComparing(Pet::getId))
+            .map(Pet::getId)
+            .toList());
+        Pet pet7 = EntityUtils.getById(pets, Pet.class, 7);
+        assertThat(pet7.getType().getName()).isEqualTo("cat");
+        assertThat(pet7.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(pet7.getVisits()).extracting(Visit::getId).containsExactlyInAnyOrder(1, 4);
+    }
+
+    @Test
+    void shouldFindVisitsPagesSortedByDateAndId() {
+        List<Visit> visits = new ArrayList<>();
+        List<Visit> page = this.clinicService.findVisitsPage(null, null, 1);
+        while (!page.isEmpty()) {
+            visits.addAll(page);
+            Visit last = page.get(page.size() - 1);
+            page = this.clinicService.findVisitsPage(last.getDate(), last.getId(), 1);
+        }
+        assertThat(visits).extracting(Visit::getId).containsExactlyElementsOf(this.clinicService.findAllVisits().stream()
+            .sorted(Comparator.comparing(Visit::getDate).thenComparing(Visit::getId))
+            .map(Visit::getId)
+            .toList());
+        assertThat(EntityUtils.getById(visits, Visit.class, 2).getPet().getOwner().getLastName()).isEqualTo("Coleman");
+    }
+
+    @Test
+    void shouldStreamAllOwnersWithPetsAndVisits() {
+        long ownersWithPets = this.clinicService.streamAllOwners(stream -> stream
+            .filter(owner -> !owner.getPets().isEmpty())
+            .count());
+        assertThat(ownersWithPets).isEqualTo(10);
+
+        List<Owner> owners = this.clinicService.streamAllOwners(stream -> stream.toList());
+        assertThat(owners).extracting(Owner::getId)
+            .containsExactlyElementsOf(this.clinicService.findAllOwners().stream().map(Owner::getId).sorted().toList());
+        Owner owner6 = EntityUtils.getById(owners, Owner.class, 6);
+        assertThat(owner6.getPets()).extracting(Pet::getName).containsExactlyInAnyOrder("Max", "Samantha");
+        assertThat(owner6.getPet("Max").getVisits()).extracting(Visit::getId).containsExactlyInAnyOrder(2, 3);
+    }
+
     @Test
     @Transactional
     void shouldInsertVisit() {
@@ -291,6 +649,24 @@ abstract class AbstractClinicServiceTests {
     	assertThat(vet.getLastName()).isEqualTo("Carter");
     }
 
+    @Test
+    void shouldFindVetByIdWithSpecialties(){
+        Vet vet = this.clinicService.findVetById(3);
+        assertThat(vet.getLastName()).isEqualTo("Douglas");
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+        vet = this.clinicService.findVetById(1);
+        assertThat(vet.getNrOfSpecialties()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldFindAllVetsIncludingThoseWithoutSpecialty(){
+        Collection<Vet> vets = this.clinicService.findAllVets();
+        assertThat(vets).hasSize(6);
+        assertThat(EntityUtils.getById(vets, Vet.class, 1).getNrOfSpecialties()).isEqualTo(0);
+        assertThat(EntityUtils.getById(vets, Vet.class, 4).getSpecialties())
+            .extracting(Specialty::getName).containsExactly("surgery");
+    }
+
     @Test
     @Transactional
     void shouldInsertVet() {
@@ -320,6 +696,24 @@ abstract class AbstractClinicServiceTests {
         assertThat(vet.getLastName()).isEqualTo(newLastName);
     }
 
+    @Test
+    @Transactional
+    void shouldUpdateVetSpecialties(){
+        Vet vet = this.clinicService.findVetById(3, FetchProfile.FULL);
+        vet.setSpecialties(this.clinicService.findSpecialtiesByNameIn(Set.of("dentistry", "radiology")));
+        this.clinicService.saveVet(vet);
+        clearCache();
+        vet = this.clinicService.findVetById(3);
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "radiology");
+
+        vet = this.clinicService.findVetById(3, FetchProfile.FULL);
+        vet.setSpecialties(List.of());
+        this.clinicService.saveVet(vet);
+        clearCache();
+        vet = this.clinicService.findVetById(3);
+        assertThat(vet.getNrOfSpecialties()).isEqualTo(0);
+    }
+
     @Test
     @Transactional
     void shouldDeleteVet(){
@@ -342,6 +736,29 @@ abstract class AbstractClinicServiceTests {
         assertThat(owner3.getFirstName()).isEqualTo("Eduardo");
     }
 
+    @Test
+    void shouldFindAllOwnersWithPetsAndVisits(){
+        Collection<Owner> owners = this.clinicService.findAllOwners();
+        Owner owner6 = EntityUtils.getById(owners, Owner.class, 6);
+        assertThat(owner6.getPets().size()).isEqualTo(2);
+        Pet samantha = owner6.getPet("Samantha");
+        assertThat(samantha.getType().getName()).isEqualTo("cat");
+        assertThat(samantha.getVisits().size()).isEqualTo(2);
+        Owner owner10 = EntityUtils.getById(owners, Owner.class, 10);
+        assertThat(owner10.getPets().size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFindOwnersByLastNameWithPets(){
+        Collection<Owner> owners = this.clinicService.findOwnerByLastName("Davis");
+        Owner owner2 = EntityUtils.getById(owners, Owner.class, 2);
+        assertThat(owner2.getPets().size()).isEqualTo(1);
+        assertThat(owner2.getPets().get(0).getType().getName()).isEqualTo("hamster");
+        Owner owner4 = EntityUtils.getById(owners, Owner.class, 4);
+        assertThat(owner4.getPets().size()).isEqualTo(1);
+        assertThat(owner4.getPets().get(0).getName()).isEqualTo("Iggy");
+    }
+
     @Test
     @Transactional
     void shouldDeleteOwner(){
@@ -355,6 +772,20 @@ abstract class AbstractClinicServiceTests {
         assertThat(owner).isNull();
     }
 
+    @Test
+    @Transactional
+    void shouldDeleteOwnerWithPetsAndVisits(){
+        Owner owner = this.clinicService.findOwnerById(6);
+        this.clinicService.deleteOwner(owner);
+        clearCache();
+        assertThat(this.clinicService.findOwnerById(6)).isNull();
+        assertThat(this.clinicService.findPetById(7)).isNull();
+        assertThat(this.clinicService.findPetById(8)).isNull();
+        assertThat(this.clinicService.findVisitById(1)).isNull();
+        assertThat(this.clinicService.findVisitById(3)).isNull();
+        assertThat(this.clinicService.findOwnerById(1)).isNotNull();
+    }
+
     @Test
     void shouldFindPetTypeById(){
     	PetType petType = this.clinicService.findPetTypeById(1);
@@ -412,6 +843,87 @@ abstract class AbstractClinicServiceTests {
         assertThat(petType).isNull();
     }
 
+    @Test
+    void shouldCachePetTypeUntilSavedEvenIfRolledBack() {
+        Cache<Object, Object> petTypeCache = nativeCache(CacheConfig.PET_TYPE);
+        CacheStats before = petTypeCache.stats();
+        PetType cached = this.clinicService.findPetTypeById(1);
+        assertThat(this.clinicService.findPetTypeById(1).getName()).isEqualTo("cat");
+        CacheStats stats = petTypeCache.stats().minus(before);
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(1);
+
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.executeWithoutResult(status -> {
+            PetType petType = new PetType();
+            petType.setId(1);
+            petType.setVersion(cached.getVersion());
+            petType.setName("puma");
+            this.clinicService.savePetType(petType);
+            assertThat(petTypeCache.getIfPresent(1)).isNull();
+            status.setRollbackOnly();
+        });
+        assertThat(cached.getName()).isEqualTo("cat");
+        PetType reloaded = this.clinicService.findPetTypeById(1);
+        assertThat(reloaded).isNotSameAs(cached);
+        assertThat(reloaded.getName()).isEqualTo("cat");
+        assertThat(reloaded.getVersion()).isEqualTo(cached.getVersion());
+    }
+
+    @Test
+    void shouldCacheOwnerAggregateUntilOnePetOrVisitOfItIsSaved() {
+        Cache<Object, Object> ownerCache = nativeCache(CacheConfig.OWNER);
+        OwnerView owner = this.clinicService.findOwnerViewById(6);
+        assertThat(this.clinicService.findOwnerViewById(6)).isSameAs(owner);
+        assertThat(ownerCache.getIfPresent(6)).isSameAs(owner);
+        assertThatThrownBy(() -> owner.pets().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> owner.pets().get(0).visits().clear()).isInstanceOf(UnsupportedOperationException.class);
+
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Pet samantha = new Pet();
+            samantha.setId(7);
+            Visit visit = new Visit();
+            visit.setPet(samantha);
+            visit.setDate(LocalDate.now());
+            visit.setDescription("check-up");
+            this.clinicService.saveVisit(visit);
+            assertThat(visit.getPet().getOwner().getId()).isEqualTo(6);
+
+            Pet max = this.clinicService.findPetById(8, FetchProfile.SUMMARY);
+            max.setName("Maximus");
+            this.clinicService.savePet(max);
+            assertThat(ownerCache.getIfPresent(6)).isNull();
+            status.setRollbackOnly();
+        });
+        OwnerView reloaded = this.clinicService.findOwnerViewById(6);
+        assertThat(reloaded).isNotSameAs(owner).isEqualTo(owner);
+    }
+
+    @Test
+    void shouldEvictJsonBodiesOfTheListsShowingASavedSpecialty() {
+        Cache<Object, Object> vetsJson = nativeCache(CacheConfig.VETS_JSON);
+        Cache<Object, Object> specialtiesJson = nativeCache(CacheConfig.SPECIALTIES_JSON);
+        Cache<Object, Object> petTypesJson = nativeCache(CacheConfig.PET_TYPES_JSON);
+        vetsJson.put("body", "[]");
+        specialtiesJson.put("body", "[]");
+        petTypesJson.put("body", "[]");
+
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Specialty specialty = new Specialty();
+            specialty.setId(1);
+            specialty.setVersion(this.clinicService.findSpecialtyById(1).getVersion());
+            specialty.setName("imaging");
+            this.clinicService.saveSpecialty(specialty);
+            assertThat(vetsJson.getIfPresent("body")).isNull();
+            assertThat(specialtiesJson.getIfPresent("body")).isNull();
+            status.setRollbackOnly();
+        });
+        assertThat(petTypesJson.getIfPresent("body")).isEqualTo("[]");
+        petTypesJson.invalidateAll();
+    }
+
     @Test
     void shouldFindSpecialtyById(){
     	Specialty specialty = this.clinicService.findSpecialtyById(1);
@@ -474,6 +986,27 @@ abstract class AbstractClinicServiceTests {
         assertThat(specialty).isNull();
     }
 
+    @Test
+    @Transactional
+    void shouldDeleteSpecialtyLinkedToVets(){
+        Specialty surgery = this.clinicService.findSpecialtyById(2);
+        this.clinicService.deleteSpecialty(surgery);
+        clearCache();
+        assertThat(this.clinicService.findSpecialtyById(2)).isNull();
+        Vet vet = this.clinicService.findVetById(3);
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry");
+    }
+
+    @Test
+    @Transactional
+    void shouldDeleteVetWithSpecialties(){
+        Vet vet = this.clinicService.findVetById(3);
+        this.clinicService.deleteVet(vet);
+        clearCache();
+        assertThat(this.clinicService.findVetById(3)).isNull();
+        assertThat(this.clinicService.findSpecialtyById(2)).isNotNull();
+    }
+
     @Test
     @Transactional
     void shouldFindSpecialtiesByNameIn() {
@@ -502,4 +1035,10 @@ abstract class AbstractClinicServiceTests {
     }
 
     void clearCache() {}
+
+    private Cache<Object, Object> nativeCache(String name) {
+        TransactionAwareCacheDecorator cache = (TransactionAwareCacheDecorator) this.cacheManager.getCache(name);
+        return ((CaffeineCache) cache.getTargetCache()).getNativeCache();
+    }
+
 }
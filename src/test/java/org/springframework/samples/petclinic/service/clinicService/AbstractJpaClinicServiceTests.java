@@ -0,0 +1,419 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.service.clinicService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.model.FetchProfile;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.model.projection.OwnerView;
+import org.springframework.samples.petclinic.model.projection.PetView;
+import org.springframework.samples.petclinic.model.projection.VisitView;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <p> Base class of the {@link org.springframework.samples.petclinic.service.ClinicService} integration tests of
+ * the JPA based repository layers, which also check that reads issue a bounded number of SQL statements whatever
+ * the number of loaded entities, and load everything the REST layer maps outside of the transaction. Each test
+ * starts from an empty second-level cache, so that the statements of a read do not depend on the tests run
+ * before it. </p>
+ *
+ * @see AbstractClinicServiceTests AbstractClinicServiceTests for more details.
+ */
+abstract class AbstractJpaClinicServiceTests extends AbstractClinicServiceTests {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void evictSecondLevelCache() {
+        this.entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Override
+    void clearCache() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldFindAllOwnersWithOneStatement() {
+        Collection<Owner> owners = countStatements(1, () -> this.clinicService.findAllOwners());
+        assertThat(owners).flatExtracting(Owner::getPets).isNotEmpty()
+            .allSatisfy(pet -> assertThat(pet.getType().getName()).isNotNull())
+            .flatExtracting(Pet::getVisits).isNotEmpty();
+    }
+
+    @Test
+    void shouldDetachTheStreamedOwnersOneChunkAtATime() {
+        // the test properties fetch two rows per round trip: every second owner comes after a clear
+        List<Boolean> managed = this.clinicService.streamAllOwners(stream -> stream
+            .map(owner -> this.entityManager.contains(owner))
+            .toList());
+        assertThat(managed).hasSize(10).containsExactly(true, false, true, false, true, false, true, false, true, false);
+    }
+
+    @Test
+    void shouldFindOwnerByIdWithOneStatement() {
+        Owner owner = countStatements(1, () -> this.clinicService.findOwnerById(6));
+        assertThat(owner.getPets()).hasSize(2)
+            .allSatisfy(pet -> assertThat(pet.getType().getName()).isNotNull());
+        assertThat(owner.getPet("Max").getVisits()).hasSize(2);
+    }
+
+    @Test
+    void shouldFindOwnerSummaryWithoutItsPets() {
+        Owner owner = countStatements(1, () -> this.clinicService.findOwnerById(6, FetchProfile.SUMMARY));
+        assertThat(owner.getLastName()).isEqualTo("Coleman");
+        assertThat(isLoaded(owner, "pets")).isFalse();
+    }
+
+    @Test
+    void shouldFindOwnersByLastNameWithOneStatement() {
+        Collection<Owner> owners = countStatements(1, () -> this.clinicService.findOwnerByLastName("Davis"));
+        assertThat(owners).hasSize(2).flatExtracting(Owner::getPets).hasSize(2);
+    }
+
+    @Test
+    void shouldFindOwnersPageWithTwoStatements() {
+        List<Owner> owners = countStatements(2, () -> this.clinicService.findOwnersPage(null, null, null, 5));
+        assertThat(owners).hasSize(5).flatExtracting(Owner::getPets)
+            .allSatisfy(pet -> assertThat(pet.getVisits()).isNotNull());
+    }
+
+    @Test
+    void shouldFindAllPetsWithOneStatement() {
+        Collection<Pet> pets = countStatements(1, () -> this.clinicService.findAllPets());
+        assertThat(pets).isNotEmpty()
+            .allSatisfy(pet -> assertThat(pet.getType().getName()).isNotNull())
+            .allSatisfy(pet -> assertThat(pet.getOwner().getLastName()).isNotNull())
+            .flatExtracting(Pet::getVisits).isNotEmpty();
+    }
+
+    @Test
+    void shouldFindPetByIdWithOneStatement() {
+        Pet pet = countStatements(1, () -> this.clinicService.findPetById(7));
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(pet.getVisits()).hasSize(2);
+    }
+
+    @Test
+    void shouldFindPetSummaryWithTypeAndOwnerButWithoutItsVisits() {
+        Pet pet = countStatements(1, () -> this.clinicService.findPetById(7, FetchProfile.SUMMARY));
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(isLoaded(pet, "visits")).isFalse();
+        assertThat(isLoaded(pet.getOwner(), "pets")).isFalse();
+    }
+
+    @Test
+    void shouldFindPetsPageWithTwoStatements() {
+        List<Pet> pets = countStatements(2, () -> this.clinicService.findPetsPage(null, null, 5));
+        assertThat(pets).hasSize(5)
+            .allSatisfy(pet -> assertThat(pet.getOwner().getLastName()).isNotNull())
+            .allSatisfy(pet -> assertThat(pet.getVisits()).isNotNull());
+    }
+
+    @Test
+    void shouldFindPetsSummaryPageWithoutTheirVisits() {
+        List<Pet> pets = countStatements(2, () -> this.clinicService.findPetsPage(null, null, 5, FetchProfile.SUMMARY));
+        assertThat(pets).hasSize(5)
+            .allSatisfy(pet -> assertThat(pet.getType().getName()).isNotNull())
+            .allSatisfy(pet -> assertThat(pet.getOwner().getLastName()).isNotNull())
+            .allSatisfy(pet -> assertThat(isLoaded(pet, "visits")).isFalse());
+    }
+
+    @Test
+    void shouldFindAllVisitsWithOneStatement() {
+        Collection<Visit> visits = countStatements(1, () -> this.clinicService.findAllVisits());
+        assertThat(visits).isNotEmpty()
+            .allSatisfy(visit -> assertThat(visit.getPet().getType().getName()).isNotNull())
+            .allSatisfy(visit -> assertThat(visit.getPet().getOwner().getLastName()).isNotNull());
+    }
+
+    @Test
+    void shouldFindVisitsPageWithOneStatement() {
+        List<Visit> visits = countStatements(1, () -> this.clinicService.findVisitsPage(null, null, 3));
+        assertThat(visits).hasSize(3)
+            .allSatisfy(visit -> assertThat(visit.getPet().getName()).isNotNull());
+    }
+
+    @Test
+    void shouldFindVisitsByPetIdWithOneStatement() {
+        Collection<Visit> visits = countStatements(1, () -> this.clinicService.findVisitsByPetId(7));
+        assertThat(visits).hasSize(2)
+            .allSatisfy(visit -> assertThat(visit.getPet().getName()).isEqualTo("Samantha"));
+    }
+
+    @Test
+    void shouldSelectOwnerViewsWithOneStatementPerLevelAndNoEntity() {
+        List<OwnerView> owners = countStatements(3, () -> this.clinicService.findAllOwnerViews());
+        assertThat(statistics().getEntityLoadCount()).as("loaded entities").isZero();
+        assertThat(owners).isNotEmpty().isSortedAccordingTo(Comparator.comparing(OwnerView::id))
+            .flatExtracting(OwnerView::pets).flatExtracting(PetView::visits).isNotEmpty();
+        assertThat(countStatements(3, () -> this.clinicService.findOwnerViewsByLastName("Davis")))
+            .extracting(OwnerView::firstName).containsExactly("Betty", "Harold");
+        assertThat(countStatements(3, () -> this.clinicService.findOwnerViewById(6)).pets()).hasSize(2);
+    }
+
+    @Test
+    void shouldSelectPetViewsWithOneStatementPerLevelAndNoEntity() {
+        List<PetView> pets = countStatements(2, () -> this.clinicService.findAllPetViews());
+        assertThat(statistics().getEntityLoadCount()).as("loaded entities").isZero();
+        assertThat(pets).isNotEmpty().allSatisfy(pet -> assertThat(pet.typeName()).isNotNull());
+        PetView pet = countStatements(2, () -> this.clinicService.findPetViewById(7));
+        assertThat(pet.typeName()).isEqualTo("cat");
+        assertThat(pet.ownerId()).isEqualTo(6);
+        assertThat(pet.visits()).hasSize(2);
+    }
+
+    @Test
+    void shouldSelectSummaryViewsAndPageWithoutTheirCollections() {
+        List<OwnerView> owners = countStatements(1, () -> this.clinicService.findAllOwnerViews(FetchProfile.SUMMARY));
+        assertThat(owners).isNotEmpty().allSatisfy(owner -> assertThat(owner.pets()).isEmpty());
+        assertThat(countStatements(1, () -> this.clinicService.findOwnerViewsByLastName("Davis", FetchProfile.SUMMARY)))
+            .hasSize(2);
+        assertThat(countStatements(1, () -> this.clinicService.findOwnerViewById(6, FetchProfile.SUMMARY)).pets()).isEmpty();
+        List<Owner> page = countStatements(2, () -> this.clinicService.findOwnersPage(null, null, null, 5,
+            FetchProfile.SUMMARY));
+        assertThat(page).hasSize(5).allSatisfy(owner -> assertThat(isLoaded(owner, "pets")).isFalse());
+        assertThat(countStatements(1, () -> this.clinicService.findAllPetViews(FetchProfile.SUMMARY)))
+            .allSatisfy(pet -> assertThat(pet.visits()).isEmpty());
+        assertThat(countStatements(1, () -> this.clinicService.findPetViewById(7, FetchProfile.SUMMARY)).visits())
+            .isEmpty();
+    }
+
+    @Test
+    void shouldSelectVisitViewsWithOneStatementAndNoEntity() {
+        List<VisitView> visits = countStatements(1, () -> this.clinicService.findAllVisitViews());
+        assertThat(statistics().getEntityLoadCount()).as("loaded entities").isZero();
+        assertThat(visits).isNotEmpty().allSatisfy(visit -> assertThat(visit.petId()).isNotNull());
+        assertThat(countStatements(1, () -> this.clinicService.findVisitViewById(1)).petId()).isEqualTo(7);
+        assertThat(countStatements(1, () -> this.clinicService.findVisitViewById(-1))).isNull();
+    }
+
+    @Test
+    void shouldFindAllVetsWithOneStatement() {
+        Collection<Vet> vets = countStatements(1, () -> this.clinicService.findAllVets());
+        assertThat(vets).flatExtracting(Vet::getSpecialties).isNotEmpty();
+    }
+
+    @Test
+    void shouldFindVetByIdWithOneStatement() {
+        Vet vet = countStatements(1, () -> this.clinicService.findVetById(3));
+        assertThat(vet.getSpecialties()).hasSize(2);
+    }
+
+    @Test
+    void shouldFindVetSummaryWithoutItsSpecialties() {
+        Vet vet = countStatements(1, () -> this.clinicService.findVetById(3, FetchProfile.SUMMARY));
+        assertThat(vet.getLastName()).isEqualTo("Douglas");
+        assertThat(isLoaded(vet, "specialties")).isFalse();
+    }
+
+    @Test
+    void shouldReadPetTypesAndSpecialtiesFromTheSecondLevelCache() {
+        Collection<PetType> petTypes = countStatements(1, () -> this.clinicService.findAllPetTypes());
+        Collection<Specialty> specialties = countStatements(1, () -> this.clinicService.findAllSpecialties());
+        assertThat(countStatements(0, () -> this.clinicService.findAllPetTypes())).hasSameSizeAs(petTypes);
+        assertThat(countStatements(0, () -> this.clinicService.findAllSpecialties())).hasSameSizeAs(specialties);
+        assertThat(countStatements(0, () -> this.clinicService.findSpecialtyById(1)).getName()).isEqualTo("radiology");
+        assertThat(countStatements(0, () -> this.clinicService.findPetTypeById(2)).getName()).isEqualTo("dog");
+        assertThat(statistics().getDomainDataRegionStatistics("types").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReadVetsWithTheirSpecialtiesFromTheSecondLevelCache() {
+        Collection<Vet> vets = countStatements(1, () -> this.clinicService.findAllVets());
+        assertThat(countStatements(0, () -> this.clinicService.findAllVets())).hasSameSizeAs(vets)
+            .allSatisfy(vet -> assertThat(isLoaded(vet, "specialties")).isTrue());
+        Vet vet = countStatements(0, () -> this.clinicService.findVetById(3));
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+        assertThat(statistics().getDomainDataRegionStatistics("vet_specialties").getHitCount()).isPositive();
+    }
+
+    @Test
+    void shouldWriteOnlyTheSpecialtyLinksOfAVetWhichChanged() {
+        Vet vet = this.clinicService.findVetById(3, FetchProfile.FULL);
+        vet.setSpecialties(this.clinicService.findSpecialtiesByNameIn(Set.of("dentistry", "surgery")));
+        assertThat(writeSpecialtyLinks(vet)).isZero();
+
+        vet.setSpecialties(this.clinicService.findSpecialtiesByNameIn(Set.of("dentistry", "radiology")));
+        assertThat(writeSpecialtyLinks(vet)).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    void shouldEvictDeletedPetTypeFromTheSecondLevelCache() {
+        PetType petType = this.clinicService.findPetTypeById(4);
+        assertThat(this.clinicService.findAllPetTypes()).contains(petType);
+        this.clinicService.deletePetType(petType);
+        clearCache();
+        assertThat(this.clinicService.findPetTypeById(4)).isNull();
+        assertThat(this.clinicService.findAllPetTypes()).extracting(PetType::getId).doesNotContain(4);
+    }
+
+    @Test
+    @Transactional
+    void shouldEvictDeletedSpecialtyFromTheCachedSpecialtiesOfVets() {
+        assertThat(this.clinicService.findVetById(3).getSpecialties()).hasSize(2);
+        assertThat(this.clinicService.findAllSpecialties()).hasSize(3);
+        clearCache();
+        this.clinicService.deleteSpecialty(this.clinicService.findSpecialtyById(3));
+        clearCache();
+        assertThat(this.clinicService.findVetById(3).getSpecialties()).extracting(Specialty::getName)
+            .containsExactly("surgery");
+        assertThat(this.clinicService.findAllSpecialties()).extracting(Specialty::getId).doesNotContain(3);
+    }
+
+    @Test
+    void shouldLoadEntitiesWithoutDirtyCheckingSnapshotsInReadOnlyTransactions() {
+        TransactionTemplate readOnly = new TransactionTemplate(this.transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+            assertThat(session.isDefaultReadOnly()).isTrue();
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+            Collection<Owner> owners = this.clinicService.findAllOwners();
+            assertThat(owners).allSatisfy(owner -> assertThat(loadedState(session, owner)).isNull())
+                .flatExtracting(Owner::getPets).isNotEmpty()
+                .allSatisfy(pet -> assertThat(loadedState(session, pet)).isNull());
+            assertThat(this.clinicService.findVisitsByPetId(7))
+                .allSatisfy(visit -> assertThat(session.isReadOnly(visit)).isTrue());
+        });
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+            assertThat(session.isDefaultReadOnly()).isFalse();
+            assertThat(this.clinicService.findAllOwners())
+                .allSatisfy(owner -> assertThat(loadedState(session, owner)).isNotNull());
+        });
+    }
+
+    @Test
+    @Transactional
+    void shouldInsertOwnersWithPetsAndVisitsInBatches() {
+        PetType cat = this.clinicService.findPetTypeById(1);
+        List<Owner> owners = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Owner owner = new Owner();
+            owner.setFirstName("Sam");
+            owner.setLastName("Batch" + i);
+            owner.setAddress("4, Evans Street");
+            owner.setCity("Wollongong");
+            owner.setTelephone("4444444444");
+            for (int j = 0; j < 2; j++) {
+                Pet pet = new Pet();
+                pet.setName("Kitty" + j);
+                pet.setBirthDate(LocalDate.of(2020, 1, 1));
+                pet.setType(cat);
+                for (int k = 0; k < 2; k++) {
+                    Visit visit = new Visit();
+                    visit.setDate(LocalDate.of(2024, 1, 1 + k));
+                    visit.setDescription("check-up");
+                    pet.addVisit(visit);
+                }
+                owner.addPet(pet);
+            }
+            owners.add(owner);
+        }
+        Statistics statistics = statistics();
+        statistics.clear();
+        owners.forEach(this.clinicService::saveOwner);
+        this.entityManager.flush();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(70);
+        // one batch per table, plus at most two calls per sequence to reserve the blocks of ids
+        assertThat(statistics.getPrepareStatementCount()).as("SQL statements").isLessThanOrEqualTo(9);
+        clearCache();
+        assertThat(this.clinicService.findOwnerById(owners.get(9).getId()).getPet("Kitty1").getVisits()).hasSize(2);
+    }
+
+    /**
+     * Saves the given vet in a transaction which is rolled back, and returns the number of writes of the links to
+     * its specialties, whatever their kind.
+     */
+    long writeSpecialtyLinks(Vet vet) {
+        CollectionStatistics links = statistics().getCollectionStatistics(Vet.class.getName() + ".specialties");
+        long before = links.getUpdateCount() + links.getRecreateCount() + links.getRemoveCount();
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            this.clinicService.saveVet(vet);
+            this.entityManager.flush();
+            status.setRollbackOnly();
+        });
+        return links.getUpdateCount() + links.getRecreateCount() + links.getRemoveCount() - before;
+    }
+
+    /**
+     * The state of the given entity as loaded, kept by the persistence context to detect its changes on flush.
+     */
+    Object[] loadedState(SessionImplementor session, Object entity) {
+        return session.getPersistenceContextInternal().getEntry(entity).getLoadedState();
+    }
+
+    boolean isLoaded(Object entity, String attributeName) {
+        return this.entityManagerFactory.getPersistenceUnitUtil().isLoaded(entity, attributeName);
+    }
+
+    /**
+     * Runs the given read from an empty persistence context and checks the number of SQL statements it issued.
+     */
+    <T> T countStatements(long expectedStatements, Supplier<T> read) {
+        Statistics statistics = statistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            T result = read.get();
+            assertThat(statistics.getPrepareStatementCount()).as("SQL statements").isEqualTo(expectedStatements);
+            return result;
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+
+    Statistics statistics() {
+        return this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+}
@@ -1,7 +1,5 @@
 package org.springframework.samples.petclinic.service.clinicService;
 
-import jakarta.persistence.EntityManager;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -16,13 +14,6 @@ import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
 @ActiveProfiles({"jpa", "hsqldb"})
-class ClinicServiceJpaTests extends AbstractClinicServiceTests {
+class ClinicServiceJpaTests extends AbstractJpaClinicServiceTests {
 
-    @Autowired
-    EntityManager entityManager;
-
-    @Override
-    void clearCache() {
-        entityManager.clear();
-    }
 }
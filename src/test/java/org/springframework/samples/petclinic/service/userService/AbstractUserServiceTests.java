@@ -4,9 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.samples.petclinic.model.User;
 import org.springframework.samples.petclinic.service.UserService;
 
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -15,6 +17,9 @@ public abstract class AbstractUserServiceTests {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     public void init() {
         MockitoAnnotations.openMocks(this);
@@ -32,4 +37,30 @@ public abstract class AbstractUserServiceTests {
         assertThat(user.getRoles().parallelStream().allMatch(role -> role.getName().startsWith("ROLE_")), is(true));
         assertThat(user.getRoles().parallelStream().allMatch(role -> role.getUser() != null), is(true));
     }
+
+    @Test
+    public void shouldUpdateExistingUser() throws Exception {
+        User user = new User();
+        user.setUsername("existing");
+        user.setPassword("password");
+        user.setEnabled(true);
+        user.addRole("OWNER_ADMIN");
+        userService.saveUser(user);
+        try {
+            User updatedUser = new User();
+            updatedUser.setUsername("existing");
+            updatedUser.setPassword("new password");
+            updatedUser.setEnabled(false);
+            updatedUser.addRole("VET_ADMIN");
+            userService.saveUser(updatedUser);
+
+            assertThat(jdbcTemplate.queryForObject("SELECT password FROM users WHERE username='existing'", String.class),
+                is("new password"));
+            assertThat(jdbcTemplate.queryForList("SELECT role FROM roles WHERE username='existing'", String.class),
+                hasItem("ROLE_VET_ADMIN"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM roles WHERE username='existing'");
+            jdbcTemplate.update("DELETE FROM users WHERE username='existing'");
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.PetType;
+
+/**
+ * Simple tests of the {@link EntityIndex} hash table, including its growth beyond the initial capacity.
+ */
+class EntityIndexTests {
+
+    private static Owner owner(int id) {
+        Owner owner = new Owner();
+        owner.setId(id);
+        owner.setLastName("owner" + id);
+        return owner;
+    }
+
+    @Test
+    void shouldFindIndexedEntities() {
+        EntityIndex<Owner> index = EntityIndex.of(Owner.class, List.of(owner(1), owner(17), owner(33), owner(0)));
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.get(17).getLastName()).isEqualTo("owner17");
+        assertThat(index.get(0).getLastName()).isEqualTo("owner0");
+        assertThat(index.get(2)).isNull();
+        assertThat(index.contains(33)).isTrue();
+        assertThat(index.contains(-1)).isFalse();
+    }
+
+    @Test
+    void shouldReplaceEntityWithSameId() {
+        EntityIndex<Owner> index = new EntityIndex<>(Owner.class);
+        Owner first = owner(5);
+        Owner second = owner(5);
+        assertThat(index.put(first)).isNull();
+        assertThat(index.put(second)).isSameAs(first);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(5)).isSameAs(second);
+    }
+
+    @Test
+    void shouldFailLikeEntityUtilsWhenEntityIsMissing() {
+        EntityIndex<PetType> index = new EntityIndex<>(PetType.class);
+        assertThat(index.isEmpty()).isTrue();
+        assertThatThrownBy(() -> index.getById(4)).isInstanceOf(ObjectRetrievalFailureException.class);
+    }
+
+    @Test
+    void shouldRejectNewEntity() {
+        EntityIndex<Owner> index = new EntityIndex<>(Owner.class);
+        assertThatThrownBy(() -> index.put(new Owner())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldGrowToHundredThousandEntities() {
+        List<Owner> owners = new ArrayList<>();
+        for (int id = 1; id <= 100_000; id++) {
+            owners.add(owner(id * 31));
+        }
+        EntityIndex<Owner> index = new EntityIndex<>(Owner.class);
+        owners.forEach(index::put);
+        assertThat(index.size()).isEqualTo(100_000);
+        for (Owner owner : owners) {
+            assertThat(index.get(owner.getId())).isSameAs(owner);
+        }
+        assertThat(index.get(31 * 100_001)).isNull();
+    }
+}